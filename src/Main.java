@@ -1,6 +1,7 @@
 
 
 import com.aparapi.Kernel;
+import drawing.SnapshotRenderer;
 import geometry.objects3D.Point3D;
 import geometry.objects3D.Vector3D;
 import graph.Camera;
@@ -8,6 +9,7 @@ import graph.CanvasPanel;
 import graph.Screen;
 import org.json.JSONException;
 import physics.Space;
+import physics.StepScheduler;
 
 import javax.swing.*;
 import java.awt.event.KeyEvent;
@@ -18,6 +20,13 @@ public class Main {
 
     public static final int FocusLength = 300;
     public static final int Distance = 500;
+    public static final int FramePeriod = 16;
+    public static final int MaxSubsteps = 5;
+
+    private static Space space;
+    private static StepScheduler scheduler;
+    private static Thread schedulerThread;
+    private static Thread rendererThread;
 
     public static void main(String[] args) throws InterruptedException {
         load();
@@ -48,6 +57,7 @@ public class Main {
                 try {
 
                     Space space = new Space(0.01d, 00d, canvas, file);
+                    Main.space = space;
                     canvas.addKeyListener(new KeyListener() {
                         @Override
                         public void keyTyped(KeyEvent e) {
@@ -76,6 +86,7 @@ public class Main {
                                 }
                             }
                             if (e.getKeyCode() == KeyEvent.VK_N && e.isControlDown()) {
+                                stop();
                                 canvas.setVisible(false);
                                 canvas.dispose();
                                 try {
@@ -94,19 +105,25 @@ public class Main {
 
                     Thread.sleep(2000);
 
-                    new Thread(() -> {
-                        while (true) {
+                    scheduler = StepScheduler.realTime(space, MaxSubsteps);
+                    schedulerThread = new Thread(scheduler::run);
+                    schedulerThread.start();
+
+                    SnapshotRenderer renderer = new SnapshotRenderer(space);
+                    rendererThread = new Thread(() -> {
+                        while (!Thread.currentThread().isInterrupted()) {
                             synchronized (canvas) {
-                                canvas.repaint();
-                                space.changeTime();
+                                if (renderer.render())
+                                    canvas.repaint();
                             }
                             try {
-                                Thread.sleep(5);
+                                Thread.sleep(FramePeriod);
                             } catch (InterruptedException e) {
-                                e.printStackTrace();
+                                return;
                             }
                         }
-                    }).start();
+                    });
+                    rendererThread.start();
                     break;
                 } catch (JSONException e) {
                     canvas.setVisible(false);
@@ -120,6 +137,29 @@ public class Main {
         }
     }
 
+    /**
+     * Метод, останавливающий текущую сцену перед загрузкой новой: планировщик шагов и поток отрисовки
+     * завершаются, после чего пул потоков пространства закрывается
+     */
+    private static void stop() {
+        if (rendererThread != null)
+            rendererThread.interrupt();
+        if (scheduler != null) {
+            scheduler.stop();
+            try {
+                schedulerThread.join();
+            } catch (InterruptedException e) {
+                e.printStackTrace();
+            }
+        }
+        if (space != null)
+            space.shutdown();
+        space = null;
+        scheduler = null;
+        schedulerThread = null;
+        rendererThread = null;
+    }
+
     public static void start(File f) throws InterruptedException {
 
     }
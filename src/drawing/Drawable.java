@@ -1,5 +1,7 @@
 package drawing;
 
+import geometry.Quaternion;
+import geometry.objects3D.Point3D;
 import graph.CanvasPanel;
 
 /**
@@ -13,8 +15,10 @@ public interface Drawable {
     void pushToCanvas(CanvasPanel canvas);
 
     /**
-     * Метод, обновляющий графическую интерпретацию объекта
+     * Метод, приводящий графическую интерпретацию объекта к состоянию из снимка (см {@link physics.StateSnapshot})
+     * @param position положение центра масс объекта
+     * @param orientation ориентация объекта
      */
-    void updateDrawingInterpretation();
+    void updateDrawingInterpretation(Point3D position, Quaternion orientation);
 
 }
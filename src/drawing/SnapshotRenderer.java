@@ -0,0 +1,36 @@
+package drawing;
+
+import physics.SnapshotBuffer;
+import physics.StateSnapshot;
+import physics.Space;
+
+/**
+ * Обновляет графические интерпретации тел по последнему опубликованному снимку состояния пространства. <br>
+ * Работает в потоке отрисовки и не блокирует поток физики (см {@link SnapshotBuffer})
+ */
+public final class SnapshotRenderer {
+
+    private final SnapshotBuffer snapshots;
+    private long drawnStep;
+
+    /**
+     * Конструктор
+     * @param space пространство, которое нужно отрисовывать
+     */
+    public SnapshotRenderer(Space space) {
+        snapshots = space.getSnapshots();
+    }
+
+    /**
+     * Метод, приводящий графические интерпретации тел к последнему снимку
+     * @return Обновились ли интерпретации (был ли опубликован новый снимок)
+     */
+    public boolean render() {
+        StateSnapshot snapshot = snapshots.read();
+        if (snapshot.getStep() == drawnStep) return false;
+        for (int i = 0; i < snapshot.size(); i++)
+            snapshot.getBody(i).updateDrawingInterpretation(snapshot.getPosition(i), snapshot.getOrientation(i));
+        drawnStep = snapshot.getStep();
+        return true;
+    }
+}
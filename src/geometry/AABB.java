@@ -3,7 +3,6 @@ package geometry;
 import geometry.objects.Segment;
 import geometry.objects.Triangle;
 import geometry.objects3D.Point3D;
-import geometry.objects3D.Vector3D;
 import physical_objects.PhysicalPolyhedron;
 import physical_objects.PhysicalSphere;
 import physical_objects.Wall;
@@ -13,19 +12,29 @@ import utils.FloatComparator;
 import java.util.*;
 
 /**
- * AABB - Axis Aligned Bounding Box (коробка, ограничивающая объект)
+ * AABB - Axis Aligned Bounding Box (коробка, ограничивающая объект). <br>
+ * Снаружи пакета коробка доступна только для чтения: границы задаются конструктором, а методы изменения
+ * закрыты. Коробки, которые владелец пересчитывает на месте, создаются как {@link MutableAABB}
+ * (см {@link physical_objects.AbstractBody#updateBounds()}) и отдаются остальным как AABB,
+ * поэтому общую коробку тела, стены или треугольника нельзя изменить через ее получателя
  */
 public class AABB {
-    private final Point3D min;
-    private final Point3D max;
+    private double minX, minY, minZ;
+    private double maxX, maxY, maxZ;
+
+    /**
+     * Конструктор пустой коробки (не содержит ни одной точки, пока ее не задали)
+     */
+    public AABB() {
+        clear();
+    }
 
     /**Конструктор по максимальной и минимальной точке
      * @param min точка с минимальными координатами
      * @param max точка с максимальными координатами
      */
     public AABB(Point3D min, Point3D max) {
-        this.min = min;
-        this.max = max;
+        set(min.x, min.y, min.z, max.x, max.y, max.z);
     }
 
     /**
@@ -35,8 +44,7 @@ public class AABB {
      */
     public AABB(PhysicalSphere sphere, boolean mode){
         Point3D position = sphere.getPositionOfCentre(mode);
-        min = new Point3D(position.x - sphere.getR(), position.y - sphere.getR(), position.z - sphere.getR());
-        max = new Point3D(position.x + sphere.getR(), position.y + sphere.getR(), position.z + sphere.getR());
+        setSphere(position.x, position.y, position.z, sphere.getR());
     }
 
     /**
@@ -51,19 +59,21 @@ public class AABB {
      * Конструктор по треугольнику
      * @param triangle треугольник
      */
-    public AABB(Triangle triangle){this(triangle.getPoints());}
+    public AABB(Triangle triangle){
+        clear();
+        include(triangle.A);
+        include(triangle.B);
+        include(triangle.C);
+    }
 
     /**
      * Конструктор по отрезку
      * @param segment отрезок
      */
     public AABB(Segment segment){
-        ArrayList<Point3D> points = new ArrayList<>();
-        points.add(segment.point1);
-        points.add(segment.point2);
-        AABB aabb = new AABB(points);
-        this.min = aabb.getMin();
-        this.max = aabb.getMax();
+        clear();
+        include(segment.point1);
+        include(segment.point2);
     }
 
     /**
@@ -72,7 +82,7 @@ public class AABB {
      * @param mode нужно ли считать относительно будущего положения
      */
     public AABB(PhysicalPolyhedron polyhedron, boolean mode){
-        this(new ArrayList<>(polyhedron.getPoints(mode)));
+        setPoints(polyhedron.getVertices(mode));
     }
 
     /**
@@ -80,25 +90,100 @@ public class AABB {
      * @param points множество точек
      */
     public AABB(ArrayList<Point3D> points){
-        double posXDeviation = 0f;
-        double posYDeviation = 0f;
-        double posZDeviation = 0f;
-        double negXDeviation = 0f;
-        double negYDeviation = 0f;
-        double negZDeviation = 0f;
+        clear();
+        for (Point3D point : points)
+            include(point);
+    }
+
+    /**
+     * Метод, делающий коробку пустой
+     */
+    void clear() {
+        minX = minY = minZ = Double.POSITIVE_INFINITY;
+        maxX = maxY = maxZ = Double.NEGATIVE_INFINITY;
+    }
 
-        for (int i = 1; i < points.size(); i++) {
-            Vector3D vectorToPoint = new Vector3D(points.get(0), points.get(i));
-            if (posXDeviation < vectorToPoint.x) posXDeviation = vectorToPoint.x;
-            if (posYDeviation < vectorToPoint.y) posYDeviation = vectorToPoint.y;
-            if (posZDeviation < vectorToPoint.z) posZDeviation = vectorToPoint.z;
-            if (negXDeviation > vectorToPoint.x) negXDeviation = vectorToPoint.x;
-            if (negYDeviation > vectorToPoint.y) negYDeviation = vectorToPoint.y;
-            if (negZDeviation > vectorToPoint.z) negZDeviation = vectorToPoint.z;
-        }
+    /**
+     * Метод, задающий коробку по границам
+     * @param minX минимальная координата по Ox
+     * @param minY минимальная координата по Oy
+     * @param minZ минимальная координата по Oz
+     * @param maxX максимальная координата по Ox
+     * @param maxY максимальная координата по Oy
+     * @param maxZ максимальная координата по Oz
+     */
+    void set(double minX, double minY, double minZ, double maxX, double maxY, double maxZ) {
+        this.minX = minX;
+        this.minY = minY;
+        this.minZ = minZ;
+        this.maxX = maxX;
+        this.maxY = maxY;
+        this.maxZ = maxZ;
+    }
 
-        this.min = new Point3D(points.get(0).x + negXDeviation, points.get(0).y + negYDeviation, points.get(0).z + negZDeviation);
-        this.max = new Point3D(points.get(0).x + posXDeviation, points.get(0).y + posYDeviation, points.get(0).z + posZDeviation);
+    /**
+     * Метод, копирующий границы другой коробки
+     * @param box коробка
+     */
+    void set(AABB box) {
+        set(box.minX, box.minY, box.minZ, box.maxX, box.maxY, box.maxZ);
+    }
+
+    /**
+     * Метод, задающий коробку, описанную вокруг шара
+     * @param x координата центра по Ox
+     * @param y координата центра по Oy
+     * @param z координата центра по Oz
+     * @param r радиус
+     */
+    void setSphere(double x, double y, double z, double r) {
+        set(x - r, y - r, z - r, x + r, y + r, z + r);
+    }
+
+    /**
+     * Метод, задающий коробку по набору точек
+     * @param coordinates координаты точек подряд (по три числа на точку)
+     */
+    void setPoints(double[] coordinates) {
+        clear();
+        for (int i = 0; i < coordinates.length; i += 3)
+            include(coordinates[i], coordinates[i + 1], coordinates[i + 2]);
+    }
+
+    /**
+     * Метод, расширяющий коробку так, чтобы она содержала точку
+     * @param x координата точки по Ox
+     * @param y координата точки по Oy
+     * @param z координата точки по Oz
+     */
+    void include(double x, double y, double z) {
+        if (x < minX) minX = x;
+        if (y < minY) minY = y;
+        if (z < minZ) minZ = z;
+        if (x > maxX) maxX = x;
+        if (y > maxY) maxY = y;
+        if (z > maxZ) maxZ = z;
+    }
+
+    /**
+     * Метод, расширяющий коробку так, чтобы она содержала точку
+     * @param point точка
+     */
+    void include(Point3D point) {
+        include(point.x, point.y, point.z);
+    }
+
+    /**
+     * Метод, расширяющий коробку так, чтобы она содержала другую
+     * @param box коробка
+     */
+    void include(AABB box) {
+        if (box.minX < minX) minX = box.minX;
+        if (box.minY < minY) minY = box.minY;
+        if (box.minZ < minZ) minZ = box.minZ;
+        if (box.maxX > maxX) maxX = box.maxX;
+        if (box.maxY > maxY) maxY = box.maxY;
+        if (box.maxZ > maxZ) maxZ = box.maxZ;
     }
 
     /**
@@ -106,10 +191,9 @@ public class AABB {
      * @return Пересекается ли данная коробка с другой
      */
     public boolean isIntersectedWith(AABB b){
-
-        if (this.max.x < b.min.x || this.min.x > b.max.x) return false;
-        if (this.max.y < b.min.y || this.min.y > b.max.y) return false;
-        return !(this.max.z < b.min.z) && !(this.min.z > b.max.z);
+        if (this.maxX < b.minX || this.minX > b.maxX) return false;
+        if (this.maxY < b.minY || this.minY > b.maxY) return false;
+        return !(this.maxZ < b.minZ) && !(this.minZ > b.maxZ);
     }
 
     /**
@@ -118,25 +202,67 @@ public class AABB {
      */
     public boolean isPointIn(Point3D point){
 
-        if (FloatComparator.compare(this.max.x, point.x) == -1 || FloatComparator.compare(this.min.x, point.x) == 1)
+        if (FloatComparator.compare(this.maxX, point.x) == -1 || FloatComparator.compare(this.minX, point.x) == 1)
             return false;
-        if (FloatComparator.compare(this.max.y, point.y) == -1 || FloatComparator.compare(this.min.y, point.y) == 1)
+        if (FloatComparator.compare(this.maxY, point.y) == -1 || FloatComparator.compare(this.minY, point.y) == 1)
             return false;
-        return FloatComparator.compare(this.max.z, point.z) != -1 && FloatComparator.compare(this.min.z, point.z) != 1;
+        return FloatComparator.compare(this.maxZ, point.z) != -1 && FloatComparator.compare(this.minZ, point.z) != 1;
+    }
+
+    /**
+     * @return Минимальная координата по Ox
+     */
+    public double getMinX() {
+        return minX;
+    }
+
+    /**
+     * @return Минимальная координата по Oy
+     */
+    public double getMinY() {
+        return minY;
+    }
+
+    /**
+     * @return Минимальная координата по Oz
+     */
+    public double getMinZ() {
+        return minZ;
+    }
+
+    /**
+     * @return Максимальная координата по Ox
+     */
+    public double getMaxX() {
+        return maxX;
+    }
+
+    /**
+     * @return Максимальная координата по Oy
+     */
+    public double getMaxY() {
+        return maxY;
+    }
+
+    /**
+     * @return Максимальная координата по Oz
+     */
+    public double getMaxZ() {
+        return maxZ;
     }
 
     /**
      * @return Минимальная точка коробки
      */
     public Point3D getMin() {
-        return min;
+        return new Point3D(minX, minY, minZ);
     }
 
     /**
      * @return Максимальная точка коробки
      */
     public Point3D getMax() {
-        return max;
+        return new Point3D(maxX, maxY, maxZ);
     }
 
     /**
@@ -145,8 +271,8 @@ public class AABB {
     @Override
     public String toString() {
         return "AABB{" +
-                "min=" + min +
-                ", max=" + max +
+                "min=" + getMin() +
+                ", max=" + getMax() +
                 '}';
     }
 }
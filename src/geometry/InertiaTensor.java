@@ -0,0 +1,77 @@
+package geometry;
+
+import geometry.objects3D.Vector3D;
+
+/**
+ * Тензор инерции (симметричная матрица 3x3): моменты инерции относительно осей и центробежные моменты. <br>
+ * Момент инерции относительно любой оси, проходящей через начало отсчета тензора, находится по нему
+ * несколькими умножениями
+ */
+public final class InertiaTensor {
+
+    public final static InertiaTensor ZERO = new InertiaTensor(0, 0, 0, 0, 0, 0);
+
+    public final double xx, yy, zz, xy, xz, yz;
+
+    /**
+     * Конструктор по компонентам
+     * @param xx момент инерции относительно Ox
+     * @param yy момент инерции относительно Oy
+     * @param zz момент инерции относительно Oz
+     * @param xy компонента xy (центробежный момент со знаком минус)
+     * @param xz компонента xz (центробежный момент со знаком минус)
+     * @param yz компонента yz (центробежный момент со знаком минус)
+     */
+    public InertiaTensor(double xx, double yy, double zz, double xy, double xz, double yz) {
+        this.xx = xx;
+        this.yy = yy;
+        this.zz = zz;
+        this.xy = xy;
+        this.xz = xz;
+        this.yz = yz;
+    }
+
+    /**
+     * @param tensor другой тензор
+     * @return Сумма тензоров (тензор тела, составленного из двух частей)
+     */
+    public InertiaTensor add(InertiaTensor tensor) {
+        return new InertiaTensor(xx + tensor.xx, yy + tensor.yy, zz + tensor.zz,
+                xy + tensor.xy, xz + tensor.xz, yz + tensor.yz);
+    }
+
+    /**
+     * @param k число
+     * @return Тензор, умноженный на число (например, на плотность)
+     */
+    public InertiaTensor multiply(double k) {
+        return new InertiaTensor(xx * k, yy * k, zz * k, xy * k, xz * k, yz * k);
+    }
+
+    /**
+     * @param axis направление оси, проходящей через начало отсчета тензора
+     * @return Момент инерции относительно оси
+     */
+    public double getMoment(Vector3D axis) {
+        double length2 = axis.x * axis.x + axis.y * axis.y + axis.z * axis.z;
+        if (length2 == 0d) return (xx + yy + zz) / 3d;
+        return (axis.x * (xx * axis.x + xy * axis.y + xz * axis.z)
+                + axis.y * (xy * axis.x + yy * axis.y + yz * axis.z)
+                + axis.z * (xz * axis.x + yz * axis.y + zz * axis.z)) / length2;
+    }
+
+    /**
+     * @return Строковое представление тензора
+     */
+    @Override
+    public String toString() {
+        return "InertiaTensor{" +
+                "xx=" + xx +
+                ", yy=" + yy +
+                ", zz=" + zz +
+                ", xy=" + xy +
+                ", xz=" + xz +
+                ", yz=" + yz +
+                '}';
+    }
+}
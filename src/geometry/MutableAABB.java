@@ -0,0 +1,98 @@
+package geometry;
+
+import geometry.objects3D.Point3D;
+
+/**
+ * Изменяемая коробка. Ее создает и пересчитывает на месте владелец (например, тело для своих текущей, будущей
+ * и охватывающей коробок), а остальным она отдается как {@link AABB}, только для чтения
+ */
+public class MutableAABB extends AABB {
+
+    /**
+     * Конструктор пустой коробки
+     */
+    public MutableAABB() {
+        super();
+    }
+
+    /**
+     * Метод, делающий коробку пустой
+     */
+    @Override
+    public void clear() {
+        super.clear();
+    }
+
+    /**
+     * Метод, задающий коробку по границам
+     * @param minX минимальная координата по Ox
+     * @param minY минимальная координата по Oy
+     * @param minZ минимальная координата по Oz
+     * @param maxX максимальная координата по Ox
+     * @param maxY максимальная координата по Oy
+     * @param maxZ максимальная координата по Oz
+     */
+    @Override
+    public void set(double minX, double minY, double minZ, double maxX, double maxY, double maxZ) {
+        super.set(minX, minY, minZ, maxX, maxY, maxZ);
+    }
+
+    /**
+     * Метод, копирующий границы другой коробки
+     * @param box коробка
+     */
+    @Override
+    public void set(AABB box) {
+        super.set(box);
+    }
+
+    /**
+     * Метод, задающий коробку, описанную вокруг шара
+     * @param x координата центра по Ox
+     * @param y координата центра по Oy
+     * @param z координата центра по Oz
+     * @param r радиус
+     */
+    @Override
+    public void setSphere(double x, double y, double z, double r) {
+        super.setSphere(x, y, z, r);
+    }
+
+    /**
+     * Метод, задающий коробку по набору точек
+     * @param coordinates координаты точек подряд (по три числа на точку)
+     */
+    @Override
+    public void setPoints(double[] coordinates) {
+        super.setPoints(coordinates);
+    }
+
+    /**
+     * Метод, расширяющий коробку так, чтобы она содержала точку
+     * @param x координата точки по Ox
+     * @param y координата точки по Oy
+     * @param z координата точки по Oz
+     */
+    @Override
+    public void include(double x, double y, double z) {
+        super.include(x, y, z);
+    }
+
+    /**
+     * Метод, расширяющий коробку так, чтобы она содержала точку
+     * @param point точка
+     */
+    @Override
+    public void include(Point3D point) {
+        super.include(point);
+    }
+
+    /**
+     * Метод, расширяющий коробку так, чтобы она содержала другую
+     * @param box коробка
+     */
+    @Override
+    public void include(AABB box) {
+        super.include(box);
+    }
+}
@@ -1,5 +1,6 @@
 package geometry;
 
+import geometry.objects.IndexedMesh;
 import geometry.objects.Shape;
 import geometry.objects.Tetrahedron;
 import geometry.objects.Triangle;
@@ -88,6 +89,19 @@ public class PhysicalPolyhedronBuilder {
         return new Point3D(radVector.x, radVector.y, radVector.z);
     }
 
+    /**
+     * @return Тензор инерции многогранника единичной плотности относительно центра масс в начальном положении.
+     * Считается точно как сумма тензоров тетраэдров разбиения
+     */
+    public InertiaTensor getInertiaTensor(){
+        Point3D centre = getCentreOfMass();
+        InertiaTensor tensor = InertiaTensor.ZERO;
+        for (Tetrahedron tetrahedron : tetrahedrons)
+            tensor = tensor.add(tetrahedron.getInertiaTensor(centre));
+
+        return tensor;
+    }
+
     /**
      * @return Вершина многогранника
      */
@@ -101,4 +115,11 @@ public class PhysicalPolyhedronBuilder {
     public Set<Triangle> getTriangles() {
         return triangles;
     }
+
+    /**
+     * @return Индексированная сетка многогранника с координатами вершин относительно центра масс
+     */
+    public IndexedMesh getMesh() {
+        return new IndexedMesh(points, triangles, getCentreOfMass());
+    }
 }
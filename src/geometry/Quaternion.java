@@ -0,0 +1,132 @@
+package geometry;
+
+import geometry.objects3D.Point3D;
+import geometry.objects3D.Vector3D;
+
+/**
+ * Единичный кватернион, задающий ориентацию (поворот) тела
+ */
+public final class Quaternion {
+
+    public final static Quaternion IDENTITY = new Quaternion(1, 0, 0, 0);
+
+    public final double w, x, y, z;
+
+    /**
+     * Конструктор по компонентам
+     * @param w скалярная часть
+     * @param x компонента по Ox
+     * @param y компонента по Oy
+     * @param z компонента по Oz
+     */
+    public Quaternion(double w, double x, double y, double z) {
+        this.w = w;
+        this.x = x;
+        this.y = y;
+        this.z = z;
+    }
+
+    /**
+     * @param rotation вектор поворота (ось поворота, длина - угол в радианах)
+     * @return Кватернион поворота на данный вектор
+     */
+    public static Quaternion fromRotationVector(Vector3D rotation) {
+        return fromRotationVector(rotation.x, rotation.y, rotation.z);
+    }
+
+    /**
+     * @param rx компонента вектора поворота по Ox
+     * @param ry компонента вектора поворота по Oy
+     * @param rz компонента вектора поворота по Oz
+     * @return Кватернион поворота на данный вектор
+     */
+    public static Quaternion fromRotationVector(double rx, double ry, double rz) {
+        double angle = Math.sqrt(rx * rx + ry * ry + rz * rz);
+        if (angle == 0d) return IDENTITY;
+        double k = Math.sin(angle / 2d) / angle;
+        return new Quaternion(Math.cos(angle / 2d), rx * k, ry * k, rz * k);
+    }
+
+    /**
+     * @param q другой кватернион
+     * @return Произведение кватернионов (сначала поворот <b>q</b>, затем данный)
+     */
+    public Quaternion multiply(Quaternion q) {
+        return new Quaternion(w * q.w - x * q.x - y * q.y - z * q.z,
+                w * q.x + x * q.w + y * q.z - z * q.y,
+                w * q.y - x * q.z + y * q.w + z * q.x,
+                w * q.z + x * q.y - y * q.x + z * q.w);
+    }
+
+    /**
+     * @return Сопряженный кватернион (обратный поворот)
+     */
+    public Quaternion conjugate() {
+        return new Quaternion(w, -x, -y, -z);
+    }
+
+    /**
+     * @return Кватернион, приведенный к единичной длине
+     */
+    public Quaternion normalize() {
+        double length = Math.sqrt(w * w + x * x + y * y + z * z);
+        if (length == 0d) return IDENTITY;
+        return new Quaternion(w / length, x / length, y / length, z / length);
+    }
+
+    /**
+     * @return Вектор поворота (ось поворота, длина - угол в радианах), соответствующий кватерниону
+     */
+    public Vector3D toRotationVector() {
+        double sign = w < 0 ? -1d : 1d;
+        double sin = Math.sqrt(x * x + y * y + z * z);
+        if (sin == 0d) return new Vector3D(0, 0, 0);
+        double angle = 2d * Math.atan2(sin, sign * w);
+        double k = sign * angle / sin;
+        return new Vector3D(x * k, y * k, z * k);
+    }
+
+    /**
+     * @param vector вектор
+     * @return Вектор, повернутый данным кватернионом
+     */
+    public Vector3D rotate(Vector3D vector) {
+        double tx = 2d * (y * vector.z - z * vector.y);
+        double ty = 2d * (z * vector.x - x * vector.z);
+        double tz = 2d * (x * vector.y - y * vector.x);
+        return new Vector3D(vector.x + w * tx + y * tz - z * ty,
+                vector.y + w * ty + z * tx - x * tz,
+                vector.z + w * tz + x * ty - y * tx);
+    }
+
+    /**
+     * Метод, поворачивающий набор векторов и смещающий их в данную точку без создания промежуточных объектов
+     * @param vectors координаты векторов подряд (по три числа на вектор)
+     * @param shift точка, в которую переносится начало векторов
+     * @param result массив для координат получившихся точек (той же длины, может совпадать с <b>vectors</b>)
+     */
+    public void rotate(double[] vectors, Point3D shift, double[] result) {
+        for (int i = 0; i < vectors.length; i += 3) {
+            double vx = vectors[i], vy = vectors[i + 1], vz = vectors[i + 2];
+            double tx = 2d * (y * vz - z * vy);
+            double ty = 2d * (z * vx - x * vz);
+            double tz = 2d * (x * vy - y * vx);
+            result[i] = shift.x + vx + w * tx + y * tz - z * ty;
+            result[i + 1] = shift.y + vy + w * ty + z * tx - x * tz;
+            result[i + 2] = shift.z + vz + w * tz + x * ty - y * tx;
+        }
+    }
+
+    /**
+     * @return Строковое представление кватерниона
+     */
+    @Override
+    public String toString() {
+        return "Quaternion{" +
+                "w=" + w +
+                ", x=" + x +
+                ", y=" + y +
+                ", z=" + z +
+                '}';
+    }
+}
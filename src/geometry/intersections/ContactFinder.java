@@ -0,0 +1,12 @@
+package geometry.intersections;
+
+import limiters.Intersectional;
+
+/**
+ * Интерфейс, предоставляющий метод для поиска контактов двух объектов {@link limiters.Intersectional}
+ */
+public interface ContactFinder {
+
+    void findContacts(Intersectional thing1, Intersectional thing2, ContactManifold manifold);
+
+}
@@ -0,0 +1,183 @@
+package geometry.intersections;
+
+import geometry.objects3D.Point3D;
+import geometry.objects3D.Vector3D;
+
+import java.util.Arrays;
+
+/**
+ * Набор контактов пары объектов, найденный узкой фазой за один проход (см {@link IntersectionalPair#getContactManifold(ContactManifold)}). <br>
+ * Хранит две части: контакты в будущем положении (по ним считаются импульсы) и проникновение в текущем положении
+ * (по нему объекты выталкиваются друг из друга). Все нормали направлены от первого объекта пары ко второму. <br>
+ * Объект изменяемый и переиспользуется между парами: данные хранятся в примитивных массивах, которые только дополняются
+ */
+public final class ContactManifold {
+
+    private final static int STRIDE = 3;
+
+    private boolean touching;
+    private double[] points1;
+    private double[] points2;
+    private double[] normals;
+    private int count;
+
+    private boolean penetrating;
+    private double nx, ny, nz;
+    private double depth;
+
+    {
+        points1 = new double[4 * STRIDE];
+        points2 = new double[4 * STRIDE];
+        normals = new double[4 * STRIDE];
+    }
+
+    /**
+     * Метод, очищающий набор перед проверкой новой пары
+     */
+    public void clear() {
+        touching = false;
+        count = 0;
+        penetrating = false;
+        depth = 0;
+    }
+
+    /**
+     * Метод, отмечающий, что объекты касаются в будущем положении
+     */
+    void setTouching() {
+        touching = true;
+    }
+
+    /**
+     * Метод, добавляющий контакт в будущем положении
+     * @param x1 координата точки первого объекта по Ox
+     * @param y1 координата точки первого объекта по Oy
+     * @param z1 координата точки первого объекта по Oz
+     * @param x2 координата точки второго объекта по Ox
+     * @param y2 координата точки второго объекта по Oy
+     * @param z2 координата точки второго объекта по Oz
+     * @param nx компонента единичной нормали контакта по Ox
+     * @param ny компонента единичной нормали контакта по Oy
+     * @param nz компонента единичной нормали контакта по Oz
+     */
+    void addContact(double x1, double y1, double z1, double x2, double y2, double z2, double nx, double ny, double nz) {
+        if (count * STRIDE == normals.length) {
+            points1 = Arrays.copyOf(points1, normals.length * 2);
+            points2 = Arrays.copyOf(points2, normals.length * 2);
+            normals = Arrays.copyOf(normals, normals.length * 2);
+        }
+        int offset = count++ * STRIDE;
+        points1[offset] = x1;
+        points1[offset + 1] = y1;
+        points1[offset + 2] = z1;
+        points2[offset] = x2;
+        points2[offset + 1] = y2;
+        points2[offset + 2] = z2;
+        normals[offset] = nx;
+        normals[offset + 1] = ny;
+        normals[offset + 2] = nz;
+    }
+
+    /**
+     * @param nx компонента единичной нормали по Ox
+     * @param ny компонента единичной нормали по Oy
+     * @param nz компонента единичной нормали по Oz
+     * @param cos минимальный косинус угла между нормалями, при котором они считаются совпадающими
+     * @return Есть ли уже контакт с такой нормалью
+     */
+    boolean hasNormal(double nx, double ny, double nz, double cos) {
+        for (int offset = 0; offset < count * STRIDE; offset += STRIDE)
+            if (normals[offset] * nx + normals[offset + 1] * ny + normals[offset + 2] * nz >= cos)
+                return true;
+        return false;
+    }
+
+    /**
+     * Метод, записывающий проникновение в текущем положении
+     * @param nx компонента единичной нормали по Ox
+     * @param ny компонента единичной нормали по Oy
+     * @param nz компонента единичной нормали по Oz
+     * @param depth глубина проникновения
+     */
+    void setPenetration(double nx, double ny, double nz, double depth) {
+        penetrating = true;
+        this.nx = nx;
+        this.ny = ny;
+        this.nz = nz;
+        this.depth = depth;
+    }
+
+    /**
+     * Метод, меняющий объекты пары местами: точки первого и второго объекта меняются, нормали разворачиваются
+     */
+    public void swap() {
+        double[] points = points1;
+        points1 = points2;
+        points2 = points;
+        for (int i = 0; i < count * STRIDE; i++)
+            normals[i] = -normals[i];
+        nx = -nx;
+        ny = -ny;
+        nz = -nz;
+    }
+
+    /**
+     * @return Касаются ли объекты в будущем положении (нужно ли считать импульсы)
+     */
+    public boolean isTouching() {
+        return touching;
+    }
+
+    /**
+     * @return Количество контактов в будущем положении
+     */
+    public int getContactsCount() {
+        return count;
+    }
+
+    /**
+     * @param index номер контакта
+     * @return Точка контакта на первом объекте
+     */
+    public Point3D getPoint1(int index) {
+        return new Point3D(points1[index * STRIDE], points1[index * STRIDE + 1], points1[index * STRIDE + 2]);
+    }
+
+    /**
+     * @param index номер контакта
+     * @return Точка контакта на втором объекте
+     */
+    public Point3D getPoint2(int index) {
+        return new Point3D(points2[index * STRIDE], points2[index * STRIDE + 1], points2[index * STRIDE + 2]);
+    }
+
+    /**
+     * @param index номер контакта
+     * @return Единичная нормаль контакта, направленная от первого объекта ко второму
+     */
+    public Vector3D getNormal(int index) {
+        return new Vector3D(normals[index * STRIDE], normals[index * STRIDE + 1], normals[index * STRIDE + 2]);
+    }
+
+    /**
+     * @return Пересекаются ли объекты в текущем положении (нужно ли выталкивать)
+     */
+    public boolean isPenetrating() {
+        return penetrating;
+    }
+
+    /**
+     * @return Глубина проникновения в текущем положении
+     */
+    public double getDepth() {
+        return depth;
+    }
+
+    /**
+     * @return Единичная нормаль проникновения, направленная от первого объекта ко второму: сдвиг первого
+     * на -normal * depth или второго на normal * depth разводит объекты
+     */
+    public Vector3D getPenetrationNormal() {
+        return new Vector3D(nx, ny, nz);
+    }
+}
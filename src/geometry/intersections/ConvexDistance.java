@@ -0,0 +1,313 @@
+package geometry.intersections;
+
+/**
+ * Расстояние между выпуклыми оболочками двух наборов точек алгоритмом GJK (в варианте поиска ближайшей
+ * к началу координат точки разности Минковского). <br>
+ * Кроме расстояния запоминаются ближайшие точки оболочек в виде весов при вершинах, поэтому ту же точку
+ * можно получить и для другого положения тех же вершин. Объект хранит рабочее состояние и не разделяется между потоками
+ */
+final class ConvexDistance {
+
+    private final static int MAX_ITERATIONS = 64;
+    /**
+     * Относительное приращение, меньше которого GJK считается сошедшимся
+     */
+    private final static double RELATIVE_TOLERANCE = 1e-10;
+
+    private final double[] first;
+    private final double[] second;
+
+    private final double[] wx, wy, wz;
+    private final int[] indicesFirst;
+    private final int[] indicesSecond;
+    private final double[] weights;
+    private int size;
+
+    private final double[] bx, by, bz;
+    private final int[] bFirst;
+    private final int[] bSecond;
+    private final double[] bWeights;
+    private int bSize;
+    private double vx, vy, vz;
+
+    {
+        wx = new double[4];
+        wy = new double[4];
+        wz = new double[4];
+        indicesFirst = new int[4];
+        indicesSecond = new int[4];
+        weights = new double[4];
+        bx = new double[4];
+        by = new double[4];
+        bz = new double[4];
+        bFirst = new int[4];
+        bSecond = new int[4];
+        bWeights = new double[4];
+    }
+
+    /**
+     * Конструктор
+     * @param first координаты вершин первого набора подряд (по три числа на вершину)
+     * @param second координаты вершин второго набора подряд
+     */
+    ConvexDistance(double[] first, double[] second) {
+        this.first = first;
+        this.second = second;
+    }
+
+    /**
+     * @return Расстояние между выпуклыми оболочками наборов (0, если они пересекаются)
+     */
+    double compute() {
+        size = 1;
+        indicesFirst[0] = 0;
+        indicesSecond[0] = 0;
+        weights[0] = 1d;
+        wx[0] = first[0] - second[0];
+        wy[0] = first[1] - second[1];
+        wz[0] = first[2] - second[2];
+        vx = wx[0];
+        vy = wy[0];
+        vz = wz[0];
+
+        for (int iteration = 0; iteration < MAX_ITERATIONS; iteration++) {
+            double vv = vx * vx + vy * vy + vz * vz;
+            if (vv == 0d) return 0d;
+            int a = support(first, -vx, -vy, -vz);
+            int b = support(second, vx, vy, vz);
+            if (contains(a, b)) break;
+            double px = first[a] - second[b], py = first[a + 1] - second[b + 1], pz = first[a + 2] - second[b + 2];
+            if (vv - (vx * px + vy * py + vz * pz) <= RELATIVE_TOLERANCE * vv) break;
+
+            wx[size] = px;
+            wy[size] = py;
+            wz[size] = pz;
+            indicesFirst[size] = a / 3;
+            indicesSecond[size] = b / 3;
+            size++;
+            if (!closest()) return 0d;
+            if (vx * vx + vy * vy + vz * vz >= vv) break;
+        }
+        return Math.sqrt(vx * vx + vy * vy + vz * vz);
+    }
+
+    /**
+     * @param vertices координаты вершин того же набора, что и первый (возможно, в другом положении)
+     * @param result массив для трех координат ближайшей точки первой оболочки
+     */
+    void getFirstPoint(double[] vertices, double[] result) {
+        getPoint(vertices, indicesFirst, result);
+    }
+
+    /**
+     * @param vertices координаты вершин того же набора, что и второй (возможно, в другом положении)
+     * @param result массив для трех координат ближайшей точки второй оболочки
+     */
+    void getSecondPoint(double[] vertices, double[] result) {
+        getPoint(vertices, indicesSecond, result);
+    }
+
+    private void getPoint(double[] vertices, int[] indices, double[] result) {
+        result[0] = result[1] = result[2] = 0d;
+        for (int i = 0; i < size; i++) {
+            int offset = indices[i] * 3;
+            result[0] += vertices[offset] * weights[i];
+            result[1] += vertices[offset + 1] * weights[i];
+            result[2] += vertices[offset + 2] * weights[i];
+        }
+    }
+
+    /**
+     * @return Смещение (в массиве координат) вершины, дальше всех выдвинутой в данном направлении
+     */
+    private static int support(double[] vertices, double dx, double dy, double dz) {
+        int best = 0;
+        double max = vertices[0] * dx + vertices[1] * dy + vertices[2] * dz;
+        for (int i = 3; i < vertices.length; i += 3) {
+            double projection = vertices[i] * dx + vertices[i + 1] * dy + vertices[i + 2] * dz;
+            if (projection > max) {
+                max = projection;
+                best = i;
+            }
+        }
+        return best;
+    }
+
+    private boolean contains(int a, int b) {
+        for (int i = 0; i < size; i++)
+            if (indicesFirst[i] == a / 3 && indicesSecond[i] == b / 3)
+                return true;
+        return false;
+    }
+
+    /**
+     * Метод, заменяющий симплекс его частью, ближайшей к началу координат, и находящий ближайшую точку
+     * @return false, если начало координат внутри симплекса (оболочки пересекаются)
+     */
+    private boolean closest() {
+        bSize = 0;
+        switch (size) {
+            case 2:
+                segment(0, 1);
+                break;
+            case 3:
+                triangle(0, 1, 2);
+                break;
+            default:
+                if (!tetrahedron()) return false;
+        }
+        for (int i = 0; i < bSize; i++) {
+            wx[i] = bx[i];
+            wy[i] = by[i];
+            wz[i] = bz[i];
+            indicesFirst[i] = bFirst[i];
+            indicesSecond[i] = bSecond[i];
+            weights[i] = bWeights[i];
+        }
+        size = bSize;
+        vx = vy = vz = 0d;
+        for (int i = 0; i < size; i++) {
+            vx += wx[i] * weights[i];
+            vy += wy[i] * weights[i];
+            vz += wz[i] * weights[i];
+        }
+        return true;
+    }
+
+    private void keep(int i, double weight) {
+        bx[bSize] = wx[i];
+        by[bSize] = wy[i];
+        bz[bSize] = wz[i];
+        bFirst[bSize] = indicesFirst[i];
+        bSecond[bSize] = indicesSecond[i];
+        bWeights[bSize++] = weight;
+    }
+
+    private void segment(int a, int b) {
+        double abx = wx[b] - wx[a], aby = wy[b] - wy[a], abz = wz[b] - wz[a];
+        double length = abx * abx + aby * aby + abz * abz;
+        double t = length == 0d ? 0d : -(wx[a] * abx + wy[a] * aby + wz[a] * abz) / length;
+        if (t <= 0d) {
+            keep(a, 1d);
+        } else if (t >= 1d) {
+            keep(b, 1d);
+        } else {
+            keep(a, 1d - t);
+            keep(b, t);
+        }
+    }
+
+    /**
+     * Ближайшая к началу координат точка треугольника (по областям Вороного, как в {@link geometry.objects.Triangle})
+     */
+    private void triangle(int a, int b, int c) {
+        double abx = wx[b] - wx[a], aby = wy[b] - wy[a], abz = wz[b] - wz[a];
+        double acx = wx[c] - wx[a], acy = wy[c] - wy[a], acz = wz[c] - wz[a];
+        double d1 = -(abx * wx[a] + aby * wy[a] + abz * wz[a]);
+        double d2 = -(acx * wx[a] + acy * wy[a] + acz * wz[a]);
+        if (d1 <= 0d && d2 <= 0d) {
+            keep(a, 1d);
+            return;
+        }
+        double d3 = -(abx * wx[b] + aby * wy[b] + abz * wz[b]);
+        double d4 = -(acx * wx[b] + acy * wy[b] + acz * wz[b]);
+        if (d3 >= 0d && d4 <= d3) {
+            keep(b, 1d);
+            return;
+        }
+        double vc = d1 * d4 - d3 * d2;
+        if (vc <= 0d && d1 >= 0d && d3 <= 0d) {
+            double v = d1 / (d1 - d3);
+            keep(a, 1d - v);
+            keep(b, v);
+            return;
+        }
+        double d5 = -(abx * wx[c] + aby * wy[c] + abz * wz[c]);
+        double d6 = -(acx * wx[c] + acy * wy[c] + acz * wz[c]);
+        if (d6 >= 0d && d5 <= d6) {
+            keep(c, 1d);
+            return;
+        }
+        double vb = d5 * d2 - d1 * d6;
+        if (vb <= 0d && d2 >= 0d && d6 <= 0d) {
+            double w = d2 / (d2 - d6);
+            keep(a, 1d - w);
+            keep(c, w);
+            return;
+        }
+        double va = d3 * d6 - d5 * d4;
+        if (va <= 0d && d4 - d3 >= 0d && d5 - d6 >= 0d) {
+            double w = (d4 - d3) / ((d4 - d3) + (d5 - d6));
+            keep(b, 1d - w);
+            keep(c, w);
+            return;
+        }
+        double denominator = va + vb + vc;
+        if (denominator == 0d) {
+            segment(a, b);
+            return;
+        }
+        double v = vb / denominator, w = vc / denominator;
+        keep(a, 1d - v - w);
+        keep(b, v);
+        keep(c, w);
+    }
+
+    /**
+     * Ближайшая к началу координат точка тетраэдра: берется лучшая из граней, с внешней стороны которых лежит начало
+     * @return false, если начало координат внутри тетраэдра
+     */
+    private boolean tetrahedron() {
+        int[][] faces = {{0, 1, 2, 3}, {0, 2, 3, 1}, {0, 3, 1, 2}, {1, 3, 2, 0}};
+        double best = Double.MAX_VALUE;
+        boolean outside = false;
+        double[] x = new double[4], y = new double[4], z = new double[4], weight = new double[4];
+        int[] first = new int[4], second = new int[4];
+        int count = 0;
+        for (int[] face : faces) {
+            if (!isOriginOutside(face[0], face[1], face[2], face[3])) continue;
+            outside = true;
+            bSize = 0;
+            triangle(face[0], face[1], face[2]);
+            double px = 0, py = 0, pz = 0;
+            for (int i = 0; i < bSize; i++) {
+                px += bx[i] * bWeights[i];
+                py += by[i] * bWeights[i];
+                pz += bz[i] * bWeights[i];
+            }
+            double distance = px * px + py * py + pz * pz;
+            if (distance < best) {
+                best = distance;
+                count = bSize;
+                System.arraycopy(bx, 0, x, 0, bSize);
+                System.arraycopy(by, 0, y, 0, bSize);
+                System.arraycopy(bz, 0, z, 0, bSize);
+                System.arraycopy(bFirst, 0, first, 0, bSize);
+                System.arraycopy(bSecond, 0, second, 0, bSize);
+                System.arraycopy(bWeights, 0, weight, 0, bSize);
+            }
+        }
+        if (!outside) return false;
+        bSize = count;
+        System.arraycopy(x, 0, bx, 0, count);
+        System.arraycopy(y, 0, by, 0, count);
+        System.arraycopy(z, 0, bz, 0, count);
+        System.arraycopy(first, 0, bFirst, 0, count);
+        System.arraycopy(second, 0, bSecond, 0, count);
+        System.arraycopy(weight, 0, bWeights, 0, count);
+        return true;
+    }
+
+    /**
+     * @return Лежит ли начало координат по другую сторону от плоскости abc, чем точка d
+     * (для вырожденного тетраэдра грань проверяется всегда)
+     */
+    private boolean isOriginOutside(int a, int b, int c, int d) {
+        double abx = wx[b] - wx[a], aby = wy[b] - wy[a], abz = wz[b] - wz[a];
+        double acx = wx[c] - wx[a], acy = wy[c] - wy[a], acz = wz[c] - wz[a];
+        double nx = aby * acz - abz * acy, ny = abz * acx - abx * acz, nz = abx * acy - aby * acx;
+        double signOrigin = -(nx * wx[a] + ny * wy[a] + nz * wz[a]);
+        double signD = nx * (wx[d] - wx[a]) + ny * (wy[d] - wy[a]) + nz * (wz[d] - wz[a]);
+        return signD == 0d || signOrigin * signD < 0d;
+    }
+}
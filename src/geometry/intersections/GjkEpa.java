@@ -0,0 +1,497 @@
+package geometry.intersections;
+
+import geometry.objects3D.Point3D;
+import geometry.objects3D.Vector3D;
+
+import java.util.Arrays;
+
+/**
+ * Проверка пересечения выпуклых многогранников алгоритмом GJK и поиск глубины, нормали и точек контакта алгоритмом EPA. <br>
+ * Оба алгоритма работают с разностью Минковского многогранников (первый минус второй), не строя ее:
+ * опорная точка разности в направлении находится по вершинам многогранников за O(V), поэтому проверка пары
+ * стоит несколько десятков проходов по вершинам вместо перебора пар ребро - грань. <br>
+ * Многогранники задаются массивами координат вершин (по три числа на вершину). Объект хранит рабочее состояние
+ * одного запроса и не разделяется между потоками
+ */
+public final class GjkEpa {
+
+    private final static int MAX_ITERATIONS = 64;
+    /**
+     * Точность, с которой EPA считает найденную грань разности ближайшей к началу координат
+     */
+    private final static double EPA_TOLERANCE = 1e-4;
+    private final static double DEGENERACY = 1e-9;
+
+    private final double[] first;
+    private final double[] second;
+
+    private final int[] simplexFirst;
+    private final int[] simplexSecond;
+    private int simplexSize;
+    private double dx, dy, dz;
+
+    private int[] verticesFirst;
+    private int[] verticesSecond;
+    private int verticesCount;
+    private int[] faces;
+    private double[] faceNormals;
+    private double[] faceDistances;
+    private int facesCount;
+    private int[] edges;
+    private int edgesCount;
+
+    {
+        simplexFirst = new int[4];
+        simplexSecond = new int[4];
+    }
+
+    /**
+     * Конструктор
+     * @param first координаты вершин первого многогранника
+     * @param second координаты вершин второго многогранника
+     */
+    private GjkEpa(double[] first, double[] second) {
+        this.first = first;
+        this.second = second;
+    }
+
+    /**
+     * @param first координаты вершин первого многогранника
+     * @param second координаты вершин второго многогранника
+     * @return Пересекаются ли многогранники (касание считается пересечением)
+     */
+    public static boolean areIntersected(double[] first, double[] second) {
+        return new GjkEpa(first, second).gjk();
+    }
+
+    /**
+     * @param first координаты вершин первого многогранника
+     * @param second координаты вершин второго многогранника
+     * @return Пересечение многогранников с нормалью, глубиной и точками контакта
+     */
+    public static PolyhedraIntersection getIntersection(double[] first, double[] second) {
+        GjkEpa query = new GjkEpa(first, second);
+        if (!query.gjk() || !query.completeSimplex())
+            return new PolyhedraIntersection(false);
+        return query.epa();
+    }
+
+    /**
+     * Алгоритм GJK: строит в разности Минковского симплекс, приближающийся к началу координат
+     * @return Содержит ли разность начало координат
+     */
+    private boolean gjk() {
+        dx = first[0] - second[0];
+        dy = first[1] - second[1];
+        dz = first[2] - second[2];
+        if (dx == 0d && dy == 0d && dz == 0d) dx = 1d;
+
+        simplexSize = 0;
+        pushSupport(dx, dy, dz);
+        dx = -x(0);
+        dy = -y(0);
+        dz = -z(0);
+
+        for (int iteration = 0; iteration < MAX_ITERATIONS; iteration++) {
+            if (dx * dx + dy * dy + dz * dz < DEGENERACY * DEGENERACY) return true;
+            pushSupport(dx, dy, dz);
+            int a = simplexSize - 1;
+            if (x(a) * dx + y(a) * dy + z(a) * dz < 0d) return false;
+            if (updateSimplex()) return true;
+        }
+        return true;
+    }
+
+    /**
+     * Метод, оставляющий в симплексе ближайшую к началу координат его часть и задающий новое направление поиска
+     * (самая новая точка симплекса - последняя)
+     * @return Содержит ли симплекс начало координат
+     */
+    private boolean updateSimplex() {
+        switch (simplexSize) {
+            case 2:
+                return updateLine();
+            case 3:
+                return updateTriangle();
+            default:
+                return updateTetrahedron();
+        }
+    }
+
+    private boolean updateLine() {
+        double ax = x(1), ay = y(1), az = z(1);
+        double abx = x(0) - ax, aby = y(0) - ay, abz = z(0) - az;
+        if (abx * -ax + aby * -ay + abz * -az > 0d) {
+            towardsSegment(abx, aby, abz, ax, ay, az);
+            return dx * dx + dy * dy + dz * dz < DEGENERACY * DEGENERACY;
+        }
+        keep(1);
+        dx = -ax;
+        dy = -ay;
+        dz = -az;
+        return false;
+    }
+
+    private boolean updateTriangle() {
+        double ax = x(2), ay = y(2), az = z(2);
+        double abx = x(1) - ax, aby = y(1) - ay, abz = z(1) - az;
+        double acx = x(0) - ax, acy = y(0) - ay, acz = z(0) - az;
+        double nx = aby * acz - abz * acy, ny = abz * acx - abx * acz, nz = abx * acy - aby * acx;
+
+        double ex = ny * acz - nz * acy, ey = nz * acx - nx * acz, ez = nx * acy - ny * acx;
+        if (ex * -ax + ey * -ay + ez * -az > 0d) {
+            if (acx * -ax + acy * -ay + acz * -az > 0d) {
+                keep(0, 2);
+                towardsSegment(acx, acy, acz, ax, ay, az);
+                return false;
+            }
+            return towardsEdge(abx, aby, abz, ax, ay, az);
+        }
+
+        ex = aby * nz - abz * ny;
+        ey = abz * nx - abx * nz;
+        ez = abx * ny - aby * nx;
+        if (ex * -ax + ey * -ay + ez * -az > 0d)
+            return towardsEdge(abx, aby, abz, ax, ay, az);
+
+        double side = nx * -ax + ny * -ay + nz * -az;
+        if (Math.abs(side) < DEGENERACY * Math.sqrt(nx * nx + ny * ny + nz * nz)) return true;
+        if (side < 0d) {
+            keep(1, 0, 2);
+            nx = -nx;
+            ny = -ny;
+            nz = -nz;
+        }
+        dx = nx;
+        dy = ny;
+        dz = nz;
+        return false;
+    }
+
+    /**
+     * Метод, переходящий к ребру ab треугольника (или к одной точке a)
+     */
+    private boolean towardsEdge(double abx, double aby, double abz, double ax, double ay, double az) {
+        if (abx * -ax + aby * -ay + abz * -az > 0d) {
+            keep(1, 2);
+            towardsSegment(abx, aby, abz, ax, ay, az);
+            return false;
+        }
+        keep(2);
+        dx = -ax;
+        dy = -ay;
+        dz = -az;
+        return false;
+    }
+
+    /**
+     * Метод, задающий направление поиска перпендикулярно отрезку в сторону начала координат
+     */
+    private void towardsSegment(double abx, double aby, double abz, double ax, double ay, double az) {
+        double cx = aby * -az - abz * -ay, cy = abz * -ax - abx * -az, cz = abx * -ay - aby * -ax;
+        dx = cy * abz - cz * aby;
+        dy = cz * abx - cx * abz;
+        dz = cx * aby - cy * abx;
+    }
+
+    private boolean updateTetrahedron() {
+        int a = 3;
+        int[][] triangles = {{2, 1, 0}, {1, 0, 2}, {0, 2, 1}};
+        for (int[] triangle : triangles) {
+            int b = triangle[0], c = triangle[1], opposite = triangle[2];
+            double ax = x(a), ay = y(a), az = z(a);
+            double abx = x(b) - ax, aby = y(b) - ay, abz = z(b) - az;
+            double acx = x(c) - ax, acy = y(c) - ay, acz = z(c) - az;
+            double nx = aby * acz - abz * acy, ny = abz * acx - abx * acz, nz = abx * acy - aby * acx;
+            if (nx * (x(opposite) - ax) + ny * (y(opposite) - ay) + nz * (z(opposite) - az) > 0d) {
+                nx = -nx;
+                ny = -ny;
+                nz = -nz;
+            }
+            if (nx * -ax + ny * -ay + nz * -az > 0d) {
+                keep(c, b, a);
+                return updateTriangle();
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Метод, достраивающий симплекс, на котором остановился GJK, до тетраэдра ненулевого объема
+     * (GJK останавливается раньше, если начало координат лежит на ребре или грани симплекса)
+     * @return Удалось ли достроить симплекс
+     */
+    private boolean completeSimplex() {
+        double[][] axes = {{1, 0, 0}, {-1, 0, 0}, {0, 1, 0}, {0, -1, 0}, {0, 0, 1}, {0, 0, -1}};
+        if (simplexSize == 1)
+            for (double[] axis : axes) {
+                pushSupport(axis[0], axis[1], axis[2]);
+                if (distance2(0, 1) > DEGENERACY) break;
+                simplexSize--;
+            }
+        if (simplexSize == 2) {
+            double lx = x(1) - x(0), ly = y(1) - y(0), lz = z(1) - z(0);
+            for (double[] axis : axes) {
+                double px = ly * axis[2] - lz * axis[1], py = lz * axis[0] - lx * axis[2], pz = lx * axis[1] - ly * axis[0];
+                if (px * px + py * py + pz * pz < DEGENERACY) continue;
+                pushSupport(px, py, pz);
+                double vx = ly * (z(2) - z(0)) - lz * (y(2) - y(0));
+                double vy = lz * (x(2) - x(0)) - lx * (z(2) - z(0));
+                double vz = lx * (y(2) - y(0)) - ly * (x(2) - x(0));
+                if (vx * vx + vy * vy + vz * vz > DEGENERACY) break;
+                simplexSize--;
+            }
+        }
+        if (simplexSize == 3) {
+            double abx = x(1) - x(0), aby = y(1) - y(0), abz = z(1) - z(0);
+            double acx = x(2) - x(0), acy = y(2) - y(0), acz = z(2) - z(0);
+            double nx = aby * acz - abz * acy, ny = abz * acx - abx * acz, nz = abx * acy - aby * acx;
+            for (int sign = 1; sign >= -1; sign -= 2) {
+                pushSupport(sign * nx, sign * ny, sign * nz);
+                if (Math.abs(nx * (x(3) - x(0)) + ny * (y(3) - y(0)) + nz * (z(3) - z(0))) > DEGENERACY) break;
+                simplexSize--;
+            }
+        }
+        return simplexSize == 4;
+    }
+
+    /**
+     * Алгоритм EPA: расширяет тетраэдр внутри разности Минковского, пока не найдет ее ближайшую к началу координат грань
+     * @return Пересечение многогранников
+     */
+    private PolyhedraIntersection epa() {
+        verticesFirst = new int[32];
+        verticesSecond = new int[32];
+        faces = new int[96];
+        faceNormals = new double[96];
+        faceDistances = new double[32];
+        edges = new int[32];
+        verticesCount = 0;
+        facesCount = 0;
+        for (int i = 0; i < 4; i++)
+            addVertex(simplexFirst[i], simplexSecond[i]);
+        addFace(0, 1, 2, 3);
+        addFace(0, 3, 1, 2);
+        addFace(0, 2, 3, 1);
+        addFace(1, 3, 2, 0);
+
+        for (int iteration = 0; iteration < MAX_ITERATIONS; iteration++) {
+            int closest = closestFace();
+
+            double nx = faceNormals[closest * 3], ny = faceNormals[closest * 3 + 1], nz = faceNormals[closest * 3 + 2];
+            int i = support(first, nx, ny, nz), j = support(second, -nx, -ny, -nz);
+            double distance = (first[i * 3] - second[j * 3]) * nx + (first[i * 3 + 1] - second[j * 3 + 1]) * ny
+                    + (first[i * 3 + 2] - second[j * 3 + 2]) * nz;
+            if (distance - faceDistances[closest] < EPA_TOLERANCE) break;
+
+            int p = addVertex(i, j);
+            double visibility = DEGENERACY * (1d + Math.abs(distance));
+            edgesCount = 0;
+            for (int f = 0; f < facesCount; f++) {
+                int v = faces[f * 3];
+                if (faceNormals[f * 3] * (vx(p) - vx(v)) + faceNormals[f * 3 + 1] * (vy(p) - vy(v))
+                        + faceNormals[f * 3 + 2] * (vz(p) - vz(v)) <= visibility) continue;
+                addEdge(faces[f * 3], faces[f * 3 + 1]);
+                addEdge(faces[f * 3 + 1], faces[f * 3 + 2]);
+                addEdge(faces[f * 3 + 2], faces[f * 3]);
+                removeFace(f--);
+            }
+            if (edgesCount == 0) break;
+            for (int e = 0; e < edgesCount; e++)
+                addFace(edges[e * 2], edges[e * 2 + 1], p, -1);
+        }
+
+        return witness(closestFace());
+    }
+
+    /**
+     * @return Номер грани, ближайшей к началу координат
+     */
+    private int closestFace() {
+        int closest = 0;
+        for (int f = 1; f < facesCount; f++)
+            if (faceDistances[f] < faceDistances[closest]) closest = f;
+        return closest;
+    }
+
+    /**
+     * @param face номер ближайшей к началу координат грани разности
+     * @return Пересечение, точки контакта которого восстановлены по барицентрическим координатам проекции
+     * начала координат на грань
+     */
+    private PolyhedraIntersection witness(int face) {
+        if (faceDistances[face] == Double.MAX_VALUE) return new PolyhedraIntersection(false);
+        double nx = faceNormals[face * 3], ny = faceNormals[face * 3 + 1], nz = faceNormals[face * 3 + 2];
+        double depth = Math.max(0d, faceDistances[face]);
+        int a = faces[face * 3], b = faces[face * 3 + 1], c = faces[face * 3 + 2];
+        double px = nx * depth - vx(a), py = ny * depth - vy(a), pz = nz * depth - vz(a);
+        double e0x = vx(b) - vx(a), e0y = vy(b) - vy(a), e0z = vz(b) - vz(a);
+        double e1x = vx(c) - vx(a), e1y = vy(c) - vy(a), e1z = vz(c) - vz(a);
+        double d00 = e0x * e0x + e0y * e0y + e0z * e0z;
+        double d01 = e0x * e1x + e0y * e1y + e0z * e1z;
+        double d11 = e1x * e1x + e1y * e1y + e1z * e1z;
+        double d20 = px * e0x + py * e0y + pz * e0z;
+        double d21 = px * e1x + py * e1y + pz * e1z;
+        double denominator = d00 * d11 - d01 * d01;
+        double v = denominator == 0d ? 0d : (d11 * d20 - d01 * d21) / denominator;
+        double w = denominator == 0d ? 0d : (d00 * d21 - d01 * d20) / denominator;
+        double u = 1d - v - w;
+
+        Point3D point1 = combine(first, verticesFirst, a, b, c, u, v, w);
+        Point3D point2 = combine(second, verticesSecond, a, b, c, u, v, w);
+        return new PolyhedraIntersection(true, new Vector3D(nx, ny, nz), point1, point2, depth);
+    }
+
+    /**
+     * @return Точка многогранника с данными барицентрическими координатами на вершинах грани
+     */
+    private static Point3D combine(double[] coordinates, int[] indices, int a, int b, int c, double u, double v, double w) {
+        int i = indices[a] * 3, j = indices[b] * 3, k = indices[c] * 3;
+        return new Point3D(coordinates[i] * u + coordinates[j] * v + coordinates[k] * w,
+                coordinates[i + 1] * u + coordinates[j + 1] * v + coordinates[k + 1] * w,
+                coordinates[i + 2] * u + coordinates[j + 2] * v + coordinates[k + 2] * w);
+    }
+
+    private int addVertex(int i, int j) {
+        if (verticesCount == verticesFirst.length) {
+            verticesFirst = Arrays.copyOf(verticesFirst, verticesCount * 2);
+            verticesSecond = Arrays.copyOf(verticesSecond, verticesCount * 2);
+        }
+        verticesFirst[verticesCount] = i;
+        verticesSecond[verticesCount] = j;
+        return verticesCount++;
+    }
+
+    /**
+     * Метод, добавляющий грань и считающий ее внешнюю нормаль
+     * @param inner вершина, лежащая внутри многогранника (-1 - порядок вершин грани уже задает внешнюю нормаль)
+     */
+    private void addFace(int a, int b, int c, int inner) {
+        if (facesCount == faceDistances.length) {
+            faces = Arrays.copyOf(faces, facesCount * 6);
+            faceNormals = Arrays.copyOf(faceNormals, facesCount * 6);
+            faceDistances = Arrays.copyOf(faceDistances, facesCount * 2);
+        }
+        double abx = vx(b) - vx(a), aby = vy(b) - vy(a), abz = vz(b) - vz(a);
+        double acx = vx(c) - vx(a), acy = vy(c) - vy(a), acz = vz(c) - vz(a);
+        double nx = aby * acz - abz * acy, ny = abz * acx - abx * acz, nz = abx * acy - aby * acx;
+        if (inner >= 0 && nx * (vx(inner) - vx(a)) + ny * (vy(inner) - vy(a)) + nz * (vz(inner) - vz(a)) > 0d) {
+            int swap = b;
+            b = c;
+            c = swap;
+            nx = -nx;
+            ny = -ny;
+            nz = -nz;
+        }
+        double length = Math.sqrt(nx * nx + ny * ny + nz * nz);
+        int f = facesCount++;
+        faces[f * 3] = a;
+        faces[f * 3 + 1] = b;
+        faces[f * 3 + 2] = c;
+        if (length < DEGENERACY) {
+            faceNormals[f * 3] = faceNormals[f * 3 + 1] = faceNormals[f * 3 + 2] = 0d;
+            faceDistances[f] = Double.MAX_VALUE;
+            return;
+        }
+        faceNormals[f * 3] = nx / length;
+        faceNormals[f * 3 + 1] = ny / length;
+        faceNormals[f * 3 + 2] = nz / length;
+        faceDistances[f] = (nx * vx(a) + ny * vy(a) + nz * vz(a)) / length;
+    }
+
+    /**
+     * Метод, удаляющий грань (на ее место встает последняя)
+     */
+    private void removeFace(int f) {
+        int last = --facesCount;
+        System.arraycopy(faces, last * 3, faces, f * 3, 3);
+        System.arraycopy(faceNormals, last * 3, faceNormals, f * 3, 3);
+        faceDistances[f] = faceDistances[last];
+    }
+
+    /**
+     * Метод, добавляющий ребро удаляемой грани в границу видимой области: ребро, общее для двух удаляемых граней,
+     * встречается второй раз в обратном направлении и из границы убирается
+     */
+    private void addEdge(int a, int b) {
+        for (int e = 0; e < edgesCount; e++)
+            if (edges[e * 2] == b && edges[e * 2 + 1] == a) {
+                int last = --edgesCount;
+                edges[e * 2] = edges[last * 2];
+                edges[e * 2 + 1] = edges[last * 2 + 1];
+                return;
+            }
+        if (edgesCount * 2 == edges.length) edges = Arrays.copyOf(edges, edges.length * 2);
+        edges[edgesCount * 2] = a;
+        edges[edgesCount * 2 + 1] = b;
+        edgesCount++;
+    }
+
+    /**
+     * Метод, добавляющий в симплекс опорную точку разности в данном направлении
+     */
+    private void pushSupport(double x, double y, double z) {
+        simplexFirst[simplexSize] = support(first, x, y, z);
+        simplexSecond[simplexSize] = support(second, -x, -y, -z);
+        simplexSize++;
+    }
+
+    /**
+     * Метод, оставляющий в симплексе данные точки в данном порядке
+     */
+    private void keep(int... indices) {
+        int[] firstIndices = new int[indices.length], secondIndices = new int[indices.length];
+        for (int i = 0; i < indices.length; i++) {
+            firstIndices[i] = simplexFirst[indices[i]];
+            secondIndices[i] = simplexSecond[indices[i]];
+        }
+        System.arraycopy(firstIndices, 0, simplexFirst, 0, indices.length);
+        System.arraycopy(secondIndices, 0, simplexSecond, 0, indices.length);
+        simplexSize = indices.length;
+    }
+
+    /**
+     * @return Номер вершины, самой дальней в данном направлении
+     */
+    private static int support(double[] coordinates, double x, double y, double z) {
+        int best = 0;
+        double bestValue = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < coordinates.length; i += 3) {
+            double value = coordinates[i] * x + coordinates[i + 1] * y + coordinates[i + 2] * z;
+            if (value > bestValue) {
+                bestValue = value;
+                best = i / 3;
+            }
+        }
+        return best;
+    }
+
+    private double distance2(int i, int j) {
+        double ex = x(i) - x(j), ey = y(i) - y(j), ez = z(i) - z(j);
+        return ex * ex + ey * ey + ez * ez;
+    }
+
+    private double x(int i) {
+        return first[simplexFirst[i] * 3] - second[simplexSecond[i] * 3];
+    }
+
+    private double y(int i) {
+        return first[simplexFirst[i] * 3 + 1] - second[simplexSecond[i] * 3 + 1];
+    }
+
+    private double z(int i) {
+        return first[simplexFirst[i] * 3 + 2] - second[simplexSecond[i] * 3 + 2];
+    }
+
+    private double vx(int v) {
+        return first[verticesFirst[v] * 3] - second[verticesSecond[v] * 3];
+    }
+
+    private double vy(int v) {
+        return first[verticesFirst[v] * 3 + 1] - second[verticesSecond[v] * 3 + 1];
+    }
+
+    private double vz(int v) {
+        return first[verticesFirst[v] * 3 + 2] - second[verticesSecond[v] * 3 + 2];
+    }
+}
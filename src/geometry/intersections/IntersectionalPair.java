@@ -2,17 +2,17 @@ package geometry.intersections;
 
 import exceptions.ImpossiblePairException;
 import geometry.AABB;
+import geometry.objects.ClosestPoint;
 import geometry.objects.Segment;
 import geometry.objects.Triangle;
-import geometry.objects3D.Line3D;
-import geometry.objects3D.Plane3D;
 import geometry.objects3D.Point3D;
 import geometry.objects3D.Vector3D;
 import limiters.Intersectional;
+import limiters.ShapeType;
+import physical_objects.AbstractBody;
 import physical_objects.PhysicalPolyhedron;
 import physical_objects.PhysicalSphere;
 import physical_objects.Wall;
-import utils.TripleMap;
 
 /**Класс, реализующий обработку и проверку пересечений между объектами {@link limiters.Intersectional}
  */
@@ -23,7 +23,12 @@ public final class IntersectionalPair<FirstThingType extends Intersectional, Sec
     private final SecondThingType secondThing;
     private final static boolean dynamicCollisionMode = true;
     private final static boolean staticCollisionMode = false;
-    private final static TripleMap<Class, Class, Intersecter> methodsMap;
+    private final static Intersecter[][] methods;
+    private final static ContactFinder[][] finders;
+    /**
+     * Косинус угла, при котором нормали граней выпуклого многогранника считаются одной плоскостью
+     */
+    private final static double SAME_PLANE_COS = 1d - 1e-9;
 
     /**
      *Конструктор, принимающиий предметы, исследуемые на пересечение
@@ -34,37 +39,60 @@ public final class IntersectionalPair<FirstThingType extends Intersectional, Sec
     public IntersectionalPair(FirstThingType firstThing, SecondThingType secondThing) throws ImpossiblePairException {
         this.firstThing = firstThing;
         this.secondThing = secondThing;
-        if (firstThing instanceof Wall && secondThing instanceof Wall)
+        if (firstThing.getShapeType() == ShapeType.WALL && secondThing.getShapeType() == ShapeType.WALL)
             throw new ImpossiblePairException("Trying to check triangle with triangle intersection");
     }
 
-    /*Статический иницализатор, создающий таблицу переходов, содержащую методы для исследования пересчений конкретных пар объектов
+    /*Статический иницализатор, создающий таблицы переходов, содержащие методы для исследования пересчений конкретных пар объектов.
+    Таблицы индексируются видами формы объектов (см {@link ShapeType}), поэтому выбор метода - два обращения к массиву,
+    а наследники объектов (например, гравитационная плита) не требуют отдельных записей
      */
 
     static {
-        methodsMap = new TripleMap<>();
+        int types = ShapeType.values().length;
+        methods = new Intersecter[types][types];
+
+        methods[ShapeType.SPHERE.ordinal()][ShapeType.SPHERE.ordinal()] = IntersectionalPair::sphereToSphere;
+        methods[ShapeType.SPHERE.ordinal()][ShapeType.TRIANGLE.ordinal()] = IntersectionalPair::sphereToTriangle;
+        methods[ShapeType.SPHERE.ordinal()][ShapeType.POLYHEDRON.ordinal()] = IntersectionalPair::sphereToPolyhedron;
 
-        methodsMap.addFirstKey(PhysicalSphere.class);
-        methodsMap.addFirstKey(Triangle.class);
-        methodsMap.addFirstKey(PhysicalPolyhedron.class);
+        methods[ShapeType.TRIANGLE.ordinal()][ShapeType.SPHERE.ordinal()] = IntersectionalPair::sphereToTriangle;
+        methods[ShapeType.TRIANGLE.ordinal()][ShapeType.POLYHEDRON.ordinal()] = IntersectionalPair::polyhedronToTriangle;
 
-        methodsMap.putByFirstKey(PhysicalSphere.class, PhysicalSphere.class, IntersectionalPair::sphereToSphere);
-        methodsMap.putByFirstKey(PhysicalSphere.class, Triangle.class, IntersectionalPair::sphereToTriangle);
-        methodsMap.putByFirstKey(PhysicalSphere.class, PhysicalPolyhedron.class, IntersectionalPair::sphereToPolyhedron);
+        methods[ShapeType.POLYHEDRON.ordinal()][ShapeType.TRIANGLE.ordinal()] = IntersectionalPair::polyhedronToTriangle;
+        methods[ShapeType.POLYHEDRON.ordinal()][ShapeType.SPHERE.ordinal()] = IntersectionalPair::sphereToPolyhedron;
+        methods[ShapeType.POLYHEDRON.ordinal()][ShapeType.POLYHEDRON.ordinal()] = IntersectionalPair::polyhedronToPolyhedron;
 
-        methodsMap.putByFirstKey(Triangle.class, PhysicalSphere.class, IntersectionalPair::sphereToTriangle);
-        methodsMap.putByFirstKey(Triangle.class, PhysicalPolyhedron.class, IntersectionalPair::polyhedronToTriangle);
+        finders = new ContactFinder[types][types];
 
-        methodsMap.putByFirstKey(PhysicalPolyhedron.class, Triangle.class, IntersectionalPair::polyhedronToTriangle);
-        methodsMap.putByFirstKey(PhysicalPolyhedron.class, PhysicalSphere.class, IntersectionalPair::sphereToPolyhedron);
-        methodsMap.putByFirstKey(PhysicalPolyhedron.class, PhysicalPolyhedron.class, IntersectionalPair::polyhedronToPolyhedron);
+        finders[ShapeType.SPHERE.ordinal()][ShapeType.SPHERE.ordinal()] = IntersectionalPair::sphereToSphereContacts;
+        putContacts(ShapeType.SPHERE, ShapeType.WALL, IntersectionalPair::sphereToWallContacts);
+        putContacts(ShapeType.SPHERE, ShapeType.POLYHEDRON, IntersectionalPair::sphereToPolyhedronContacts);
+
+        finders[ShapeType.POLYHEDRON.ordinal()][ShapeType.POLYHEDRON.ordinal()] = IntersectionalPair::polyhedronToPolyhedronContacts;
+        putContacts(ShapeType.POLYHEDRON, ShapeType.WALL, IntersectionalPair::polyhedronToWallContacts);
+    }
+
+    /**
+     * Метод, записывающий в таблицу метод поиска контактов для пары и метод для той же пары в обратном порядке:
+     * контакты ищутся для переставленной пары, затем набор переворачивается
+     * @param first вид первого объекта, для которого задан метод
+     * @param second вид второго объекта
+     * @param finder метод поиска контактов
+     */
+    private static void putContacts(ShapeType first, ShapeType second, ContactFinder finder) {
+        finders[first.ordinal()][second.ordinal()] = finder;
+        finders[second.ordinal()][first.ordinal()] = (thing1, thing2, manifold) -> {
+            finder.findContacts(thing2, thing1, manifold);
+            manifold.swap();
+        };
     }
 
     /**Метод, распределящий все поиски пересечений между объектами типа {@link limiters.Intersectional}, вызывает метод для определенной пары объектов
      */
 
     public boolean areIntersected() {
-        return methodsMap.getElement(firstThing.getClass(), secondThing.getClass()).areIntersected(firstThing, secondThing);
+        return methods[firstThing.getShapeType().ordinal()][secondThing.getShapeType().ordinal()].areIntersected(firstThing, secondThing);
     }
 
     /**@param thing1 многогранник 1
@@ -76,21 +104,11 @@ public final class IntersectionalPair<FirstThingType extends Intersectional, Sec
         PhysicalPolyhedron polyhedron1 = (PhysicalPolyhedron) thing1;
         PhysicalPolyhedron polyhedron2 = (PhysicalPolyhedron) thing2;
 
-        if (!new AABB(polyhedron1, dynamicCollisionMode).isIntersectedWith(new AABB(polyhedron2, dynamicCollisionMode)))
+        if (areBoundingSpheresApart(polyhedron1, polyhedron2, dynamicCollisionMode)
+                || !polyhedron1.getAABB(dynamicCollisionMode).isIntersectedWith(polyhedron2.getAABB(dynamicCollisionMode)))
             return false;
 
-        for (Segment segment : polyhedron1.getSegments(dynamicCollisionMode))
-            for (Triangle triangle : polyhedron2.getTriangles(dynamicCollisionMode))
-                if (triangle.isIntersectedWithSegment(segment))
-                    return true;
-
-        for (Segment segment : polyhedron2.getSegments(dynamicCollisionMode))
-            for (Triangle triangle : polyhedron1.getTriangles(dynamicCollisionMode))
-                if (triangle.isIntersectedWithSegment(segment))
-                    return true;
-
-
-        return false;
+        return GjkEpa.areIntersected(polyhedron1.getVertices(dynamicCollisionMode), polyhedron2.getVertices(dynamicCollisionMode));
     }
 
     /**@param thing1 многогранник или треугольник
@@ -110,7 +128,7 @@ public final class IntersectionalPair<FirstThingType extends Intersectional, Sec
             triangle = (Triangle) thing1;
         }
 
-        if (!new AABB(polyhedron, dynamicCollisionMode).isIntersectedWith(new AABB(triangle)))
+        if (!polyhedron.getAABB(dynamicCollisionMode).isIntersectedWith(triangle.getAABB()))
             return false;
 
         for (Segment segment : polyhedron.getSegments(dynamicCollisionMode))
@@ -137,22 +155,16 @@ public final class IntersectionalPair<FirstThingType extends Intersectional, Sec
             polyhedron = (PhysicalPolyhedron) thing1;
         }
 
-        if (!new AABB(polyhedron, dynamicCollisionMode).isIntersectedWith(new AABB(sphere, dynamicCollisionMode)))
+        if (areBoundingSpheresApart(sphere, polyhedron, dynamicCollisionMode)
+                || !polyhedron.getAABB(dynamicCollisionMode).isIntersectedWith(sphere.getAABB(dynamicCollisionMode)))
             return false;
 
-        boolean intersected = false;
-        for (Triangle triangle : polyhedron.getTriangles(dynamicCollisionMode)) {
-            try {
-                if (new IntersectionalPair<>(sphere, triangle).areIntersected()) {
-                    intersected = true;
-                    break;
-                }
-
-            } catch (ImpossiblePairException e) {
-                e.printStackTrace();
-            }
-        }
-        return intersected;
+        Point3D spherePos = sphere.getPositionOfCentre(dynamicCollisionMode);
+        ClosestPoint closest = new ClosestPoint();
+        for (Triangle triangle : polyhedron.getTriangles(dynamicCollisionMode))
+            if (triangle.getClosestPoint(spherePos.x, spherePos.y, spherePos.z, closest).getDistance() <= sphere.getR())
+                return true;
+        return false;
     }
 
     /**@param thing1 сфера 1
@@ -165,7 +177,7 @@ public final class IntersectionalPair<FirstThingType extends Intersectional, Sec
         PhysicalSphere sphere1 = (PhysicalSphere) thing1;
         PhysicalSphere sphere2 = (PhysicalSphere) thing2;
 
-        if (!new AABB(sphere1, dynamicCollisionMode).isIntersectedWith(new AABB(sphere2, dynamicCollisionMode)))
+        if (!sphere1.getAABB(dynamicCollisionMode).isIntersectedWith(sphere2.getAABB(dynamicCollisionMode)))
             return false;
 
         Point3D sphere1Pos = sphere1.getPositionOfCentre(dynamicCollisionMode);
@@ -198,133 +210,303 @@ public final class IntersectionalPair<FirstThingType extends Intersectional, Sec
         }
 
 
-        if (!new AABB(sphere, dynamicCollisionMode).isIntersectedWith(new AABB(triangle)))
-            return false;
-
         final Point3D spherePos = sphere.getPositionOfCentre(dynamicCollisionMode);
-        final double distance = triangle.getPlane().distance(spherePos);
+        return triangle.getClosestPoint(spherePos.x, spherePos.y, spherePos.z, new ClosestPoint()).getDistance() <= sphere.getR();
+    }
 
-        if (distance <= sphere.getR()) {
-            Vector3D normalVector = triangle.getPlane().vector;
-            Point3D intersectionPoint = triangle.getPlane().getIntersection(new Line3D(spherePos, normalVector)).get();
+    /**
+     * @param body1 тело 1
+     * @param body2 тело 2
+     * @param mode считать ли относительно будущего положения
+     * @return Не пересекаются ли ограничивающие сферы тел (тогда не пересекаются и сами тела)
+     */
+    private static boolean areBoundingSpheresApart(AbstractBody body1, AbstractBody body2, boolean mode) {
+        Point3D centre1 = body1.getPositionOfCentre(mode);
+        Point3D centre2 = body2.getPositionOfCentre(mode);
+        double dx = centre2.x - centre1.x, dy = centre2.y - centre1.y, dz = centre2.z - centre1.z;
+        double r = body1.getBoundingRadius() + body2.getBoundingRadius();
+        return dx * dx + dy * dy + dz * dz > r * r;
+    }
 
-            if (triangle.contains(intersectionPoint))
-                return true;
-            else {
+    /**
+     * Проверка по ограничивающим сферам тела и стены за весь шаг: центр тела проходит отрезок от текущего положения
+     * к будущему, и ни одна точка тела не отходит от центра дальше радиуса ограничивающей сферы (в том числе
+     * в промежуточных положениях, которые проверяет {@link TimeOfImpact}), поэтому, если отрезок дальше от центра
+     * стены, чем сумма радиусов, тело не касается стены ни в одном положении за шаг
+     * @param body тело
+     * @param wall стена
+     * @return Не задевает ли тело за шаг ограничивающую сферу стены
+     */
+    private static boolean isWallSphereApart(AbstractBody body, Wall wall) {
+        Point3D from = body.getPositionOfCentre(staticCollisionMode);
+        Point3D to = body.getPositionOfCentre(dynamicCollisionMode);
+        Point3D centre = wall.getBoundingCentre();
+        double dx = to.x - from.x, dy = to.y - from.y, dz = to.z - from.z;
+        double fx = centre.x - from.x, fy = centre.y - from.y, fz = centre.z - from.z;
+        double length = dx * dx + dy * dy + dz * dz;
+        double t = length == 0d ? 0d : Math.max(0d, Math.min(1d, (fx * dx + fy * dy + fz * dz) / length));
+        double ex = fx - dx * t, ey = fy - dy * t, ez = fz - dz * t;
+        double r = body.getBoundingRadius() + wall.getBoundingRadius();
+        return ex * ex + ey * ey + ez * ez > r * r;
+    }
 
-                for (Segment segment : triangle.getSegments()) {
-                    if (segment.distance(spherePos) <= sphere.getR()) {
-                        Point3D point = new Plane3D(segment.vector, spherePos).getIntersection(segment).get();
-                        if (new AABB(segment).isPointIn(point))
-                            return true;
-                    }
-                }
+    /**
+     * Метод, находящий контакты пары за один проход: касание и точки контакта в будущем положении
+     * и проникновение в текущем. Если в будущем положении касания нет, а одно из тел проверяется непрерывно
+     * (см {@link AbstractBody#isContinuous()}), контакт ищется по всему пути за шаг (см {@link TimeOfImpact}).
+     * Результат записывается в переданный набор, который перед этим очищается
+     * @param manifold набор контактов (переиспользуется между парами)
+     * @return Этот же набор контактов
+     */
+    public ContactManifold getContactManifold(ContactManifold manifold) {
+        return findContacts(firstThing, secondThing, manifold);
+    }
 
-                for (Point3D point : triangle.getPoints())
-                    if (new Vector3D(point, spherePos).getLength() <= sphere.getR())
-                        return true;
+    /**
+     * Метод, находящий контакты пары так же, как {@link #getContactManifold(ContactManifold)}, но без создания
+     * объекта пары: метод берется из таблицы по видам формы объектов
+     * @param thing1 первый объект пары
+     * @param thing2 второй объект пары
+     * @param manifold набор контактов (переиспользуется между парами)
+     * @return Этот же набор контактов
+     */
+    public static ContactManifold findContacts(Intersectional thing1, Intersectional thing2, ContactManifold manifold) {
+        manifold.clear();
+        finders[thing1.getShapeType().ordinal()][thing2.getShapeType().ordinal()].findContacts(thing1, thing2, manifold);
+        return manifold;
+    }
+
+    /**
+     * @param thing1 сфера 1
+     * @param thing2 сфера 2
+     * @param manifold набор контактов
+     */
+    private static void sphereToSphereContacts(Intersectional thing1, Intersectional thing2, ContactManifold manifold) {
+        PhysicalSphere sphere1 = (PhysicalSphere) thing1;
+        PhysicalSphere sphere2 = (PhysicalSphere) thing2;
+        if (sphere1.equals(sphere2))
+            return;
+        final double r1 = sphere1.getR();
+        final double r2 = sphere2.getR();
+
+        Point3D pos1 = sphere1.getPositionOfCentre(dynamicCollisionMode);
+        Point3D pos2 = sphere2.getPositionOfCentre(dynamicCollisionMode);
+        double dx = pos2.x - pos1.x, dy = pos2.y - pos1.y, dz = pos2.z - pos1.z;
+        double distance = Math.sqrt(dx * dx + dy * dy + dz * dz);
+        if (distance <= r1 + r2) {
+            manifold.setTouching();
+            if (distance != 0d) {
+                dx /= distance;
+                dy /= distance;
+                dz /= distance;
+                manifold.addContact(pos1.x + dx * r1, pos1.y + dy * r1, pos1.z + dz * r1,
+                        pos2.x - dx * r2, pos2.y - dy * r2, pos2.z - dz * r2, dx, dy, dz);
             }
+        } else if (sphere1.isContinuous() || sphere2.isContinuous()) {
+            TimeOfImpact.sphereToSphere(sphere1, sphere2, manifold);
         }
 
-        return false;
+        pos1 = sphere1.getPositionOfCentre(staticCollisionMode);
+        pos2 = sphere2.getPositionOfCentre(staticCollisionMode);
+        dx = pos2.x - pos1.x;
+        dy = pos2.y - pos1.y;
+        dz = pos2.z - pos1.z;
+        distance = Math.sqrt(dx * dx + dy * dy + dz * dz);
+        if (distance < r1 + r2) {
+            if (distance != 0d)
+                manifold.setPenetration(dx / distance, dy / distance, dz / distance, r1 + r2 - distance);
+            else
+                manifold.setPenetration(0, 0, 0, 0);
+        }
     }
 
     /**
-     *
-     * @return Пересечение двух сфер
+     * Контакт берется с ближайшим треугольником стены, проникновение - с самым глубоким из тех,
+     * которых сфера касается в будущем положении
+     * @param thing1 сфера
+     * @param thing2 стена
+     * @param manifold набор контактов
      */
-    public SpheresIntersection getSpheresIntersection() {
-        if (!(firstThing instanceof PhysicalSphere && secondThing instanceof PhysicalSphere))
-            return new SpheresIntersection(false);
-
-        if (!new AABB((PhysicalSphere) firstThing, staticCollisionMode).isIntersectedWith(new AABB((PhysicalSphere) secondThing, staticCollisionMode)))
-            return new SpheresIntersection(false);
-
-        PhysicalSphere sphere1 = (PhysicalSphere) firstThing;
-        PhysicalSphere sphere2 = (PhysicalSphere) secondThing;
-        Point3D sphere1Pos = sphere1.getPositionOfCentre(staticCollisionMode);
-        Point3D sphere2Pos = sphere2.getPositionOfCentre(staticCollisionMode);
-        Vector3D distanceVector = new Vector3D(sphere2Pos, sphere1Pos);
-        double distance = distanceVector.getLength();
-
-        if (distance < sphere1.getR() + sphere2.getR()) {
-            if (sphere2.equals(sphere1)) {
-                return new SpheresIntersection(false);
-            } else {
-                if (distanceVector.getLength() != 0)
-                    return new SpheresIntersection(true, distanceVector, sphere2.getR() + sphere1.getR() - distance);
-                else
-                    return new SpheresIntersection(true, distanceVector, 0);
+    private static void sphereToWallContacts(Intersectional thing1, Intersectional thing2, ContactManifold manifold) {
+        PhysicalSphere sphere = (PhysicalSphere) thing1;
+        Wall wall = (Wall) thing2;
+        if (isWallSphereApart(sphere, wall))
+            return;
+        final double r = sphere.getR();
+        final Point3D predicted = sphere.getPositionOfCentre(dynamicCollisionMode);
+        final Point3D position = sphere.getPositionOfCentre(staticCollisionMode);
+
+        ClosestPoint closest = new ClosestPoint();
+        double nearest = Double.MAX_VALUE;
+        double px = 0, py = 0, pz = 0, nx = 0, ny = 0, nz = 0;
+        for (Triangle triangle : wall.getTriangles()) {
+            if (triangle.getClosestPoint(predicted.x, predicted.y, predicted.z, closest).getDistance() > r)
+                continue;
+            manifold.setTouching();
+            if (closest.getDistance() < nearest) {
+                nearest = closest.getDistance();
+                px = closest.getX();
+                py = closest.getY();
+                pz = closest.getZ();
+                nx = -closest.getNormalX();
+                ny = -closest.getNormalY();
+                nz = -closest.getNormalZ();
             }
-        }
 
-        return new SpheresIntersection(false);
+            if (!triangle.isBoxIntersected(position.x, position.y, position.z, r))
+                continue;
+            triangle.getClosestPoint(position.x, position.y, position.z, closest);
+            double depth = r - closest.getDistance();
+            if (!manifold.isPenetrating() || depth > manifold.getDepth())
+                manifold.setPenetration(-closest.getNormalX(), -closest.getNormalY(), -closest.getNormalZ(), depth);
+        }
+        if (nearest != Double.MAX_VALUE)
+            manifold.addContact(predicted.x + nx * r, predicted.y + ny * r, predicted.z + nz * r, px, py, pz, nx, ny, nz);
+        else if (sphere.isContinuous())
+            TimeOfImpact.sphereToWall(sphere, wall, manifold);
     }
 
     /**
-     * @return Пересечение сферы и плоскости
+     * Контакты - по одному на каждую грань многогранника, которой касается сфера
+     * (грани с общей плоскостью дают один контакт)
+     * @param thing1 сфера
+     * @param thing2 многогранник
+     * @param manifold набор контактов
      */
-    public SphereToPlaneIntersection getSphereToPlaneIntersection() {
-
-        if (!(firstThing instanceof PhysicalSphere && secondThing instanceof Triangle))
-            return new SphereToPlaneIntersection(false);
-
-        PhysicalSphere sphere = (PhysicalSphere) firstThing;
-        Triangle triangle = (Triangle) secondThing;
-
-        if (!new AABB(sphere, staticCollisionMode).isIntersectedWith(new AABB(triangle)))
-            return new SphereToPlaneIntersection(false);
-        else {
-            try {
-                if (new IntersectionalPair<>(sphere, triangle).areIntersected()) {
-                    Line3D line = new Line3D(sphere.getPositionOfCentre(staticCollisionMode), triangle.getPlane().vector);
-                    return new SphereToPlaneIntersection(true,
-                            line.getIntersection(triangle.getPlane()).get(),
-                            sphere.getR() - triangle.getPlane().distance(sphere.getPositionOfCentre(staticCollisionMode)));
-                }
-
-            } catch (ImpossiblePairException e) {
-                e.printStackTrace();
-            }
+    private static void sphereToPolyhedronContacts(Intersectional thing1, Intersectional thing2, ContactManifold manifold) {
+        PhysicalSphere sphere = (PhysicalSphere) thing1;
+        PhysicalPolyhedron polyhedron = (PhysicalPolyhedron) thing2;
+
+        if (areBoundingSpheresApart(sphere, polyhedron, dynamicCollisionMode)
+                || !polyhedron.getAABB(dynamicCollisionMode).isIntersectedWith(sphere.getAABB(dynamicCollisionMode))) {
+            if (sphere.isContinuous() || polyhedron.isContinuous())
+                TimeOfImpact.sphereToPolyhedron(sphere, polyhedron, manifold);
+            return;
         }
 
-        return new SphereToPlaneIntersection(false);
+        final double r = sphere.getR();
+        final Point3D centre = sphere.getPositionOfCentre(dynamicCollisionMode);
+        ClosestPoint closest = new ClosestPoint();
+        for (Triangle triangle : polyhedron.getTriangles(dynamicCollisionMode)) {
+            if (triangle.getClosestPoint(centre.x, centre.y, centre.z, closest).getDistance() > r)
+                continue;
+            manifold.setTouching();
+            double distance = triangle.getSignedDistance(centre.x, centre.y, centre.z);
+            Vector3D normal = triangle.getNormal();
+            double sign = distance < 0 ? 1d : -1d;
+            double nx = normal.x * sign, ny = normal.y * sign, nz = normal.z * sign;
+            if (manifold.hasNormal(nx, ny, nz, SAME_PLANE_COS))
+                continue;
+            manifold.addContact(centre.x + nx * r, centre.y + ny * r, centre.z + nz * r,
+                    centre.x - normal.x * distance, centre.y - normal.y * distance, centre.z - normal.z * distance,
+                    nx, ny, nz);
+        }
+        if (!manifold.isTouching() && (sphere.isContinuous() || polyhedron.isContinuous()))
+            TimeOfImpact.sphereToPolyhedron(sphere, polyhedron, manifold);
     }
 
     /**
-     *
-     * @return Пересечение многогранник и плоскости
+     * Контакт и проникновение находятся GJK и EPA
+     * @param thing1 многогранник 1
+     * @param thing2 многогранник 2
+     * @param manifold набор контактов
      */
+    private static void polyhedronToPolyhedronContacts(Intersectional thing1, Intersectional thing2, ContactManifold manifold) {
+        PhysicalPolyhedron polyhedron1 = (PhysicalPolyhedron) thing1;
+        PhysicalPolyhedron polyhedron2 = (PhysicalPolyhedron) thing2;
 
-    public PolyhedronToPlaneIntersection getPolyhedronToPlaneIntersection() {
-        if (!(firstThing instanceof PhysicalPolyhedron && secondThing instanceof Triangle))
-            return new PolyhedronToPlaneIntersection(false);
-
-        if (!new AABB((PhysicalPolyhedron) firstThing, staticCollisionMode).isIntersectedWith(new AABB((Triangle) secondThing)))
-            return new PolyhedronToPlaneIntersection(false);
+        if (!areBoundingSpheresApart(polyhedron1, polyhedron2, dynamicCollisionMode)
+                && polyhedron1.getAABB(dynamicCollisionMode).isIntersectedWith(polyhedron2.getAABB(dynamicCollisionMode))) {
+            PolyhedraIntersection contact = GjkEpa.getIntersection(polyhedron1.getVertices(dynamicCollisionMode),
+                    polyhedron2.getVertices(dynamicCollisionMode));
+            if (contact.areIntersected) {
+                manifold.setTouching();
+                Point3D point1 = contact.getPoint1(), point2 = contact.getPoint2();
+                Vector3D normal = contact.getNormal();
+                manifold.addContact(point1.x, point1.y, point1.z, point2.x, point2.y, point2.z, normal.x, normal.y, normal.z);
+            }
+        }
+        if (!manifold.isTouching() && (polyhedron1.isContinuous() || polyhedron2.isContinuous()))
+            TimeOfImpact.polyhedronToPolyhedron(polyhedron1, polyhedron2, manifold);
+
+        if (!areBoundingSpheresApart(polyhedron1, polyhedron2, staticCollisionMode)
+                && polyhedron1.getAABB(staticCollisionMode).isIntersectedWith(polyhedron2.getAABB(staticCollisionMode))) {
+            PolyhedraIntersection penetration = GjkEpa.getIntersection(polyhedron1.getVertices(staticCollisionMode),
+                    polyhedron2.getVertices(staticCollisionMode));
+            if (penetration.areIntersected) {
+                Vector3D normal = penetration.getNormal();
+                manifold.setPenetration(normal.x, normal.y, normal.z, penetration.getValue());
+            }
+        }
+    }
 
-        PhysicalPolyhedron polyhedron = (PhysicalPolyhedron) firstThing;
-        Triangle triangle = (Triangle) secondThing;
-        Point3D position = polyhedron.getPositionOfCentre(staticCollisionMode);
-        Point3D farPoint = null;
+    /**
+     * Касание - по пересечению ребер многогранника со стеной, контакты - вершины, отрезок от которых до центра
+     * пересекает стену, проникновение - по самой глубокой такой вершине в текущем положении
+     * @param thing1 многогранник
+     * @param thing2 стена
+     * @param manifold набор контактов
+     */
+    private static void polyhedronToWallContacts(Intersectional thing1, Intersectional thing2, ContactManifold manifold) {
+        PhysicalPolyhedron polyhedron = (PhysicalPolyhedron) thing1;
+        Wall wall = (Wall) thing2;
+        final int[] edges = polyhedron.getMesh().getEdges();
+        final double[] predicted = polyhedron.getVertices(dynamicCollisionMode);
+        final double[] current = polyhedron.getVertices(staticCollisionMode);
+        final Point3D position = polyhedron.getPositionOfCentre(staticCollisionMode);
+        final AABB predictedBox = polyhedron.getAABB(dynamicCollisionMode);
+        final AABB currentBox = polyhedron.getAABB(staticCollisionMode);
+        if (isWallSphereApart(polyhedron, wall) || !polyhedron.getSweptAABB().isIntersectedWith(wall.getAABB()))
+            return;
+
+        for (Triangle triangle : wall.getTriangles()) {
+            AABB triangleBox = triangle.getAABB();
+            if (!manifold.isTouching() && predictedBox.isIntersectedWith(triangleBox))
+                for (int i = 0; i < edges.length; i += 2) {
+                    int a = edges[i] * 3, b = edges[i + 1] * 3;
+                    if (triangle.isIntersectedWithSegment(predicted[a], predicted[a + 1], predicted[a + 2],
+                            predicted[b], predicted[b + 1], predicted[b + 2])) {
+                        manifold.setTouching();
+                        break;
+                    }
+                }
 
-        for (Point3D point : polyhedron.getPoints(staticCollisionMode)) {
-            boolean intersects = triangle.isIntersectedWithSegment(new Segment(point, position));
-            if (farPoint == null && intersects) {
-                farPoint = point;
+            if (!currentBox.isIntersectedWith(triangleBox))
+                continue;
+            int farPoint = -1;
+            double depth = 0;
+            for (int i = 0; i < current.length; i += 3) {
+                if (!triangle.isIntersectedWithSegment(current[i], current[i + 1], current[i + 2], position.x, position.y, position.z))
+                    continue;
+                double distance = Math.abs(triangle.getSignedDistance(current[i], current[i + 1], current[i + 2]));
+                if (farPoint == -1 || distance > depth) {
+                    farPoint = i;
+                    depth = distance;
+                }
             }
-            if (intersects && triangle.getPlane().distance(point) > triangle.getPlane().distance(farPoint)) {
-                farPoint = point;
+            if (farPoint != -1 && (!manifold.isPenetrating() || depth > manifold.getDepth())) {
+                Vector3D normal = triangle.getNormal();
+                double sign = Math.signum(triangle.getSignedDistance(current[farPoint], current[farPoint + 1], current[farPoint + 2]));
+                manifold.setPenetration(normal.x * sign, normal.y * sign, normal.z * sign, depth);
             }
         }
 
-        if (farPoint != null) {
-            Point3D collisionPoint = triangle.getPlane().getIntersection(new Line3D(farPoint, triangle.getPlane().vector)).get();
-            return new PolyhedronToPlaneIntersection(true, collisionPoint, farPoint, triangle.getPlane().distance(farPoint));
+        if (!manifold.isTouching()) {
+            if (polyhedron.isContinuous())
+                TimeOfImpact.polyhedronToWall(polyhedron, wall, manifold);
+            return;
         }
-
-        return new PolyhedronToPlaneIntersection(false);
-
-
+        final Point3D centre = polyhedron.getPositionOfCentre(dynamicCollisionMode);
+        for (int i = 0; i < predicted.length; i += 3)
+            for (Triangle triangle : wall.getTriangles())
+                if (triangle.isIntersectedWithSegment(predicted[i], predicted[i + 1], predicted[i + 2], centre.x, centre.y, centre.z)) {
+                    double distance = triangle.getSignedDistance(predicted[i], predicted[i + 1], predicted[i + 2]);
+                    Vector3D normal = triangle.getNormal();
+                    double sign = -Math.signum(triangle.getSignedDistance(centre.x, centre.y, centre.z));
+                    manifold.addContact(predicted[i], predicted[i + 1], predicted[i + 2],
+                            predicted[i] - normal.x * distance, predicted[i + 1] - normal.y * distance, predicted[i + 2] - normal.z * distance,
+                            normal.x * sign, normal.y * sign, normal.z * sign);
+                    break;
+                }
     }
 }
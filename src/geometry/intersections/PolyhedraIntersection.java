@@ -0,0 +1,68 @@
+package geometry.intersections;
+
+import geometry.objects3D.Point3D;
+import geometry.objects3D.Vector3D;
+
+/**
+ * Пересечение двух выпуклых многогранников
+ */
+public class PolyhedraIntersection extends AbstractIntersection {
+
+    private Vector3D normal;
+    private Point3D point1;
+    private Point3D point2;
+    private double value;
+
+    /**
+     * Конструктор по информации, есть ли пересечение
+     * @param areIntersected пересекаются ли объекты
+     */
+    public PolyhedraIntersection(boolean areIntersected) {
+        super(areIntersected);
+    }
+
+    /**
+     * Основной коструктор, принимающий всю необходимую информацию о пересечении
+     * @param areIntersected пересекаются ли объекты
+     * @param normal единичная нормаль контакта, направленная от первого многогранника ко второму
+     * @param point1 точка первого многогранника, глубже всего вошедшая во второй
+     * @param point2 точка второго многогранника, глубже всего вошедшая в первый
+     * @param value глубина пересечения
+     */
+    public PolyhedraIntersection(boolean areIntersected, Vector3D normal, Point3D point1, Point3D point2, double value) {
+        super(areIntersected);
+        this.normal = normal;
+        this.point1 = point1;
+        this.point2 = point2;
+        this.value = value;
+    }
+
+    /**
+     * @return Единичная нормаль контакта, направленная от первого многогранника ко второму: сдвиг первого
+     * на -normal * value или второго на normal * value разводит многогранники
+     */
+    public Vector3D getNormal() {
+        return normal;
+    }
+
+    /**
+     * @return Точка первого многогранника, глубже всего вошедшая во второй
+     */
+    public Point3D getPoint1() {
+        return point1;
+    }
+
+    /**
+     * @return Точка второго многогранника, глубже всего вошедшая в первый
+     */
+    public Point3D getPoint2() {
+        return point2;
+    }
+
+    /**
+     * @return Глубина пересечения
+     */
+    public double getValue() {
+        return value;
+    }
+}
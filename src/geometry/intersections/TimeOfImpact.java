@@ -0,0 +1,210 @@
+package geometry.intersections;
+
+import geometry.AABB;
+import geometry.objects.Triangle;
+import geometry.objects3D.Point3D;
+import physical_objects.PhysicalPolyhedron;
+import physical_objects.PhysicalSphere;
+import physical_objects.Wall;
+
+/**
+ * Непрерывная проверка столкновений: момент первого касания объектов при движении за шаг. <br>
+ * За шаг каждая вершина тела (для сферы - центр) движется по отрезку от текущего положения к будущему,
+ * поэтому ни одна точка выпуклой оболочки не сдвигается больше, чем самая быстрая вершина. Момент касания
+ * ищется консервативным продвижением: расстояние между оболочками (см {@link ConvexDistance}) делится на эту
+ * скорость, и время сдвигается на столько, на сколько объекты гарантированно не успеют столкнуться. <br>
+ * Найденный контакт записывается в будущем положении: точки на телах берутся с теми же весами при вершинах,
+ * что и в момент касания, поэтому импульсы считаются так же, как для обычного контакта
+ */
+public final class TimeOfImpact {
+
+    /**
+     * Результат, означающий, что за шаг объекты не касаются
+     */
+    public final static double NO_IMPACT = -1d;
+    private final static int MAX_ITERATIONS = 32;
+    /**
+     * Зазор (в долях пути самой быстрой вершины за шаг), при котором объекты считаются коснувшимися
+     */
+    private final static double TOLERANCE = 1e-3;
+
+    private TimeOfImpact() {
+    }
+
+    /**
+     * Момент касания двух выпуклых оболочек, вершины которых движутся за шаг равномерно и прямолинейно
+     * @param start1 координаты вершин первого объекта в начале шага (по три числа на вершину)
+     * @param end1 координаты тех же вершин в конце шага
+     * @param r1 радиус, на который раздут первый объект (для сферы - ее радиус, для многогранника - 0)
+     * @param start2 координаты вершин второго объекта в начале шага
+     * @param end2 координаты тех же вершин в конце шага
+     * @param r2 радиус, на который раздут второй объект
+     * @return Доля шага до первого касания или {@link #NO_IMPACT}, если объекты не сближаются до касания
+     * (в том числе если они касаются уже в начале шага)
+     */
+    public static double getTimeOfImpact(double[] start1, double[] end1, double r1, double[] start2, double[] end2, double r2) {
+        Impact impact = new Impact();
+        return impact.find(start1, end1, r1, start2, end2, r2) ? impact.time : NO_IMPACT;
+    }
+
+    /**
+     * @param sphere1 сфера 1
+     * @param sphere2 сфера 2
+     * @param manifold набор контактов, в который добавляется контакт при касании за шаг
+     */
+    static void sphereToSphere(PhysicalSphere sphere1, PhysicalSphere sphere2, ContactManifold manifold) {
+        if (!sphere1.getSweptAABB().isIntersectedWith(sphere2.getSweptAABB()))
+            return;
+        Impact impact = new Impact();
+        if (impact.find(getCentre(sphere1, false), getCentre(sphere1, true), sphere1.getR(),
+                getCentre(sphere2, false), getCentre(sphere2, true), sphere2.getR()))
+            impact.addTo(manifold);
+    }
+
+    /**
+     * Контакт берется с треугольником стены, которого сфера касается раньше остальных
+     * @param sphere сфера
+     * @param wall стена
+     * @param manifold набор контактов, в который добавляется контакт при касании за шаг
+     */
+    static void sphereToWall(PhysicalSphere sphere, Wall wall, ContactManifold manifold) {
+        toWall(getCentre(sphere, false), getCentre(sphere, true), sphere.getR(), sphere.getSweptAABB(), wall, manifold);
+    }
+
+    /**
+     * @param sphere сфера
+     * @param polyhedron многогранник
+     * @param manifold набор контактов, в который добавляется контакт при касании за шаг
+     */
+    static void sphereToPolyhedron(PhysicalSphere sphere, PhysicalPolyhedron polyhedron, ContactManifold manifold) {
+        if (!sphere.getSweptAABB().isIntersectedWith(polyhedron.getSweptAABB()))
+            return;
+        Impact impact = new Impact();
+        if (impact.find(getCentre(sphere, false), getCentre(sphere, true), sphere.getR(),
+                polyhedron.getVertices(false), polyhedron.getVertices(true), 0d))
+            impact.addTo(manifold);
+    }
+
+    /**
+     * @param polyhedron1 многогранник 1
+     * @param polyhedron2 многогранник 2
+     * @param manifold набор контактов, в который добавляется контакт при касании за шаг
+     */
+    static void polyhedronToPolyhedron(PhysicalPolyhedron polyhedron1, PhysicalPolyhedron polyhedron2, ContactManifold manifold) {
+        if (!polyhedron1.getSweptAABB().isIntersectedWith(polyhedron2.getSweptAABB()))
+            return;
+        Impact impact = new Impact();
+        if (impact.find(polyhedron1.getVertices(false), polyhedron1.getVertices(true), 0d,
+                polyhedron2.getVertices(false), polyhedron2.getVertices(true), 0d))
+            impact.addTo(manifold);
+    }
+
+    /**
+     * Контакт берется с треугольником стены, которого многогранник касается раньше остальных
+     * @param polyhedron многогранник
+     * @param wall стена
+     * @param manifold набор контактов, в который добавляется контакт при касании за шаг
+     */
+    static void polyhedronToWall(PhysicalPolyhedron polyhedron, Wall wall, ContactManifold manifold) {
+        toWall(polyhedron.getVertices(false), polyhedron.getVertices(true), 0d, polyhedron.getSweptAABB(), wall, manifold);
+    }
+
+    private static void toWall(double[] start, double[] end, double r, AABB swept, Wall wall, ContactManifold manifold) {
+        if (!swept.isIntersectedWith(wall.getAABB()))
+            return;
+        Impact earliest = null;
+        Impact impact = new Impact();
+        for (Triangle triangle : wall.getTriangles()) {
+            if (!swept.isIntersectedWith(triangle.getAABB()))
+                continue;
+            double[] vertices = {triangle.A.x, triangle.A.y, triangle.A.z,
+                    triangle.B.x, triangle.B.y, triangle.B.z,
+                    triangle.C.x, triangle.C.y, triangle.C.z};
+            if (!impact.find(start, end, r, vertices, vertices, 0d) || earliest != null && impact.time >= earliest.time)
+                continue;
+            Impact found = impact;
+            impact = earliest == null ? new Impact() : earliest;
+            earliest = found;
+        }
+        if (earliest != null)
+            earliest.addTo(manifold);
+    }
+
+    private static double[] getCentre(PhysicalSphere sphere, boolean mode) {
+        Point3D centre = sphere.getPositionOfCentre(mode);
+        return new double[]{centre.x, centre.y, centre.z};
+    }
+
+    /**
+     * Момент касания и контакт в будущем положении
+     */
+    private final static class Impact {
+        private double time;
+        private final double[] point1 = new double[3];
+        private final double[] point2 = new double[3];
+        private final double[] normal = new double[3];
+
+        /**
+         * Консервативное продвижение: пока зазор больше допуска, время сдвигается на зазор, деленный на
+         * наибольшую скорость сближения. Если допуск не достигнут за {@link #MAX_ITERATIONS} шагов (объекты
+         * проходят вскользь), касание не засчитывается, чтобы не отражать тела, которые на самом деле разминулись
+         * @return Коснутся ли объекты за шаг (результат записывается в этот объект)
+         */
+        boolean find(double[] start1, double[] end1, double r1, double[] start2, double[] end2, double r2) {
+            double speed = getMaxDisplacement(start1, end1) + getMaxDisplacement(start2, end2);
+            if (speed == 0d)
+                return false;
+            double[] at1 = start1.clone(), at2 = start2.clone();
+            ConvexDistance distance = new ConvexDistance(at1, at2);
+            double length;
+            time = 0d;
+            for (int iteration = 0; ; iteration++) {
+                interpolate(start1, end1, time, at1);
+                interpolate(start2, end2, time, at2);
+                length = distance.compute();
+                double gap = length - r1 - r2;
+                if (gap <= TOLERANCE * speed) {
+                    if (iteration == 0 || length == 0d)
+                        return false;
+                    break;
+                }
+                if (iteration == MAX_ITERATIONS)
+                    return false;
+                time += gap / speed;
+                if (time > 1d)
+                    return false;
+            }
+
+            distance.getFirstPoint(at1, point1);
+            distance.getSecondPoint(at2, point2);
+            for (int i = 0; i < 3; i++)
+                normal[i] = (point2[i] - point1[i]) / length;
+            distance.getFirstPoint(end1, point1);
+            distance.getSecondPoint(end2, point2);
+            for (int i = 0; i < 3; i++) {
+                point1[i] += normal[i] * r1;
+                point2[i] -= normal[i] * r2;
+            }
+            return true;
+        }
+
+        void addTo(ContactManifold manifold) {
+            manifold.setTouching();
+            manifold.addContact(point1[0], point1[1], point1[2], point2[0], point2[1], point2[2], normal[0], normal[1], normal[2]);
+        }
+
+        private static double getMaxDisplacement(double[] start, double[] end) {
+            double max = 0d;
+            for (int i = 0; i < start.length; i += 3) {
+                double dx = end[i] - start[i], dy = end[i + 1] - start[i + 1], dz = end[i + 2] - start[i + 2];
+                max = Math.max(max, dx * dx + dy * dy + dz * dz);
+            }
+            return Math.sqrt(max);
+        }
+
+        private static void interpolate(double[] start, double[] end, double time, double[] result) {
+            for (int i = 0; i < result.length; i++)
+                result[i] = start[i] + (end[i] - start[i]) * time;
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package geometry.objects;
+
+import geometry.objects3D.Point3D;
+import geometry.objects3D.Vector3D;
+
+/**
+ * Ближайшая к данной точке точка треугольника (результат {@link Triangle#getClosestPoint(double, double, double, ClosestPoint)}). <br>
+ * Объект изменяемый: один приемник переиспользуется для многих треугольников, поэтому проверка не создает объектов.
+ * Точка и нормаль в виде объектов создаются только по запросу
+ */
+public final class ClosestPoint {
+
+    private double x, y, z;
+    private double nx, ny, nz;
+    private double distance;
+    private boolean onFace;
+
+    /**
+     * Метод, записывающий результат
+     * @param x координата ближайшей точки по Ox
+     * @param y координата ближайшей точки по Oy
+     * @param z координата ближайшей точки по Oz
+     * @param nx компонента единичной нормали по Ox
+     * @param ny компонента единичной нормали по Oy
+     * @param nz компонента единичной нормали по Oz
+     * @param distance расстояние от данной точки до треугольника
+     * @param onFace лежит ли ближайшая точка внутри грани (а не на ребре или в вершине)
+     * @return Этот же объект
+     */
+    ClosestPoint set(double x, double y, double z, double nx, double ny, double nz, double distance, boolean onFace) {
+        this.x = x;
+        this.y = y;
+        this.z = z;
+        this.nx = nx;
+        this.ny = ny;
+        this.nz = nz;
+        this.distance = distance;
+        this.onFace = onFace;
+        return this;
+    }
+
+    /**
+     * @return Расстояние от данной точки до треугольника
+     */
+    public double getDistance() {
+        return distance;
+    }
+
+    /**
+     * @return Лежит ли ближайшая точка внутри грани, а не на ребре или в вершине
+     */
+    public boolean isOnFace() {
+        return onFace;
+    }
+
+    /**
+     * @return Координата ближайшей точки по Ox
+     */
+    public double getX() {
+        return x;
+    }
+
+    /**
+     * @return Координата ближайшей точки по Oy
+     */
+    public double getY() {
+        return y;
+    }
+
+    /**
+     * @return Координата ближайшей точки по Oz
+     */
+    public double getZ() {
+        return z;
+    }
+
+    /**
+     * @return Компонента нормали по Ox
+     */
+    public double getNormalX() {
+        return nx;
+    }
+
+    /**
+     * @return Компонента нормали по Oy
+     */
+    public double getNormalY() {
+        return ny;
+    }
+
+    /**
+     * @return Компонента нормали по Oz
+     */
+    public double getNormalZ() {
+        return nz;
+    }
+
+    /**
+     * @return Ближайшая точка треугольника
+     */
+    public Point3D getPoint() {
+        return new Point3D(x, y, z);
+    }
+
+    /**
+     * @return Единичная нормаль контакта, направленная от треугольника к данной точке
+     * (нормаль плоскости треугольника, если точка лежит на нем)
+     */
+    public Vector3D getNormal() {
+        return new Vector3D(nx, ny, nz);
+    }
+}
@@ -0,0 +1,194 @@
+package geometry.objects;
+
+import geometry.objects3D.Point3D;
+
+import java.awt.Color;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Индексированная треугольная сетка многогранника: общий массив вершин, тройки индексов вершин граней,
+ * пары индексов вершин ребер (каждое ребро один раз) и смежность граней. <br>
+ * Строится один раз и не меняется; положение сетки в пространстве задается отдельно (см {@link physical_objects.PhysicalPolyhedron})
+ */
+public final class IndexedMesh {
+
+    private final double[] vertices;
+    private final int[] triangles;
+    private final Color[] colors;
+    private final int[] edges;
+    private final int[] edgeFaces;
+    private final int[] neighbours;
+
+    /**
+     * Конструктор по вершинам и граням. Вершины граней, совпадающие по координатам, объединяются
+     * @param points вершины
+     * @param faces треугольники граней
+     * @param origin точка, относительно которой хранятся координаты вершин
+     */
+    public IndexedMesh(List<Point3D> points, Collection<Triangle> faces, Point3D origin) {
+        Map<VertexKey, Integer> indices = new HashMap<>();
+        double[] vertices = new double[(points.size() + faces.size() * 3) * 3];
+        int count = 0;
+        for (Point3D point : points)
+            count = index(point, origin, indices, vertices, count);
+
+        triangles = new int[faces.size() * 3];
+        colors = new Color[faces.size()];
+        int face = 0;
+        for (Triangle triangle : faces) {
+            count = index(triangle.A, origin, indices, vertices, count);
+            triangles[face * 3] = indices.get(new VertexKey(triangle.A));
+            count = index(triangle.B, origin, indices, vertices, count);
+            triangles[face * 3 + 1] = indices.get(new VertexKey(triangle.B));
+            count = index(triangle.C, origin, indices, vertices, count);
+            triangles[face * 3 + 2] = indices.get(new VertexKey(triangle.C));
+            colors[face++] = triangle.color;
+        }
+        this.vertices = Arrays.copyOf(vertices, count * 3);
+
+        Map<Long, Integer> edgeIndices = new HashMap<>();
+        int[] edges = new int[triangles.length * 2];
+        int[] edgeFaces = new int[triangles.length * 2];
+        neighbours = new int[triangles.length];
+        Arrays.fill(neighbours, -1);
+        int edgesCount = 0;
+        for (face = 0; face < colors.length; face++)
+            for (int k = 0; k < 3; k++) {
+                int a = triangles[face * 3 + k], b = triangles[face * 3 + (k + 1) % 3];
+                long key = (long) Math.min(a, b) << 32 | Math.max(a, b);
+                Integer edge = edgeIndices.get(key);
+                if (edge == null) {
+                    edgeIndices.put(key, edgesCount);
+                    edges[edgesCount * 2] = Math.min(a, b);
+                    edges[edgesCount * 2 + 1] = Math.max(a, b);
+                    edgeFaces[edgesCount * 2] = face;
+                    edgeFaces[edgesCount * 2 + 1] = -1;
+                    edgesCount++;
+                } else {
+                    int other = edgeFaces[edge * 2];
+                    edgeFaces[edge * 2 + 1] = face;
+                    neighbours[face * 3 + k] = other;
+                    for (int j = 0; j < 3; j++) {
+                        int c = triangles[other * 3 + j], d = triangles[other * 3 + (j + 1) % 3];
+                        if (Math.min(c, d) == Math.min(a, b) && Math.max(c, d) == Math.max(a, b))
+                            neighbours[other * 3 + j] = face;
+                    }
+                }
+            }
+        this.edges = Arrays.copyOf(edges, edgesCount * 2);
+        this.edgeFaces = Arrays.copyOf(edgeFaces, edgesCount * 2);
+    }
+
+    /**
+     * Метод, добавляющий вершину в массив, если вершины с такими координатами еще нет
+     * @return Новое количество вершин
+     */
+    private static int index(Point3D point, Point3D origin, Map<VertexKey, Integer> indices, double[] vertices, int count) {
+        VertexKey key = new VertexKey(point);
+        if (indices.containsKey(key)) return count;
+        indices.put(key, count);
+        vertices[count * 3] = point.x - origin.x;
+        vertices[count * 3 + 1] = point.y - origin.y;
+        vertices[count * 3 + 2] = point.z - origin.z;
+        return count + 1;
+    }
+
+    /**
+     * @return Координаты вершин подряд (по три числа на вершину). Массив общий, менять его нельзя
+     */
+    public double[] getVertices() {
+        return vertices;
+    }
+
+    /**
+     * @return Количество вершин
+     */
+    public int getVerticesCount() {
+        return vertices.length / 3;
+    }
+
+    /**
+     * @return Индексы вершин граней (по три на грань). Массив общий, менять его нельзя
+     */
+    public int[] getTriangles() {
+        return triangles;
+    }
+
+    /**
+     * @return Количество граней
+     */
+    public int getTrianglesCount() {
+        return colors.length;
+    }
+
+    /**
+     * @param face номер грани
+     * @return Цвет грани
+     */
+    public Color getColor(int face) {
+        return colors[face];
+    }
+
+    /**
+     * @return Индексы вершин ребер (по два на ребро, каждое ребро один раз). Массив общий, менять его нельзя
+     */
+    public int[] getEdges() {
+        return edges;
+    }
+
+    /**
+     * @return Количество ребер
+     */
+    public int getEdgesCount() {
+        return edges.length / 2;
+    }
+
+    /**
+     * @return Номера граней, прилегающих к ребрам (по два на ребро, -1 - ребро на границе незамкнутой сетки).
+     * Массив общий, менять его нельзя
+     */
+    public int[] getEdgeFaces() {
+        return edgeFaces;
+    }
+
+    /**
+     * @param face номер грани
+     * @param edge номер стороны грани (0 - от первой вершины ко второй, 1 - от второй к третьей, 2 - от третьей к первой)
+     * @return Номер грани, смежной с данной по данной стороне, или -1
+     */
+    public int getNeighbour(int face, int edge) {
+        return neighbours[face * 3 + edge];
+    }
+
+    /**
+     * Ключ вершины для объединения совпадающих по координатам точек
+     */
+    private static final class VertexKey {
+
+        private final double x, y, z;
+
+        private VertexKey(Point3D point) {
+            this.x = point.x;
+            this.y = point.y;
+            this.z = point.z;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof VertexKey)) return false;
+            VertexKey key = (VertexKey) o;
+            return Double.compare(key.x, x) == 0 && Double.compare(key.y, y) == 0 && Double.compare(key.z, z) == 0;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(x, y, z);
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package geometry.objects;
 
+import geometry.InertiaTensor;
 import geometry.objects3D.Point3D;
 import geometry.objects3D.Polygon3D;
 import geometry.objects3D.Vector3D;
@@ -78,6 +79,33 @@ public class Tetrahedron {
 
     }
 
+    /**
+     * @param origin точка, относительно которой считается тензор
+     * @return Тензор инерции тетраэдра единичной плотности относительно точки. <br>
+     * Вторые моменты однородного тетраэдра точно выражаются через его вершины:
+     * C = V / 20 * (сумма v * v^T по вершинам + s * s^T), где v - вершины относительно точки, s - их сумма,
+     * а тензор инерции равен tr(C) * E - C
+     */
+    public InertiaTensor getInertiaTensor(Point3D origin) {
+        final Vector3D a = new Vector3D(origin, A);
+        final Vector3D b = new Vector3D(origin, B);
+        final Vector3D c = new Vector3D(origin, C);
+        final Vector3D d = new Vector3D(origin, D);
+        final double sx = a.x + b.x + c.x + d.x;
+        final double sy = a.y + b.y + c.y + d.y;
+        final double sz = a.z + b.z + c.z + d.z;
+        final double k = getVolume() / 20d;
+
+        double cxx = k * (a.x * a.x + b.x * b.x + c.x * c.x + d.x * d.x + sx * sx);
+        double cyy = k * (a.y * a.y + b.y * b.y + c.y * c.y + d.y * d.y + sy * sy);
+        double czz = k * (a.z * a.z + b.z * b.z + c.z * c.z + d.z * d.z + sz * sz);
+        double cxy = k * (a.x * a.y + b.x * b.y + c.x * c.y + d.x * d.y + sx * sy);
+        double cxz = k * (a.x * a.z + b.x * b.z + c.x * c.z + d.x * d.z + sx * sz);
+        double cyz = k * (a.y * a.z + b.y * b.z + c.y * c.z + d.y * d.z + sy * sz);
+
+        return new InertiaTensor(cyy + czz, cxx + czz, cxx + cyy, -cxy, -cxz, -cyz);
+    }
+
     /**
      * @return Строковое представление тетраэдра
      */
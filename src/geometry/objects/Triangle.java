@@ -3,6 +3,7 @@ package geometry.objects;
 import geometry.AABB;
 import geometry.objects3D.*;
 import limiters.Intersectional;
+import limiters.ShapeType;
 import utils.FloatComparator;
 
 import java.awt.*;
@@ -11,12 +12,27 @@ import java.util.HashSet;
 import java.util.Set;
 
 /**
- * Трехмерный треугольник
+ * Трехмерный треугольник. <br>
+ * Треугольник неизменяем (перемещение и поворот создают новый), поэтому плоскость, единичная нормаль, ребра,
+ * ограничивающая коробка и скалярные произведения ребер для барицентрических координат считаются один раз в конструкторе,
+ * а проверки точки и отрезка работают на них без создания объектов
  */
 public class Triangle implements Intersectional {
-    public Point3D A, B, C;
+    public final Point3D A, B, C;
     public Color color;
 
+    private final double e0x, e0y, e0z, e1x, e1y, e1z;
+    private final double nx, ny, nz, offset;
+    private final double dot00, dot01, dot11, inverseDenominator;
+    private final double square;
+    private final Plane3D plane;
+    private final AABB box;
+
+    /**
+     * Барицентрическая погрешность, с которой точка на ребре считается лежащей в треугольнике
+     */
+    private final static double BARYCENTRIC_EPSILON = 1e-9;
+
     /**
      * Конструктор по трем точкам
      * @param a точка 1
@@ -28,6 +44,32 @@ public class Triangle implements Intersectional {
         B = b;
         C = c;
         this.color = color;
+
+        e0x = b.x - a.x;
+        e0y = b.y - a.y;
+        e0z = b.z - a.z;
+        e1x = c.x - a.x;
+        e1y = c.y - a.y;
+        e1z = c.z - a.z;
+
+        double crossX = e0y * e1z - e0z * e1y;
+        double crossY = e0z * e1x - e0x * e1z;
+        double crossZ = e0x * e1y - e0y * e1x;
+        double length = Math.sqrt(crossX * crossX + crossY * crossY + crossZ * crossZ);
+        square = length / 2d;
+        nx = length == 0d ? 0d : crossX / length;
+        ny = length == 0d ? 0d : crossY / length;
+        nz = length == 0d ? 0d : crossZ / length;
+        offset = nx * a.x + ny * a.y + nz * a.z;
+
+        dot00 = e0x * e0x + e0y * e0y + e0z * e0z;
+        dot01 = e0x * e1x + e0y * e1y + e0z * e1z;
+        dot11 = e1x * e1x + e1y * e1y + e1z * e1z;
+        double denominator = dot00 * dot11 - dot01 * dot01;
+        inverseDenominator = denominator == 0d ? 0d : 1d / denominator;
+
+        plane = new Plane3D(a, b, c);
+        box = new AABB(this);
     }
 
     /**
@@ -35,10 +77,7 @@ public class Triangle implements Intersectional {
      * @param polygon полигон
      */
     public Triangle(Polygon3D polygon) {
-        A = polygon.a1;
-        B = polygon.a2;
-        C = polygon.a3;
-        color = polygon.color;
+        this(polygon.a1, polygon.a2, polygon.a3, polygon.color);
     }
 
     /**
@@ -47,21 +86,14 @@ public class Triangle implements Intersectional {
      * @param segment отрезок
      */
     public Triangle(Point3D point, Segment segment, Color color){
-        A = point;
-        B = segment.point1;
-        C = segment.point2;
-        this.color = color;
+        this(point, segment.point1, segment.point2, color);
     }
 
     /**
      * @return Площадь треугольника
      */
     public double getSquare() {
-        double side1 = new Vector3D(A, B).getLength();
-        double side2 = new Vector3D(A, C).getLength();
-        double side3 = new Vector3D(B, C).getLength();
-        double p = (side1 + side3 + side2) / 2.0d;
-        return Math.sqrt(Math.abs(p * (p - side1) * (p - side2) * (p - side3)));
+        return square;
     }
 
     /**
@@ -115,19 +147,175 @@ public class Triangle implements Intersectional {
      * @return Лежит ли данная точка внутри треугольника
      */
     public boolean contains(Point3D point) {
-        double s1 = new Triangle(point, A, B, color).getSquare();
-        double s2 = new Triangle(point, A, C, color).getSquare();
-        double s3 = new Triangle(point, B, C, color).getSquare();
+        return contains(point.x, point.y, point.z);
+    }
+
+    /**
+     * @param x координата точки по Ox
+     * @param y координата точки по Oy
+     * @param z координата точки по Oz
+     * @return Лежит ли данная точка внутри треугольника (в его плоскости и внутри или на границе)
+     */
+    public boolean contains(double x, double y, double z) {
+        return FloatComparator.equals(getSignedDistance(x, y, z), 0d) && containsProjection(x, y, z);
+    }
 
-        return FloatComparator.equals(getSquare(), s1 + s2 + s3) &&
-                FloatComparator.equals(new Plane3D(A, B, C).distance(point), 0d);
+    /**
+     * @return Лежит ли проекция точки на плоскость треугольника внутри треугольника (по барицентрическим координатам)
+     */
+    private boolean containsProjection(double x, double y, double z) {
+        if (inverseDenominator == 0d) return false;
+        double px = x - A.x, py = y - A.y, pz = z - A.z;
+        double dot20 = px * e0x + py * e0y + pz * e0z;
+        double dot21 = px * e1x + py * e1y + pz * e1z;
+        double u = (dot11 * dot20 - dot01 * dot21) * inverseDenominator;
+        double v = (dot00 * dot21 - dot01 * dot20) * inverseDenominator;
+        return u >= -BARYCENTRIC_EPSILON && v >= -BARYCENTRIC_EPSILON && u + v <= 1d + BARYCENTRIC_EPSILON;
+    }
+
+    /**
+     * @param x координата точки по Ox
+     * @param y координата точки по Oy
+     * @param z координата точки по Oz
+     * @return Расстояние от точки до плоскости треугольника со знаком (положительное со стороны нормали)
+     */
+    public double getSignedDistance(double x, double y, double z) {
+        return nx * x + ny * y + nz * z - offset;
     }
 
     /**
      * @return Плоскость, в которой лежит треугольник
      */
     public Plane3D getPlane() {
-        return new Plane3D(A, B, C);
+        return plane;
+    }
+
+    /**
+     * @return Вид формы ({@link ShapeType#TRIANGLE})
+     */
+    @Override
+    public ShapeType getShapeType() {
+        return ShapeType.TRIANGLE;
+    }
+
+    /**
+     * @return Ограничивающая коробка треугольника (общий объект только для чтения)
+     */
+    public AABB getAABB() {
+        return box;
+    }
+
+    /**
+     * @return Единичная нормаль треугольника (направлена по векторному произведению AB и AC)
+     */
+    public Vector3D getNormal() {
+        return new Vector3D(nx, ny, nz);
+    }
+
+    /**
+     * @return Компонента единичной нормали по Ox
+     */
+    public double getNormalX() {
+        return nx;
+    }
+
+    /**
+     * @return Компонента единичной нормали по Oy
+     */
+    public double getNormalY() {
+        return ny;
+    }
+
+    /**
+     * @return Компонента единичной нормали по Oz
+     */
+    public double getNormalZ() {
+        return nz;
+    }
+
+    /**
+     * @return Смещение плоскости треугольника: скалярное произведение единичной нормали на любую точку плоскости
+     */
+    public double getOffset() {
+        return offset;
+    }
+
+    /**
+     * Метод, находящий ближайшую к точке точку треугольника за один проход без создания объектов
+     * (области Вороного вершин, ребер и грани; скалярные произведения ребер берутся из посчитанных в конструкторе)
+     * @param x координата точки по Ox
+     * @param y координата точки по Oy
+     * @param z координата точки по Oz
+     * @param result приемник результата
+     * @return Приемник с ближайшей точкой, расстоянием до нее и нормалью контакта
+     */
+    public ClosestPoint getClosestPoint(double x, double y, double z, ClosestPoint result) {
+        double apx = x - A.x, apy = y - A.y, apz = z - A.z;
+        double d1 = e0x * apx + e0y * apy + e0z * apz;
+        double d2 = e1x * apx + e1y * apy + e1z * apz;
+        if (d1 <= 0d && d2 <= 0d)
+            return toResult(x, y, z, A.x, A.y, A.z, false, result);
+
+        double d3 = d1 - dot00, d4 = d2 - dot01;
+        if (d3 >= 0d && d4 <= d3)
+            return toResult(x, y, z, B.x, B.y, B.z, false, result);
+
+        double vc = d1 * d4 - d3 * d2;
+        if (vc <= 0d && d1 >= 0d && d3 <= 0d) {
+            double v = d1 / (d1 - d3);
+            return toResult(x, y, z, A.x + e0x * v, A.y + e0y * v, A.z + e0z * v, false, result);
+        }
+
+        double d5 = d1 - dot01, d6 = d2 - dot11;
+        if (d6 >= 0d && d5 <= d6)
+            return toResult(x, y, z, C.x, C.y, C.z, false, result);
+
+        double vb = d5 * d2 - d1 * d6;
+        if (vb <= 0d && d2 >= 0d && d6 <= 0d) {
+            double w = d2 / (d2 - d6);
+            return toResult(x, y, z, A.x + e1x * w, A.y + e1y * w, A.z + e1z * w, false, result);
+        }
+
+        double va = d3 * d6 - d5 * d4;
+        if (va <= 0d && d4 - d3 >= 0d && d5 - d6 >= 0d) {
+            double w = (d4 - d3) / ((d4 - d3) + (d5 - d6));
+            return toResult(x, y, z, B.x + (C.x - B.x) * w, B.y + (C.y - B.y) * w, B.z + (C.z - B.z) * w, false, result);
+        }
+
+        double denominator = va + vb + vc;
+        if (denominator == 0d)
+            return toResult(x, y, z, A.x, A.y, A.z, false, result);
+        double v = vb / denominator, w = vc / denominator;
+        return toResult(x, y, z, A.x + e0x * v + e1x * w, A.y + e0y * v + e1y * w, A.z + e0z * v + e1z * w, true, result);
+    }
+
+    /**
+     * @param x координата центра куба по Ox
+     * @param y координата центра куба по Oy
+     * @param z координата центра куба по Oz
+     * @param halfSize половина стороны куба (например, радиус описываемой им сферы)
+     * @return Пересекается ли куб с осями, параллельными осям координат, с ограничивающим параллелепипедом треугольника
+     */
+    public boolean isBoxIntersected(double x, double y, double z, double halfSize) {
+        if (x + halfSize < box.getMinX() || x - halfSize > box.getMaxX()) return false;
+        if (y + halfSize < box.getMinY() || y - halfSize > box.getMaxY()) return false;
+        return !(z + halfSize < box.getMinZ()) && !(z - halfSize > box.getMaxZ());
+    }
+
+    /**
+     * Метод, записывающий в приемник ближайшую точку, расстояние и нормаль
+     * (для точки внутри грани нормаль берется из плоскости, чтобы не накапливать погрешность разности)
+     */
+    private ClosestPoint toResult(double x, double y, double z, double cx, double cy, double cz, boolean onFace, ClosestPoint result) {
+        double dx = x - cx, dy = y - cy, dz = z - cz;
+        double distance = Math.sqrt(dx * dx + dy * dy + dz * dz);
+        if (distance == 0d)
+            return result.set(cx, cy, cz, nx, ny, nz, 0d, onFace);
+        if (onFace) {
+            double sign = Math.signum(nx * dx + ny * dy + nz * dz);
+            return result.set(cx, cy, cz, nx * sign, ny * sign, nz * sign, distance, true);
+        }
+        return result.set(cx, cy, cz, dx / distance, dy / distance, dz / distance, distance, onFace);
     }
 
     /**
@@ -136,20 +324,22 @@ public class Triangle implements Intersectional {
      */
     public ArrayList<Point3D> getIntersectionWithPlane(Plane3D plane){
         ArrayList<Point3D> intersectionPoints = new ArrayList<>();
-
-        for (Line3D triangleLine : getSegments()) {
-            try {
-                Point3D intersectionPoint = plane.getIntersection(triangleLine).get();
-                if (contains(intersectionPoint)) {
-                    intersectionPoints.add(intersectionPoint);
-                }
-            }
-            catch (Exception ignored){}
-        }
-
+        addIntersection(plane, A, B, intersectionPoints);
+        addIntersection(plane, C, B, intersectionPoints);
+        addIntersection(plane, A, C, intersectionPoints);
         return intersectionPoints;
     }
 
+    /**
+     * Метод, добавляющий в список точку пересечения плоскости с прямой ребра, если она лежит в треугольнике
+     */
+    private void addIntersection(Plane3D plane, Point3D first, Point3D second, ArrayList<Point3D> intersectionPoints) {
+        plane.getIntersection(new Line3D(first, second)).ifPresent(point -> {
+            if (contains(point))
+                intersectionPoints.add(point);
+        });
+    }
+
     /**
      * @return Множество граней треугольника
      */
@@ -179,14 +369,37 @@ public class Triangle implements Intersectional {
      * @return Пересекает ли треугольник данный отрезок
      */
     public boolean isIntersectedWithSegment(Segment segment){
-        try {
-            Point3D intersectionPoint = getPlane().getIntersection(segment).get();
-            return new AABB(segment).isPointIn(intersectionPoint) && contains(intersectionPoint);
-        }
-        catch (Exception exception){
-            return false;
-        }
+        Point3D p1 = segment.point1, p2 = segment.point2;
+        return isIntersectedWithSegment(p1.x, p1.y, p1.z, p2.x, p2.y, p2.z);
+    }
 
+    /**
+     * @param x1 координата первого конца отрезка по Ox
+     * @param y1 координата первого конца отрезка по Oy
+     * @param z1 координата первого конца отрезка по Oz
+     * @param x2 координата второго конца отрезка по Ox
+     * @param y2 координата второго конца отрезка по Oy
+     * @param z2 координата второго конца отрезка по Oz
+     * @return Пересекает ли треугольник данный отрезок
+     */
+    public boolean isIntersectedWithSegment(double x1, double y1, double z1, double x2, double y2, double z2){
+        double distance1 = getSignedDistance(x1, y1, z1);
+        double distance2 = getSignedDistance(x2, y2, z2);
+        if (distance1 == distance2) return false;
+        double t = distance1 / (distance1 - distance2);
+        double x = x1 + (x2 - x1) * t;
+        double y = y1 + (y2 - y1) * t;
+        double z = z1 + (z2 - z1) * t;
+        return isBetween(x, x1, x2) && isBetween(y, y1, y2) && isBetween(z, z1, z2)
+                && containsProjection(x, y, z);
+    }
+
+    /**
+     * @return Лежит ли координата между двумя данными (с погрешностью {@link FloatComparator})
+     */
+    private static boolean isBetween(double value, double bound1, double bound2) {
+        return FloatComparator.compare(Math.max(bound1, bound2), value) != -1
+                && FloatComparator.compare(Math.min(bound1, bound2), value) != 1;
     }
 
     /**
@@ -4,4 +4,10 @@ package limiters;
  * Объекты классов, реализующих этот интерфейс могут сталкивать(иметь коллизию) <br> См. {@link physics.CollisionalPair}
  */
 
-public interface Collisional {}
+public interface Collisional {
+
+    /**
+     * @return Вид формы объекта
+     */
+    ShapeType getShapeType();
+}
@@ -2,4 +2,10 @@ package limiters;
 
 /** Объекты классов, реализующих этот интерфейс могут проверяться на пересечение <br> См. {@link geometry.intersections.IntersectionalPair}*/
 
-public interface Intersectional {}
+public interface Intersectional {
+
+    /**
+     * @return Вид формы объекта
+     */
+    ShapeType getShapeType();
+}
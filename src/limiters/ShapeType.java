@@ -0,0 +1,13 @@
+package limiters;
+
+/**
+ * Виды формы объектов {@link Intersectional} и {@link Collisional}. Номер вида (см {@link #ordinal()}) служит индексом
+ * в таблицах методов для пар объектов (см {@link geometry.intersections.IntersectionalPair}, {@link physics.CollisionalPair}),
+ * поэтому наследники объекта (например, {@link physical_objects.GravityPlate}) обрабатываются так же, как он сам
+ */
+public enum ShapeType {
+    SPHERE,
+    POLYHEDRON,
+    WALL,
+    TRIANGLE
+}
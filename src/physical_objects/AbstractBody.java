@@ -2,23 +2,44 @@ package physical_objects;
 
 import drawing.Drawable;
 import exceptions.ImpossibleObjectException;
+import geometry.AABB;
+import geometry.MutableAABB;
+import geometry.Quaternion;
 import geometry.objects3D.Point3D;
 import geometry.objects3D.Vector3D;
+import physics.BodyStore;
 import physics.Material;
 import physics.Space;
 
 /**
- * Абстарктное физическое тело
+ * Абстарктное физическое тело. <br>
+ * Положение, скорость, ускорение и угловая скорость тела хранятся в хранилище пространства
+ * (см {@link physics.BodyStore}), а тело служит ссылкой на свою строку в нем
  */
 public abstract class AbstractBody implements Drawable{
 
-    protected double x0, y0, z0;
-    protected Vector3D v;
-    protected Vector3D a;
-    protected Vector3D w;
+    protected final BodyStore store;
+    protected final int id;
+    protected Quaternion orientation;
+    protected boolean sleeping;
+    protected int restSteps;
+    protected long island;
+    protected int islandRoot;
+    protected boolean continuous;
     protected final Material material;
     protected final double m;
     protected transient Space space;
+    private volatile Point3D predictedCentre;
+    private final MutableAABB currentBox;
+    private final MutableAABB predictedBox;
+    private final MutableAABB sweptBox;
+    private volatile boolean boundsValid;
+
+    {
+        currentBox = new MutableAABB();
+        predictedBox = new MutableAABB();
+        sweptBox = new MutableAABB();
+    }
 
     /**
      *Конструктор
@@ -33,17 +54,16 @@ public abstract class AbstractBody implements Drawable{
      * @throws ImpossibleObjectException исключение в случае попытки создания тела с нулевой массой
      */
     protected AbstractBody(Space space, double x0, double y0, double z0, Vector3D v, Vector3D w, Material material, double m) throws ImpossibleObjectException {
+        if (m <= 0d) throw new ImpossibleObjectException("Impossible object; mass is null");
         this.space = space;
-        this.v = v;
-        this.w = w;
-        this.a = new Vector3D(0,0,0);
-        this.a = space.getG(this);
-        this.x0 = x0;
-        this.y0 = y0;
-        this.z0 = z0;
+        this.orientation = Quaternion.IDENTITY;
         this.material = material;
         this.m = m;
-        if (m <= 0d) throw new ImpossibleObjectException("Impossible object; mass is null");
+        this.store = space.getBodyStore();
+        this.id = store.add(x0, y0, z0, m);
+        store.setVelocity(id, v.x, v.y, v.z);
+        store.setAngularVelocity(id, w.x, w.y, w.z);
+        setAcceleration(space.getG(this));
     }
 
     /**
@@ -64,32 +84,111 @@ public abstract class AbstractBody implements Drawable{
      * Метод, обновляющий положение тела и др данные
      */
     public synchronized void update() {
-        changeSpeed();
-        updateDrawingInterpretation();
-        x0 += v.x * space.getDT() + a.x * space.getDT() * space.getDT() / 2d;
-        y0 += v.y * space.getDT() + a.y * space.getDT() * space.getDT() / 2d;
-        z0 += v.z * space.getDT() + a.z * space.getDT() * space.getDT() / 2d;
-        a = space.getG(this);
+        store.integrate(id, space.getDT());
+        finishUpdate();
+    }
+
+    /**
+     * Метод, завершающий шаг тела после того, как хранилище проинтегрировало его линейное движение
+     * (см {@link physics.BodyStore#integrate(double)}): тело поворачивается, а ускорение пересчитывается в новом положении
+     */
+    public synchronized void finishUpdate() {
+        orientation = Quaternion.fromRotationVector(store.getWX(id) * space.getDT(), store.getWY(id) * space.getDT(),
+                store.getWZ(id) * space.getDT())
+                .multiply(orientation)
+                .normalize();
+        setAcceleration(space.getG(this));
+        invalidatePrediction();
+    }
+
+    /**
+     * @param a новое ускорение тела
+     */
+    private void setAcceleration(Vector3D a) {
+        store.setAcceleration(id, a.x, a.y, a.z);
+    }
+
+    /**
+     * Метод, сбрасывающий запомненное будущее положение тела. <br>
+     * Будущее положение за шаг запрашивается многократно, поэтому считается один раз; метод вызывается
+     * при любом изменении положения, скорости, угловой скорости или ускорения тела. Вместе с ним
+     * устаревают и ограничивающие коробки
+     */
+    protected void invalidatePrediction() {
+        predictedCentre = null;
+        boundsValid = false;
     }
 
     /**
-     * Метод, обноляющий скорость тела
+     * Метод, пересчитывающий ограничивающие коробки тела (текущую, будущую и заметаемую за шаг), если тело
+     * изменилось с прошлого пересчета. Обработчик физики вызывает его для всех тел один раз перед поиском пар,
+     * поэтому узкая фаза только читает готовые коробки
      */
-    private synchronized void changeSpeed() {
-        v = new Vector3D(v.x + a.x * space.getDT(),
-                v.y + a.y * space.getDT(),
-                v.z + a.z * space.getDT());
+    public void updateBounds() {
+        if (boundsValid) return;
+        synchronized (this) {
+            if (boundsValid) return;
+            computeBox(false, currentBox);
+            computeBox(true, predictedBox);
+            sweptBox.set(currentBox);
+            sweptBox.include(predictedBox);
+            boundsValid = true;
+        }
+    }
+
+    /**
+     * Метод, записывающий в коробку границы тела
+     * @param mode считать ли в будущем положении
+     * @param box коробка, которую нужно заполнить
+     */
+    protected abstract void computeBox(boolean mode, MutableAABB box);
+
+    /**
+     * @param mode считать ли в будущем положении
+     * @return Ограничивающая коробка тела (общий объект только для чтения; действителен до изменения тела)
+     */
+    public AABB getAABB(boolean mode) {
+        updateBounds();
+        return mode ? predictedBox : currentBox;
+    }
+
+    /**
+     * @return Коробка, ограничивающая тело в текущем и будущем положении (общий объект только для чтения)
+     */
+    public AABB getSweptAABB() {
+        updateBounds();
+        return sweptBox;
+    }
+
+    /**
+     * @return Радиус ограничивающей сферы с центром в центре масс тела (не зависит от положения и ориентации)
+     */
+    public abstract double getBoundingRadius();
+
+    /**
+     * Метод, перемещающий тело на заданный вектор
+     * @param movement вектор перемещения
+     */
+    public synchronized void move(Vector3D movement) {
+        wakeUp();
+        store.translate(id, movement.x, movement.y, movement.z);
+        invalidatePrediction();
     }
 
     /**
      * @param mode считать ли в будущем положении
      * @return Точка - центр масс тела
      */
-    public final synchronized Point3D getPositionOfCentre(boolean mode) {
-        double m = mode ? 1.0f : 0.0f;
-        return new Point3D(x0 + m * v.x * space.getDT() + m * a.x * space.getDT() * space.getDT() / 2d,
-                y0 + m * v.y * space.getDT() + m * a.y * space.getDT() * space.getDT() / 2d,
-                z0 + m * v.z * space.getDT() + m * a.z * space.getDT() * space.getDT() / 2d);
+    public final Point3D getPositionOfCentre(boolean mode) {
+        if (!mode)
+            return new Point3D(store.getX(id), store.getY(id), store.getZ(id));
+        Point3D centre = predictedCentre;
+        if (centre == null) {
+            final double dt = space.getDT();
+            predictedCentre = centre = new Point3D(store.getPredictedX(id, dt), store.getPredictedY(id, dt),
+                    store.getPredictedZ(id, dt));
+        }
+        return centre;
     }
 
     /**
@@ -103,28 +202,42 @@ public abstract class AbstractBody implements Drawable{
      * @return Скорость тела
      */
     public Vector3D getV() {
-        return v;
+        return new Vector3D(store.getVX(id), store.getVY(id), store.getVZ(id));
     }
 
     /**
      * @return Угловая скорость тела
      */
     public Vector3D getW() {
-        return w;
+        return new Vector3D(store.getWX(id), store.getWY(id), store.getWZ(id));
     }
 
     /**
      * @return Позиция тела
      */
     public Point3D getPos(){
-        return new Point3D(x0, y0, z0);
+        return new Point3D(store.getX(id), store.getY(id), store.getZ(id));
     }
 
     /**
      * @return Ускорение тела
      */
     public Vector3D getA(){
-        return a;
+        return new Vector3D(store.getAX(id), store.getAY(id), store.getAZ(id));
+    }
+
+    /**
+     * @return Номер тела в хранилище пространства
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * @return Ориентация тела относительно начальной
+     */
+    public Quaternion getOrientation() {
+        return orientation;
     }
 
     /**
@@ -141,25 +254,115 @@ public abstract class AbstractBody implements Drawable{
         return space;
     }
 
-    /** Метод, инициализирцющий пространство, в котором находится объект
-     * @param space пространство
-     */
-    public void initSpace(Space space){
-        this.space = space;
-    }
-
-    /** Метод, задающий новую скорость телу
+    /** Метод, задающий новую скорость телу (будит тело)
      * @param v новая скорость
      */
     public synchronized void setV(Vector3D v) {
-        this.v = v;
+        wakeUp();
+        store.setVelocity(id, v.x, v.y, v.z);
+        invalidatePrediction();
     }
 
     /**
-     *Метод, задающий новую угловую скорость телу
+     *Метод, задающий новую угловую скорость телу (будит тело)
      * @param w новая угловая скорость
      */
     public synchronized void setW(Vector3D w) {
-        this.w = w;
+        wakeUp();
+        store.setAngularVelocity(id, w.x, w.y, w.z);
+        invalidatePrediction();
+    }
+
+    /**
+     * Метод, обновляющий счетчик шагов, которые тело провело почти в покое. К порогу скорости добавляется
+     * скорость, набираемая от ускорения за один шаг: лежащее на опоре тело касается ее через шаг и между
+     * касаниями успевает ее набрать
+     * @param linearSpeed скорость, ниже которой тело считается покоящимся
+     * @param angularSpeed угловая скорость, ниже которой тело считается покоящимся
+     */
+    public void countRest(double linearSpeed, double angularSpeed) {
+        double v = length(store.getVX(id), store.getVY(id), store.getVZ(id));
+        double a = length(store.getAX(id), store.getAY(id), store.getAZ(id));
+        double w = length(store.getWX(id), store.getWY(id), store.getWZ(id));
+        if (v < linearSpeed + a * space.getDT() && w < angularSpeed)
+            restSteps++;
+        else
+            restSteps = 0;
+    }
+
+    private static double length(double x, double y, double z) {
+        return Math.sqrt(x * x + y * y + z * z);
+    }
+
+    /**
+     * @return Количество шагов подряд, которые тело провело почти в покое
+     */
+    public int getRestSteps() {
+        return restSteps;
+    }
+
+    /**
+     * Метод, усыпляющий тело: скорости и ускорение обнуляются, а тело перестает обновляться и проверяться на столкновения,
+     * пока его не разбудят. Вызывается обработчиком физики сразу для всего острова касающихся тел
+     * @param island номер острова
+     * @param islandRoot номер в хранилище тел одного из тел острова (см {@link #getIslandRoot()})
+     */
+    public synchronized void sleep(long island, int islandRoot) {
+        sleeping = true;
+        this.island = island;
+        this.islandRoot = islandRoot;
+        store.setVelocity(id, 0, 0, 0);
+        store.setAngularVelocity(id, 0, 0, 0);
+        store.setAcceleration(id, 0, 0, 0);
+        invalidatePrediction();
+    }
+
+    /**
+     * Метод, будящий тело (если оно спит) и возвращающий ему ускорение
+     */
+    public synchronized void wakeUp() {
+        if (!sleeping) return;
+        sleeping = false;
+        restSteps = 0;
+        setAcceleration(space.getG(this));
+        invalidatePrediction();
+    }
+
+    /**
+     * @return Спит ли тело
+     */
+    public boolean isSleeping() {
+        return sleeping;
+    }
+
+    /**
+     * @return Номер острова, вместе с которым тело уснуло
+     */
+    public long getIsland() {
+        return island;
+    }
+
+    /**
+     * @return Номер в хранилище тел одного из тел острова, вместе с которым тело уснуло. Обработчик физики
+     * отмечает по нему задетые острова в массиве, индексируемом номерами хранилища
+     */
+    public int getIslandRoot() {
+        return islandRoot;
+    }
+
+    /**
+     * @return Проверяется ли столкновение тела непрерывно (по всему пути за шаг, а не только в будущем положении)
+     */
+    public boolean isContinuous() {
+        return continuous;
+    }
+
+    /**
+     * Метод, включающий непрерывную проверку столкновений: быстрое тело не пролетит сквозь тонкую стену
+     * или другое тело за один шаг, но поиск его контактов дороже
+     * @param continuous нужно ли проверять столкновения тела непрерывно
+     */
+    public void setContinuous(boolean continuous) {
+        this.continuous = continuous;
     }
 }
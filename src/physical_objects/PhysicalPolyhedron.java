@@ -3,7 +3,7 @@ package physical_objects;
 import exceptions.ImpossibleObjectException;
 import geometry.*;
 import geometry.intersections.PolyhedronToPlaneIntersection;
-import geometry.objects.FlatShape;
+import geometry.objects.IndexedMesh;
 import geometry.objects.Segment;
 import geometry.objects.Triangle;
 import geometry.objects3D.*;
@@ -11,9 +11,9 @@ import geometry.polygonal.Polyhedron;
 import graph.CanvasPanel;
 import limiters.Collisional;
 import limiters.Intersectional;
+import limiters.ShapeType;
 import physics.Material;
 import physics.Space;
-import utils.Pair;
 import utils.Tools;
 
 import java.util.*;
@@ -24,15 +24,13 @@ import java.util.*;
 public class PhysicalPolyhedron extends AbstractBody implements Collisional, Intersectional {
 
     private Polyhedron drawableInterpretation;
-    private final ArrayList<Point3D> points;
-    private final ArrayList<Triangle> triangles;
-    private final static long depth = 30;
-    private final Set<Pair<Vector3D, Point3D>> impulses;
-
-    {
-        impulses = new HashSet<>();
-        triangles = new ArrayList<>();
-    }
+    private Point3D drawnPosition;
+    private Quaternion drawnOrientation;
+    private final IndexedMesh mesh;
+    private final InertiaTensor inertia;
+    private final double boundingRadius;
+    private volatile MeshPose current;
+    private volatile MeshPose predicted;
 
 
     /**
@@ -50,38 +48,29 @@ public class PhysicalPolyhedron extends AbstractBody implements Collisional, Int
                 builder.getCentreOfMass().x, builder.getCentreOfMass().y, builder.getCentreOfMass().z,
                 v, w, material, builder.getVolume() * material.p);
 
-        this.points = builder.getPoints();
-        this.triangles.addAll(builder.getTriangles());
-        pushToCanvas(space.getCanvas());
+        this.inertia = builder.getInertiaTensor().multiply(material.p);
+        this.mesh = builder.getMesh();
+        double[] vertices = mesh.getVertices();
+        double radius = 0;
+        for (int i = 0; i < vertices.length; i += 3)
+            radius = Math.max(radius, vertices[i] * vertices[i] + vertices[i + 1] * vertices[i + 1] + vertices[i + 2] * vertices[i + 2]);
+        this.boundingRadius = Math.sqrt(radius);
+        store.setRadius(id, boundingRadius);
+        if (!space.isHeadless())
+            pushToCanvas(space.getCanvas());
     }
 
 
     /**
-     * Метод, обновляющий положение многогранника и др данные
+     * Метод, завершающий шаг многогранника после интегрирования его линейного движения. <br>
+     * Сетка многогранника хранится в собственной системе координат тела и не пересчитывается:
+     * меняются только положение центра масс и ориентация, а вершины и грани в пространстве
+     * строятся заново при первом запросе после шага
      */
     @Override
-    public synchronized void update() {
-
-
-        for (Pair<Vector3D, Point3D> impulse : impulses) applyImpulse(impulse.first, impulse.second, true);
-        impulses.clear();
-
-        super.update();
-        Vector3D movement = getMovement();
-
-        for (int i =0; i < points.size(); i++)
-            points.set(i, points.get(i).rotate(w.multiply(space.getDT()), getPositionOfCentre(false)));
-
-        for (int i = 0; i < triangles.size(); i++)
-            triangles.set(i, triangles.get(i).rotate(w.multiply(space.getDT()), getPositionOfCentre(false)));
-
-        for (int i = 0; i < points.size(); i++)
-            points.set(i, movement.addToPoint(points.get(i)));
-
-        for (int i = 0; i < triangles.size(); i++)
-            triangles.set(i, triangles.get(i).move(movement));
-
-
+    public synchronized void finishUpdate() {
+        super.finishUpdate();
+        current = null;
     }
 
     /**
@@ -101,63 +90,37 @@ public class PhysicalPolyhedron extends AbstractBody implements Collisional, Int
     /**
      * @param line прямая, относительно которой вычисляется момент инерции
      * @param mode считать ли относительно будщего положенния
-     * @return Момент инерции многогранника относительно произвольной оси
+     * @return Момент инерции многогранника относительно произвольной оси. <br>
+     * Ось переводится в начальное положение многогранника поворотом, обратным его ориентации, и момент берется
+     * из тензора инерции относительно центра масс; если ось не проходит через центр масс, добавляется m * d^2
      */
-    public synchronized double getJ(Line3D line, boolean mode) {
-
-        double J = 0d;
-
-        Segment projection = getProjectionOnLine(line, mode);
-        Vector3D projectionVector = projection.getVector();
-        Point3D currentPoint = projection.point1;
-        double movement = projectionVector.getLength() / (double) (depth - 1);
-
-        projectionVector = projectionVector.multiply(movement / projectionVector.getLength());
-        Set<Segment> segments = new HashSet<>();
-        currentPoint = projectionVector.addToPoint(currentPoint);
-        Plane3D plane = new Plane3D(projectionVector, currentPoint);
-
-        for (int i = 0; i < depth; i++) {
-
-            for (Triangle triangle : triangles){
-                ArrayList<Point3D> intersectionPoints = triangle.getIntersectionWithPlane(plane);
-                if (intersectionPoints.size() > 1)
-                    try {
-                        segments.add(new Segment(intersectionPoints.get(0), intersectionPoints.get(1)));
-                    } catch (Exception ignored){}
-            }
-            if (segments.size() != 0) {
-                FlatShape shape = new FlatShape(segments);
-//
-                J += shape.getRelativeJ(line) * material.p * movement;
-
-
-                if (i == depth - 1) J += shape.getRelativeJ(line) * material.p * movement;
-            }
-
-            segments.clear();
-//            System.out.println(currentPoint);
-            currentPoint = projectionVector.addToPoint(currentPoint);
-            plane = new Plane3D(projectionVector, currentPoint);
-
-        }
+    public double getJ(Line3D line, boolean mode) {
+        double J = inertia.getMoment(getPose(mode).orientation.conjugate().rotate(line.vector));
 
-        return J;
+        double length = line.vector.getLength();
+        if (length == 0d) return J;
+        double distance = new Vector3D(line.point, getPositionOfCentre(mode)).vectorProduct(line.vector).getLength() / length;
+        return J + m * distance * distance;
     }
 
     /**
-     * Метод, обрабатывающий приложения импульса силы к многограннику
+     * Метод, обрабатывающий приложения импульса силы к многограннику (будит многогранник)
      * @param impulse прикладываемый к многограннику импульс
      * @param applicationPoint точка приложения импульса
      * @param mode считать ли относительно будущего положения
      */
     public synchronized void applyImpulse(Vector3D impulse, Point3D applicationPoint, boolean mode){
         if (impulse.getLength() == 0d) return;
-        v = v.add(impulse.multiply(1d / m));
+        wakeUp();
+        Vector3D dv = impulse.multiply(1d / m);
+        store.addVelocity(id, dv.x, dv.y, dv.z);
+        invalidatePrediction();
         Vector3D radVector = new Vector3D(getPositionOfCentre(mode), applicationPoint);
         Plane3D impulsePlane = new Plane3D(getPositionOfCentre(mode), applicationPoint, impulse.addToPoint(applicationPoint));
         double J = getJ(new Line3D(getPositionOfCentre(mode), impulsePlane.vector), mode);
-        w = w.add(radVector.vectorProduct(impulse).multiply(1d / J));
+        Vector3D dw = radVector.vectorProduct(impulse).multiply(1d / J);
+        store.addAngularVelocity(id, dw.x, dw.y, dw.z);
+        invalidatePrediction();
     }
 
     /**
@@ -174,97 +137,143 @@ public class PhysicalPolyhedron extends AbstractBody implements Collisional, Int
      * @param intersection пересчение многогранника и плоскости
      */
     public synchronized void pullFromPlane(PolyhedronToPlaneIntersection intersection){
-        if (intersection.getValue() != 0){
-            Vector3D movementVector = new Vector3D(intersection.getPointOfPolygon(), intersection.getIntersectionPoint());
-            if (movementVector.getLength() != 0d){
-                movementVector = movementVector.normalize();
-                move(movementVector.multiply(intersection.getValue()));
-            }
-        }
+        Vector3D movement = getPull(intersection);
+        if (movement != null)
+            move(movement);
+    }
+
+    /**
+     * @param intersection пересчение многогранника и плоскости
+     * @return Вектор смещения, выталкивающий многогранник из плоскости, или null, если смещать не нужно
+     */
+    public Vector3D getPull(PolyhedronToPlaneIntersection intersection){
+        if (intersection.getValue() == 0)
+            return null;
+        Vector3D movementVector = new Vector3D(intersection.getPointOfPolygon(), intersection.getIntersectionPoint());
+        if (movementVector.getLength() == 0d)
+            return null;
+        return movementVector.normalize().multiply(intersection.getValue());
     }
 
     /**
      * Метод, перемещающий многогранник на заданный вектор
      * @param movement вектор перемещения
      */
+    @Override
     public synchronized void move(Vector3D movement){
-        x0 += movement.x;
-        y0 += movement.y;
-        z0 += movement.z;
-        for (int i = 0; i < triangles.size(); i++) triangles.set(i, triangles.get(i).move(movement));
-        for (int i = 0; i < points.size(); i++) points.set(i, movement.addToPoint(points.get(i)));
-        Point3D oldZero = drawableInterpretation.getZero();
-        drawableInterpretation.setZero(movement.addToPoint(oldZero));
+        store.translate(id, movement.x, movement.y, movement.z);
+        current = null;
+        invalidatePrediction();
     }
 
     /**
-     * @param mode считать ли относительно будушего положения
-     * @return Вершины многогранника
+     * Метод, сбрасывающий будущее положение многогранника вместе с построенной для него сеткой
      */
-    public Set<Point3D> getPoints(boolean mode) {
-        if (!mode) {
-            return new HashSet<>(points);
-        }
-        else {
-            HashSet<Point3D> newPoints = new HashSet<>();
-
-            Vector3D movement = getMovement();
-
-            for (Point3D point : points)
-                newPoints.add(movement.addToPoint(point).rotate(w.multiply(space.getDT()), getPositionOfCentre(true)));
+    @Override
+    protected void invalidatePrediction() {
+        super.invalidatePrediction();
+        predicted = null;
+    }
 
-            return newPoints;
+    /**
+     * @param mode считать ли относительно будущего положения
+     * @return Положение многогранника, общее для всех запросов до его изменения
+     */
+    private MeshPose getPose(boolean mode) {
+        MeshPose pose = mode ? predicted : current;
+        if (pose != null) return pose;
+        synchronized (this) {
+            if (mode) {
+                if (predicted == null)
+                    predicted = new MeshPose(Quaternion.fromRotationVector(getW().multiply(space.getDT())).multiply(orientation),
+                            getPositionOfCentre(true));
+                return predicted;
+            }
+            if (current == null)
+                current = new MeshPose(orientation, getPositionOfCentre(false));
+            return current;
         }
     }
 
     /**
-     * @param mode считать ли относительно юудущего положения
-     * @return Треугольники граней многогранника
+     * @param mode считать ли относительно будушего положения
+     * @return Вершины многогранника (общий для всех вызовов список, который нельзя менять)
      */
-    public Set<Triangle> getTriangles(boolean mode){
-        if (!mode) {
-            return new HashSet<>(triangles);
-        }
-        else {
-            Set<Triangle> newTriangles = new HashSet<>();
+    public List<Point3D> getPoints(boolean mode) {
+        return getPose(mode).getPoints();
+    }
 
-            Vector3D movement = getMovement();
+    /**
+     * @param mode считать ли относительно будушего положения
+     * @return Координаты вершин многогранника подряд (по три числа на вершину) для {@link geometry.intersections.GjkEpa}
+     * (общий для всех вызовов массив, который нельзя менять)
+     */
+    public double[] getVertices(boolean mode) {
+        return getPose(mode).getVertices();
+    }
 
-            for (Triangle triangle : triangles)
-                newTriangles.add(triangle.move(movement).rotate(w.multiply(space.getDT()), getPositionOfCentre(true)));
+    /**
+     * @param mode считать ли относительно юудущего положения
+     * @return Треугольники граней многогранника (общий для всех вызовов список, который нельзя менять)
+     */
+    public List<Triangle> getTriangles(boolean mode){
+        return getPose(mode).getTriangles();
+    }
 
-            return newTriangles;
+    /**
+     * @param mode считать ли относительно будущего положения
+     * @return Ребра многогранника, каждое один раз (общий для всех вызовов список, который нельзя менять)
+     */
+    public List<Segment> getSegments(boolean mode){
+        return getPose(mode).getSegments();
+    }
 
-        }
+    /**
+     * @return Индексированная сетка многогранника в собственной системе координат (начало - центр масс,
+     * оси - в начальной ориентации)
+     */
+    public IndexedMesh getMesh() {
+        return mesh;
     }
 
+    /**
+     * @return Вид формы ({@link ShapeType#POLYHEDRON})
+     */
+    @Override
+    public ShapeType getShapeType() {
+        return ShapeType.POLYHEDRON;
+    }
 
     /**
-     * @param mode считать ли относительно будущего положения
-     * @return Ребра многогранника
+     * @return Радиус ограничивающей сферы: наибольшее расстояние от центра масс до вершины
      */
-    public Set<Segment> getSegments(boolean mode){
-        HashSet<Segment> segments = new HashSet<>();
-        for (Triangle triangle : getTriangles(mode))
-            segments.addAll(triangle.getSegments());
-        return segments;
+    @Override
+    public double getBoundingRadius() {
+        return boundingRadius;
     }
 
     /**
-     * @return Импульсы, прикладываемые к объекту в данный временной шаг
+     * Метод, записывающий в коробку границы многогранника по вершинам в пространстве
+     * @param mode считать ли в будущем положении
+     * @param box коробка, которую нужно заполнить
      */
+    @Override
+    protected void computeBox(boolean mode, MutableAABB box) {
+        box.setPoints(getVertices(mode));
+    }
 
-    public Set<Pair<Vector3D, Point3D>> getImpulses() {
-        return impulses;
+    /**
+     * @return Количество вершин многогранника
+     */
+    public int getPointsCount() {
+        return mesh.getVerticesCount();
     }
 
     /**
-     * @return Смещение многогоугольника за момент времени <b>dt</b> (см {@link physics.Space})
+     * @return Количество граней(треугольников) многогранника
      */
-    private Vector3D getMovement() {
-        return new Vector3D(v.x * space.getDT() + a.x * space.getDT() * space.getDT() / 2d,
-                v.y * space.getDT() + a.y * space.getDT() * space.getDT() / 2d,
-                v.z * space.getDT() + a.z * space.getDT() * space.getDT() / 2d);
+    public int getTrianglesCount() {
+        return mesh.getTrianglesCount();
     }
 
     /**
@@ -273,7 +282,7 @@ public class PhysicalPolyhedron extends AbstractBody implements Collisional, Int
      * @return Полная скорость данной точки
      */
     public Vector3D getVelOfPoint(Point3D point, boolean mode){
-        return v.add(getRotationVelOfPoint(point, mode));
+        return getV().add(getRotationVelOfPoint(point, mode));
     }
 
     /**
@@ -282,7 +291,7 @@ public class PhysicalPolyhedron extends AbstractBody implements Collisional, Int
      * @return Скорость вращения данной точки
      */
     public Vector3D getRotationVelOfPoint(Point3D point, boolean mode){
-        return w.vectorProduct(new Vector3D(getPositionOfCentre(mode), point));
+        return getW().vectorProduct(new Vector3D(getPositionOfCentre(mode), point));
     }
 
     /**
@@ -292,20 +301,106 @@ public class PhysicalPolyhedron extends AbstractBody implements Collisional, Int
     @Override
     public void pushToCanvas(CanvasPanel canvas) {
         Set<Polygon3D> polygons = new HashSet<>();
-        triangles.forEach(triangle -> polygons.add(triangle.toPolygon(Tools.getRandomColor())));
+        getTriangles(false).forEach(triangle -> polygons.add(triangle.toPolygon(Tools.getRandomColor())));
         drawableInterpretation = new Polyhedron(Point3D.ZERO, polygons);
+        drawnPosition = getPositionOfCentre(false);
+        drawnOrientation = orientation;
         canvas.getPolygonals().add(drawableInterpretation);
     }
 
     /**
      * Метод, обновляющий графическую интерпритацию многогранника
+     * @param position положение центра масс многогранника
+     * @param orientation ориентация многогранника
      */
     @Override
-    public void updateDrawingInterpretation() {
-        drawableInterpretation.rotate(w.multiply(space.getDT()), getPositionOfCentre(false));
+    public void updateDrawingInterpretation(Point3D position, Quaternion orientation) {
+        if (drawableInterpretation == null) return;
+        drawableInterpretation.rotate(orientation.multiply(drawnOrientation.conjugate()).toRotationVector(), drawnPosition);
         Point3D oldZero = drawableInterpretation.getZero();
-        Vector3D movement = getMovement();
-        drawableInterpretation.setZero(movement.addToPoint(oldZero));
+        drawableInterpretation.setZero(new Vector3D(drawnPosition, position).addToPoint(oldZero));
+        drawnPosition = position;
+        drawnOrientation = orientation;
+    }
 
+    /**
+     * Положение многогранника (ориентация и центр масс) и сетка в этом положении. <br>
+     * Вершины, грани и ребра строятся при первом запросе и дальше отдаются без пересчета, пока положение
+     * не изменится и многогранник не заменит его новым
+     */
+    private final class MeshPose {
+
+        private final Quaternion orientation;
+        private final Point3D centre;
+        private double[] vertices;
+        private List<Point3D> points;
+        private List<Triangle> triangles;
+        private List<Segment> segments;
+
+        /**
+         * Конструктор
+         * @param orientation ориентация многогранника
+         * @param centre центр масс многогранника
+         */
+        private MeshPose(Quaternion orientation, Point3D centre) {
+            this.orientation = orientation;
+            this.centre = centre;
+        }
+
+        /**
+         * @return Координаты вершин в пространстве
+         */
+        private synchronized double[] getVertices() {
+            if (vertices == null) {
+                vertices = new double[mesh.getVertices().length];
+                orientation.rotate(mesh.getVertices(), centre, vertices);
+            }
+            return vertices;
+        }
+
+        /**
+         * @return Вершины в пространстве
+         */
+        private synchronized List<Point3D> getPoints() {
+            if (points == null) {
+                double[] vertices = getVertices();
+                List<Point3D> result = new ArrayList<>(vertices.length / 3);
+                for (int i = 0; i < vertices.length; i += 3)
+                    result.add(new Point3D(vertices[i], vertices[i + 1], vertices[i + 2]));
+                points = Collections.unmodifiableList(result);
+            }
+            return points;
+        }
+
+        /**
+         * @return Треугольники граней, разделяющие общие вершины
+         */
+        private synchronized List<Triangle> getTriangles() {
+            if (triangles == null) {
+                List<Point3D> points = getPoints();
+                int[] indices = mesh.getTriangles();
+                List<Triangle> result = new ArrayList<>(mesh.getTrianglesCount());
+                for (int face = 0; face < mesh.getTrianglesCount(); face++)
+                    result.add(new Triangle(points.get(indices[face * 3]), points.get(indices[face * 3 + 1]),
+                            points.get(indices[face * 3 + 2]), mesh.getColor(face)));
+                triangles = Collections.unmodifiableList(result);
+            }
+            return triangles;
+        }
+
+        /**
+         * @return Ребра
+         */
+        private synchronized List<Segment> getSegments() {
+            if (segments == null) {
+                List<Point3D> points = getPoints();
+                int[] indices = mesh.getEdges();
+                List<Segment> result = new ArrayList<>(mesh.getEdgesCount());
+                for (int edge = 0; edge < mesh.getEdgesCount(); edge++)
+                    result.add(new Segment(points.get(indices[edge * 2]), points.get(indices[edge * 2 + 1])));
+                segments = Collections.unmodifiableList(result);
+            }
+            return segments;
+        }
     }
 }
@@ -1,6 +1,9 @@
 package physical_objects;
 
 import exceptions.ImpossibleObjectException;
+import geometry.AABB;
+import geometry.MutableAABB;
+import geometry.Quaternion;
 import geometry.intersections.SphereToPlaneIntersection;
 import geometry.intersections.SpheresIntersection;
 import geometry.objects3D.Point3D;
@@ -9,12 +12,9 @@ import geometry.polygonal.Sphere;
 import graph.CanvasPanel;
 import limiters.Collisional;
 import limiters.Intersectional;
+import limiters.ShapeType;
 import physics.Material;
 import physics.Space;
-import utils.Pair;
-
-import java.util.HashSet;
-import java.util.Set;
 
 /**
  * Физичная сфера
@@ -23,14 +23,8 @@ public class PhysicalSphere extends AbstractBody implements Intersectional, Coll
 
     private final double r;
     private final double J;
-    private final Sphere drawableInterpretation;
-    private final Set<Vector3D> impulses;
-    private final Set<Pair<Vector3D, Point3D>> frictionImpulses;
-
-    {
-        frictionImpulses = new HashSet<>();
-        impulses = new HashSet<>();
-    }
+    private Sphere drawableInterpretation;
+    private Quaternion drawnOrientation;
 
     /**
      * Конструктор
@@ -48,17 +42,9 @@ public class PhysicalSphere extends AbstractBody implements Intersectional, Coll
         super(space, x0, y0, z0, v, w, material, (4 * Math.PI * r * r * r / 3d) * material.p);
         this.r = r;
         J = 0.4d * m * r * r;
-        drawableInterpretation = new Sphere(new Point3D(x0, y0, z0), r, 15, material.fillColor);
-        pushToCanvas(space.getCanvas());
-    }
-
-    @Override
-    public synchronized void update() {
-        for (Vector3D impulse : impulses) applyStrikeImpulse(impulse);
-        impulses.clear();
-        for (Pair<Vector3D, Point3D> impulse : frictionImpulses) applyFriction(impulse.second, impulse.first);
-        frictionImpulses.clear();
-        super.update();
+        store.setRadius(id, r);
+        if (!space.isHeadless())
+            pushToCanvas(space.getCanvas());
     }
 
     /**
@@ -66,15 +52,9 @@ public class PhysicalSphere extends AbstractBody implements Intersectional, Coll
      * @param intersection пересечение сферы
      */
     public synchronized void pullFromSphere(SpheresIntersection intersection) {
-        if (intersection.getValue() != 0) {
-            Point3D nCords = intersection.getCentralLine().normalize()
-                    .multiply(intersection.getValue())
-                    .addToPoint(getPositionOfCentre(false));
-            this.x0 = nCords.x;
-            this.y0 = nCords.y;
-            this.z0 = nCords.z;
-            drawableInterpretation.setCenter(getPositionOfCentre(false));
-        }
+        Vector3D movement = getPull(intersection);
+        if (movement != null)
+            move(movement);
     }
 
     /**
@@ -82,24 +62,50 @@ public class PhysicalSphere extends AbstractBody implements Intersectional, Coll
      * @param intersection пересечение сферы и плоскости
      */
     public synchronized void pullFromPlane(SphereToPlaneIntersection intersection) {
-        if (intersection.getValue() != 0) {
-            Vector3D movementVector = new Vector3D(intersection.getIntersectionPoint(), getPositionOfCentre(false));
-            Point3D nCords = movementVector.normalize()
-                    .multiply(intersection.getValue())
-                    .addToPoint(getPositionOfCentre(false));
-            this.x0 = nCords.x;
-            this.y0 = nCords.y;
-            this.z0 = nCords.z;
-            drawableInterpretation.setCenter(getPositionOfCentre(false));
-        }
+        Vector3D movement = getPull(intersection);
+        if (movement != null)
+            move(movement);
+    }
+
+    /**
+     * @param intersection пересечение сферы
+     * @return Вектор смещения, выталкивающий сферу из другой сферы, или null, если смещать не нужно
+     */
+    public Vector3D getPull(SpheresIntersection intersection) {
+        if (intersection.getValue() == 0)
+            return null;
+        return intersection.getCentralLine().normalize().multiply(intersection.getValue());
+    }
+
+    /**
+     * @param intersection пересечение сферы и плоскости
+     * @return Вектор смещения, выталкивающий сферу из плоскости, или null, если смещать не нужно
+     */
+    public Vector3D getPull(SphereToPlaneIntersection intersection) {
+        if (intersection.getValue() == 0)
+            return null;
+        Vector3D movementVector = new Vector3D(intersection.getIntersectionPoint(), getPositionOfCentre(false));
+        return movementVector.normalize().multiply(intersection.getValue());
+    }
+
+    /**
+     * Метод, перемещающий сферу на заданный вектор
+     * @param movement вектор перемещения
+     */
+    @Override
+    public synchronized void move(Vector3D movement) {
+        super.move(movement);
     }
 
     /**
-     * Метод, реализующий приложение ударного импульса
+     * Метод, реализующий приложение ударного импульса (будит сферу)
      * @param impulse импульс силы
      */
     public synchronized void applyStrikeImpulse(Vector3D impulse) {
-        v = v.add(impulse.multiply(1d / m));
+        wakeUp();
+        Vector3D dv = impulse.multiply(1d / m);
+        store.addVelocity(id, dv.x, dv.y, dv.z);
+        invalidatePrediction();
     }
 
     /**
@@ -111,7 +117,9 @@ public class PhysicalSphere extends AbstractBody implements Intersectional, Coll
         applyStrikeImpulse(impulse);
         Vector3D radVector = new Vector3D(getPositionOfCentre(true), applicationPoint);
         radVector.multiply(r / radVector.getLength());
-        w = w.add(radVector.vectorProduct(impulse).multiply(1d / J));
+        Vector3D dw = radVector.vectorProduct(impulse).multiply(1d / J);
+        store.addAngularVelocity(id, dw.x, dw.y, dw.z);
+        invalidatePrediction();
     }
 
 
@@ -123,7 +131,7 @@ public class PhysicalSphere extends AbstractBody implements Intersectional, Coll
     public Vector3D getRotationVelOfPoint(Point3D point, boolean mode) {
         Vector3D radVector = new Vector3D(getPositionOfCentre(mode), point);
         radVector = radVector.multiply(r / radVector.getLength());
-        return w.vectorProduct(radVector);
+        return getW().vectorProduct(radVector);
     }
 
     /**
@@ -133,38 +141,48 @@ public class PhysicalSphere extends AbstractBody implements Intersectional, Coll
      * @return Полная скорость данной точки
      */
     public Vector3D getVelOfPoint(Point3D point, boolean mode) {
-        return getRotationVelOfPoint(point, mode).add(v);
+        return getRotationVelOfPoint(point, mode).add(getV());
     }
 
     /**
      * @return Величина радиуса сферы
      */
-    public synchronized double getR() {
+    public double getR() {
         return r;
     }
 
     /**
-     * @return Момент инерции сферы
+     * @return Радиус ограничивающей сферы (совпадает с радиусом сферы)
      */
-    public double getJ() {
-        return J;
+    @Override
+    public double getBoundingRadius() {
+        return r;
     }
 
-
     /**
-     * @return Импульсы, прикладываемые к телу в данный временной шаг
+     * Метод, записывающий в коробку границы сферы
+     * @param mode считать ли в будущем положении
+     * @param box коробка, которую нужно заполнить
      */
-
-    public Set<Vector3D> getImpulses() {
-        return impulses;
+    @Override
+    protected void computeBox(boolean mode, MutableAABB box) {
+        Point3D position = getPositionOfCentre(mode);
+        box.setSphere(position.x, position.y, position.z, r);
     }
 
     /**
-     * @return Импульсы сил трения, прикладываемые к телу в данный временой шаг
+     * @return Вид формы ({@link ShapeType#SPHERE})
      */
+    @Override
+    public ShapeType getShapeType() {
+        return ShapeType.SPHERE;
+    }
 
-    public Set<Pair<Vector3D, Point3D>> getFrictionImpulses() {
-        return frictionImpulses;
+    /**
+     * @return Момент инерции сферы
+     */
+    public double getJ() {
+        return J;
     }
 
 
@@ -174,15 +192,21 @@ public class PhysicalSphere extends AbstractBody implements Intersectional, Coll
      */
     @Override
     public void pushToCanvas(CanvasPanel canvas) {
+        drawableInterpretation = new Sphere(getPositionOfCentre(false), r, 15, material.fillColor);
+        drawnOrientation = orientation;
         canvas.getPolygonals().add(drawableInterpretation);
     }
 
     /**
      * Метод, обновляющий графическую интерпритацию сферы
+     * @param position положение центра сферы
+     * @param orientation ориентация сферы
      */
     @Override
-    public void updateDrawingInterpretation() {
-        drawableInterpretation.setCenter(getPositionOfCentre(false));
-        drawableInterpretation.rotate(w.multiply(space.getDT()), getPositionOfCentre(false));
+    public void updateDrawingInterpretation(Point3D position, Quaternion orientation) {
+        if (drawableInterpretation == null) return;
+        drawableInterpretation.setCenter(position);
+        drawableInterpretation.rotate(orientation.multiply(drawnOrientation.conjugate()).toRotationVector(), position);
+        drawnOrientation = orientation;
     }
 }
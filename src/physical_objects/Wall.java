@@ -1,6 +1,8 @@
 package physical_objects;
 
 import drawing.Drawable;
+import geometry.AABB;
+import geometry.Quaternion;
 import geometry.objects.Triangle;
 import geometry.objects3D.Plane3D;
 import geometry.objects3D.Point3D;
@@ -10,6 +12,7 @@ import geometry.polygonal.Polygonal;
 import graph.CanvasPanel;
 import limiters.Collisional;
 import limiters.Intersectional;
+import limiters.ShapeType;
 import physics.Material;
 import physics.Space;
 import utils.Pair;
@@ -30,6 +33,9 @@ public class Wall implements Drawable, Collisional, Intersectional {
     private final Point3D d;
     private final Material material;
     private final ArrayList<Triangle> triangles;
+    private final AABB box;
+    private final Point3D boundingCentre;
+    private final double boundingRadius;
 
     {
         triangles = new ArrayList<>(2);
@@ -53,7 +59,14 @@ public class Wall implements Drawable, Collisional, Intersectional {
         Pair<Polygon3D, Polygon3D> polygonPair = Polygon3D.getPolygons(Tools.getRandomColor(), a, b, c, d).get();
         triangles.add(new Triangle(polygonPair.first));
         triangles.add(new Triangle(polygonPair.second));
-        pushToCanvas(space.getCanvas());
+        box = new AABB(getPoints());
+        boundingCentre = new Point3D((a.x + b.x + c.x + d.x) / 4d, (a.y + b.y + c.y + d.y) / 4d, (a.z + b.z + c.z + d.z) / 4d);
+        double radius = 0;
+        for (Point3D point : getPoints())
+            radius = Math.max(radius, new Vector3D(boundingCentre, point).getLength());
+        boundingRadius = radius;
+        if (!space.isHeadless())
+            pushToCanvas(space.getCanvas());
     }
 
     /**
@@ -70,6 +83,35 @@ public class Wall implements Drawable, Collisional, Intersectional {
         return triangles;
     }
 
+    /**
+     * @return Ограничивающая коробка стены (стена неподвижна, коробка считается один раз; общий объект только для чтения)
+     */
+    public AABB getAABB() {
+        return box;
+    }
+
+    /**
+     * @return Центр ограничивающей сферы стены
+     */
+    public Point3D getBoundingCentre() {
+        return boundingCentre;
+    }
+
+    /**
+     * @return Радиус ограничивающей сферы стены
+     */
+    public double getBoundingRadius() {
+        return boundingRadius;
+    }
+
+    /**
+     * @return Вид формы ({@link ShapeType#WALL}, в том числе для наследников стены)
+     */
+    @Override
+    public ShapeType getShapeType() {
+        return ShapeType.WALL;
+    }
+
     /**
      * @return Материал, из которого сделана стена
      */
@@ -114,9 +156,11 @@ public class Wall implements Drawable, Collisional, Intersectional {
     }
 
     /**
-     * Метод, реализующий обновление графической интерпретации
+     * Метод, реализующий обновление графической интерпретации (стена неподвижна)
+     * @param position не используется
+     * @param orientation не используется
      */
     @Override
-    public void updateDrawingInterpretation() {
+    public void updateDrawingInterpretation(Point3D position, Quaternion orientation) {
     }
 }
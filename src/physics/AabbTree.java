@@ -0,0 +1,436 @@
+package physics;
+
+import geometry.AABB;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Широкая фаза "динамическое дерево ограничивающих коробок" для сцен из объектов сильно разного размера. <br>
+ * Листья дерева хранят расширенные ("толстые") коробки объектов: пока настоящая коробка объекта остается внутри
+ * толстой, лист не трогается, а когда выходит - лист удаляется и вставляется заново. Место вставки выбирается
+ * по наименьшему приросту площади поверхности коробок, после вставки и удаления дерево балансируется поворотами,
+ * как АВЛ-дерево. Узлы хранятся в примитивных массивах, освобожденные узлы переиспользуются
+ */
+final class AabbTree implements Broadphase {
+
+    private final static int NULL = -1;
+    private final static int STRIDE = 6;
+    /**
+     * Доля размера коробки, на которую она расширяется во все стороны
+     */
+    private final static double FAT_RATIO = 0.1;
+    /**
+     * Наименьшее расширение коробки
+     */
+    private final static double MIN_MARGIN = 1d;
+
+    private double[] boxes;
+    private int[] parent;
+    private int[] left;
+    private int[] right;
+    private int[] height;
+    private int[] proxyOf;
+    private int capacity;
+    private int nodeCount;
+    private int freeList;
+    private int root;
+
+    private int[] leafOf;
+    private int proxies;
+    private int[] stack;
+
+    {
+        root = NULL;
+        freeList = NULL;
+        leafOf = new int[0];
+        stack = new int[64];
+        allocateArrays(16);
+    }
+
+    @Override
+    public void findPairs(BoundsList bounds, PairConsumer consumer) {
+        if (bounds.size() != proxies)
+            rebuild(bounds);
+        else
+            refit(bounds);
+
+        for (int proxy = 0; proxy < bounds.size(); proxy++) {
+            if (bounds.isStatic(proxy)) continue;
+            final int first = proxy;
+            traverse(bounds, first, other -> {
+                if (other == first || (!bounds.isStatic(other) && other < first)) return;
+                if (bounds.overlaps(first, other))
+                    consumer.accept(Math.min(first, other), Math.max(first, other));
+            });
+        }
+    }
+
+    @Override
+    public void query(BoundsList bounds, AABB box, IntConsumer consumer) {
+        if (bounds.size() != proxies)
+            rebuild(bounds);
+        int top = 0;
+        if (root != NULL) stack[top++] = root;
+        while (top > 0) {
+            int node = stack[--top];
+            int offset = node * STRIDE;
+            if (boxes[offset + 3] < box.getMinX() || boxes[offset] > box.getMaxX()
+                    || boxes[offset + 4] < box.getMinY() || boxes[offset + 1] > box.getMaxY()
+                    || boxes[offset + 5] < box.getMinZ() || boxes[offset + 2] > box.getMaxZ())
+                continue;
+            if (left[node] == NULL) {
+                if (bounds.overlaps(proxyOf[node], box))
+                    consumer.accept(proxyOf[node]);
+            } else {
+                top = push(top, left[node]);
+                top = push(top, right[node]);
+            }
+        }
+    }
+
+    /**
+     * Метод, обходящий листья, толстые коробки которых пересекаются с настоящей коробкой объекта
+     * @param bounds коробки объектов
+     * @param proxy номер объекта
+     * @param consumer получатель номеров объектов найденных листьев
+     */
+    private void traverse(BoundsList bounds, int proxy, IntConsumer consumer) {
+        int top = 0;
+        if (root != NULL) stack[top++] = root;
+        while (top > 0) {
+            int node = stack[--top];
+            int offset = node * STRIDE;
+            if (boxes[offset + 3] < bounds.getMin(proxy, 0) || boxes[offset] > bounds.getMax(proxy, 0)
+                    || boxes[offset + 4] < bounds.getMin(proxy, 1) || boxes[offset + 1] > bounds.getMax(proxy, 1)
+                    || boxes[offset + 5] < bounds.getMin(proxy, 2) || boxes[offset + 2] > bounds.getMax(proxy, 2))
+                continue;
+            if (left[node] == NULL) {
+                consumer.accept(proxyOf[node]);
+            } else {
+                top = push(top, left[node]);
+                top = push(top, right[node]);
+            }
+        }
+    }
+
+    /**
+     * Метод, кладущий узел в стек обхода
+     * @param top размер стека
+     * @param node узел
+     * @return Новый размер стека
+     */
+    private int push(int top, int node) {
+        if (top == stack.length) stack = Arrays.copyOf(stack, top * 2);
+        stack[top] = node;
+        return top + 1;
+    }
+
+    /**
+     * Метод, заново строящий дерево при изменении количества объектов
+     * @param bounds коробки объектов
+     */
+    private void rebuild(BoundsList bounds) {
+        root = NULL;
+        freeList = NULL;
+        nodeCount = 0;
+        proxies = bounds.size();
+        if (leafOf.length < proxies) leafOf = new int[proxies];
+        for (int proxy = 0; proxy < proxies; proxy++) {
+            int leaf = allocateNode();
+            proxyOf[leaf] = proxy;
+            setFat(leaf, bounds, proxy);
+            insertLeaf(leaf);
+            leafOf[proxy] = leaf;
+        }
+    }
+
+    /**
+     * Метод, заново вставляющий листья объектов, вышедших из своих толстых коробок
+     * @param bounds коробки объектов
+     */
+    private void refit(BoundsList bounds) {
+        for (int proxy = 0; proxy < proxies; proxy++) {
+            int leaf = leafOf[proxy];
+            if (contains(leaf, bounds, proxy)) continue;
+            removeLeaf(leaf);
+            setFat(leaf, bounds, proxy);
+            insertLeaf(leaf);
+        }
+    }
+
+    /**
+     * @return Лежит ли настоящая коробка объекта внутри коробки узла
+     */
+    private boolean contains(int node, BoundsList bounds, int proxy) {
+        int offset = node * STRIDE;
+        for (int axis = 0; axis < 3; axis++)
+            if (boxes[offset + axis] > bounds.getMin(proxy, axis) || boxes[offset + 3 + axis] < bounds.getMax(proxy, axis))
+                return false;
+        return true;
+    }
+
+    /**
+     * Метод, записывающий в лист толстую коробку объекта
+     */
+    private void setFat(int leaf, BoundsList bounds, int proxy) {
+        int offset = leaf * STRIDE;
+        for (int axis = 0; axis < 3; axis++) {
+            double min = bounds.getMin(proxy, axis), max = bounds.getMax(proxy, axis);
+            double margin = Math.max(MIN_MARGIN, (max - min) * FAT_RATIO);
+            boxes[offset + axis] = min - margin;
+            boxes[offset + 3 + axis] = max + margin;
+        }
+    }
+
+    /**
+     * Метод, вставляющий лист в дерево рядом с узлом, объединение с которым дешевле всего
+     * @param leaf лист
+     */
+    private void insertLeaf(int leaf) {
+        if (root == NULL) {
+            root = leaf;
+            parent[leaf] = NULL;
+            return;
+        }
+
+        int index = root;
+        while (left[index] != NULL) {
+            double area = area(index);
+            double combinedArea = unionArea(index, leaf);
+            double cost = 2d * combinedArea;
+            double inheritance = 2d * (combinedArea - area);
+            double costLeft = childCost(left[index], leaf) + inheritance;
+            double costRight = childCost(right[index], leaf) + inheritance;
+            if (cost < costLeft && cost < costRight) break;
+            index = costLeft < costRight ? left[index] : right[index];
+        }
+
+        int sibling = index;
+        int oldParent = parent[sibling];
+        int newParent = allocateNode();
+        parent[newParent] = oldParent;
+        height[newParent] = height[sibling] + 1;
+        union(newParent, sibling, leaf);
+        if (oldParent != NULL) {
+            if (left[oldParent] == sibling) left[oldParent] = newParent;
+            else right[oldParent] = newParent;
+        } else {
+            root = newParent;
+        }
+        left[newParent] = sibling;
+        right[newParent] = leaf;
+        parent[sibling] = newParent;
+        parent[leaf] = newParent;
+
+        fixUpwards(parent[leaf]);
+    }
+
+    /**
+     * Метод, удаляющий лист из дерева (сам лист не освобождается)
+     * @param leaf лист
+     */
+    private void removeLeaf(int leaf) {
+        if (leaf == root) {
+            root = NULL;
+            return;
+        }
+        int leafParent = parent[leaf];
+        int grandParent = parent[leafParent];
+        int sibling = left[leafParent] == leaf ? right[leafParent] : left[leafParent];
+        if (grandParent != NULL) {
+            if (left[grandParent] == leafParent) left[grandParent] = sibling;
+            else right[grandParent] = sibling;
+            parent[sibling] = grandParent;
+            freeNode(leafParent);
+            fixUpwards(grandParent);
+        } else {
+            root = sibling;
+            parent[sibling] = NULL;
+            freeNode(leafParent);
+        }
+    }
+
+    /**
+     * Метод, балансирующий узлы и пересчитывающий их коробки и высоты от данного узла до корня
+     * @param index узел
+     */
+    private void fixUpwards(int index) {
+        while (index != NULL) {
+            index = balance(index);
+            height[index] = 1 + Math.max(height[left[index]], height[right[index]]);
+            union(index, left[index], right[index]);
+            index = parent[index];
+        }
+    }
+
+    /**
+     * Метод, выполняющий поворот, если высоты поддеревьев узла различаются больше чем на единицу
+     * @param a узел
+     * @return Узел, вставший на место данного
+     */
+    private int balance(int a) {
+        if (left[a] == NULL || height[a] < 2) return a;
+        int b = left[a];
+        int c = right[a];
+        int difference = height[c] - height[b];
+
+        if (difference > 1) {
+            int f = left[c];
+            int g = right[c];
+            left[c] = a;
+            parent[c] = parent[a];
+            parent[a] = c;
+            replaceChild(parent[c], a, c);
+            if (height[f] > height[g]) {
+                right[c] = f;
+                right[a] = g;
+                parent[g] = a;
+                union(a, b, g);
+                union(c, a, f);
+                height[a] = 1 + Math.max(height[b], height[g]);
+                height[c] = 1 + Math.max(height[a], height[f]);
+            } else {
+                right[c] = g;
+                right[a] = f;
+                parent[f] = a;
+                union(a, b, f);
+                union(c, a, g);
+                height[a] = 1 + Math.max(height[b], height[f]);
+                height[c] = 1 + Math.max(height[a], height[g]);
+            }
+            return c;
+        }
+
+        if (difference < -1) {
+            int d = left[b];
+            int e = right[b];
+            left[b] = a;
+            parent[b] = parent[a];
+            parent[a] = b;
+            replaceChild(parent[b], a, b);
+            if (height[d] > height[e]) {
+                right[b] = d;
+                left[a] = e;
+                parent[e] = a;
+                union(a, c, e);
+                union(b, a, d);
+                height[a] = 1 + Math.max(height[c], height[e]);
+                height[b] = 1 + Math.max(height[a], height[d]);
+            } else {
+                right[b] = e;
+                left[a] = d;
+                parent[d] = a;
+                union(a, c, d);
+                union(b, a, e);
+                height[a] = 1 + Math.max(height[c], height[d]);
+                height[b] = 1 + Math.max(height[a], height[e]);
+            }
+            return b;
+        }
+
+        return a;
+    }
+
+    /**
+     * Метод, заменяющий ребенка узла (или корень, если узла нет)
+     */
+    private void replaceChild(int node, int oldChild, int newChild) {
+        if (node == NULL) root = newChild;
+        else if (left[node] == oldChild) left[node] = newChild;
+        else right[node] = newChild;
+    }
+
+    /**
+     * @return Стоимость спуска листа в поддерево ребенка
+     */
+    private double childCost(int child, int leaf) {
+        if (left[child] == NULL)
+            return unionArea(child, leaf);
+        return unionArea(child, leaf) - area(child);
+    }
+
+    /**
+     * @return Площадь поверхности коробки узла
+     */
+    private double area(int node) {
+        int offset = node * STRIDE;
+        double dx = boxes[offset + 3] - boxes[offset];
+        double dy = boxes[offset + 4] - boxes[offset + 1];
+        double dz = boxes[offset + 5] - boxes[offset + 2];
+        return 2d * (dx * dy + dy * dz + dz * dx);
+    }
+
+    /**
+     * @return Площадь поверхности коробки, объединяющей коробки двух узлов
+     */
+    private double unionArea(int a, int b) {
+        int oa = a * STRIDE, ob = b * STRIDE;
+        double dx = Math.max(boxes[oa + 3], boxes[ob + 3]) - Math.min(boxes[oa], boxes[ob]);
+        double dy = Math.max(boxes[oa + 4], boxes[ob + 4]) - Math.min(boxes[oa + 1], boxes[ob + 1]);
+        double dz = Math.max(boxes[oa + 5], boxes[ob + 5]) - Math.min(boxes[oa + 2], boxes[ob + 2]);
+        return 2d * (dx * dy + dy * dz + dz * dx);
+    }
+
+    /**
+     * Метод, записывающий в узел коробку, объединяющую коробки двух других узлов
+     */
+    private void union(int node, int a, int b) {
+        int o = node * STRIDE, oa = a * STRIDE, ob = b * STRIDE;
+        for (int axis = 0; axis < 3; axis++) {
+            boxes[o + axis] = Math.min(boxes[oa + axis], boxes[ob + axis]);
+            boxes[o + 3 + axis] = Math.max(boxes[oa + 3 + axis], boxes[ob + 3 + axis]);
+        }
+    }
+
+    /**
+     * @return Новый (или освобожденный ранее) узел-лист
+     */
+    private int allocateNode() {
+        int node;
+        if (freeList != NULL) {
+            node = freeList;
+            freeList = parent[node];
+        } else {
+            if (nodeCount == capacity) allocateArrays(capacity * 2);
+            node = nodeCount++;
+        }
+        parent[node] = NULL;
+        left[node] = NULL;
+        right[node] = NULL;
+        height[node] = 0;
+        proxyOf[node] = NULL;
+        return node;
+    }
+
+    /**
+     * Метод, возвращающий узел в список свободных
+     * @param node узел
+     */
+    private void freeNode(int node) {
+        parent[node] = freeList;
+        height[node] = -1;
+        freeList = node;
+    }
+
+    /**
+     * Метод, увеличивающий массивы узлов
+     * @param newCapacity новое количество узлов
+     */
+    private void allocateArrays(int newCapacity) {
+        boxes = boxes == null ? new double[newCapacity * STRIDE] : Arrays.copyOf(boxes, newCapacity * STRIDE);
+        parent = grow(parent, newCapacity);
+        left = grow(left, newCapacity);
+        right = grow(right, newCapacity);
+        height = grow(height, newCapacity);
+        proxyOf = grow(proxyOf, newCapacity);
+        capacity = newCapacity;
+    }
+
+    /**
+     * @return Массив, увеличенный до данного размера
+     */
+    private static int[] grow(int[] array, int size) {
+        return array == null ? new int[size] : Arrays.copyOf(array, size);
+    }
+}
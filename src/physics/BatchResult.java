@@ -0,0 +1,133 @@
+package physics;
+
+/**
+ * Результат прогона одного варианта в пакетном запуске: конечное состояние сцены и время шагов. <br>
+ * Если прогон не удался (например, файл сцены не прочитан), состояние отсутствует, а причина доступна через {@link #getError()}
+ */
+public final class BatchResult {
+
+    private final BatchVariant variant;
+    private final String finalScene;
+    private final StateSnapshot finalState;
+    private final long steps;
+    private final long totalNanos;
+    private final long minStepNanos;
+    private final long maxStepNanos;
+    private final Exception error;
+
+    /**
+     * Конструктор результата удавшегося прогона
+     * @param variant вариант
+     * @param finalScene строка-конфигурация сцены после последнего шага
+     * @param finalState снимок состояния тел после последнего шага
+     * @param steps количество выполненных шагов
+     * @param totalNanos суммарное время шагов в наносекундах
+     * @param minStepNanos время самого быстрого шага в наносекундах
+     * @param maxStepNanos время самого медленного шага в наносекундах
+     */
+    BatchResult(BatchVariant variant, String finalScene, StateSnapshot finalState,
+                long steps, long totalNanos, long minStepNanos, long maxStepNanos) {
+        this.variant = variant;
+        this.finalScene = finalScene;
+        this.finalState = finalState;
+        this.steps = steps;
+        this.totalNanos = totalNanos;
+        this.minStepNanos = minStepNanos;
+        this.maxStepNanos = maxStepNanos;
+        this.error = null;
+    }
+
+    /**
+     * Конструктор результата неудавшегося прогона
+     * @param variant вариант
+     * @param error причина
+     */
+    BatchResult(BatchVariant variant, Exception error) {
+        this.variant = variant;
+        this.finalScene = null;
+        this.finalState = null;
+        this.steps = 0;
+        this.totalNanos = 0;
+        this.minStepNanos = 0;
+        this.maxStepNanos = 0;
+        this.error = error;
+    }
+
+    /**
+     * @return Вариант
+     */
+    public BatchVariant getVariant() {
+        return variant;
+    }
+
+    /**
+     * @return Удался ли прогон
+     */
+    public boolean isSuccessful() {
+        return error == null;
+    }
+
+    /**
+     * @return Причина неудачи прогона, null - прогон удался
+     */
+    public Exception getError() {
+        return error;
+    }
+
+    /**
+     * @return Строка-конфигурация сцены после последнего шага (в формате {@link Space#save()})
+     */
+    public String getFinalScene() {
+        return finalScene;
+    }
+
+    /**
+     * @return Снимок положений и ориентаций тел после последнего шага
+     */
+    public StateSnapshot getFinalState() {
+        return finalState;
+    }
+
+    /**
+     * @return Количество выполненных шагов
+     */
+    public long getSteps() {
+        return steps;
+    }
+
+    /**
+     * @return Суммарное время шагов в наносекундах
+     */
+    public long getTotalNanos() {
+        return totalNanos;
+    }
+
+    /**
+     * @return Время самого быстрого шага в наносекундах
+     */
+    public long getMinStepNanos() {
+        return minStepNanos;
+    }
+
+    /**
+     * @return Время самого медленного шага в наносекундах
+     */
+    public long getMaxStepNanos() {
+        return maxStepNanos;
+    }
+
+    /**
+     * @return Среднее время шага в наносекундах
+     */
+    public double getMeanStepNanos() {
+        return steps == 0 ? 0 : (double) totalNanos / steps;
+    }
+
+    @Override
+    public String toString() {
+        if (!isSuccessful())
+            return variant + ": " + error;
+        return String.format("%s: %d steps, mean %.3f ms, min %.3f ms, max %.3f ms", variant, steps,
+                getMeanStepNanos() / 1e6, minStepNanos / 1e6, maxStepNanos / 1e6);
+    }
+}
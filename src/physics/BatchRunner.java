@@ -0,0 +1,149 @@
+package physics;
+
+import graph.CanvasPanel;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import utils.Tools;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+/**
+ * Пакетный запуск сцен без отрисовки для перебора параметров. <br>
+ * Каждый вариант (см {@link BatchVariant}) прогоняется в своем пространстве, пространства независимы и
+ * выполняются одновременно на ограниченном пуле потоков. Физика каждого пространства обрабатывается одним потоком:
+ * ядра загружаются прогонами целиком, а не фазами одного шага, поэтому потоки не ждут друг друга на барьерах. <br>
+ * Результаты передаются получателю по мере завершения прогонов, а не после всего пакета
+ */
+public final class BatchRunner {
+
+    private final ExecutorService pool;
+    private final int parallelism;
+
+    /**
+     * Конструктор
+     * @param parallelism количество одновременно выполняемых прогонов
+     */
+    public BatchRunner(int parallelism) {
+        if (parallelism < 1)
+            throw new IllegalArgumentException("Parallelism must be positive");
+        this.parallelism = parallelism;
+        pool = Executors.newFixedThreadPool(parallelism);
+    }
+
+    /**
+     * Конструктор, использующий все доступные ядра
+     */
+    public BatchRunner() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Метод, прогоняющий варианты и дожидающийся окончания всех прогонов. <br>
+     * Получатель вызывается из потоков пула, но никогда не вызывается одновременно из двух потоков
+     * @param variants варианты
+     * @param sink получатель результатов
+     * @throws InterruptedException исключение в случае прерывания ожидания
+     */
+    public void run(List<BatchVariant> variants, Consumer<BatchResult> sink) throws InterruptedException {
+        Map<File, String> scenes = new HashMap<>();
+        Map<File, IOException> errors = new HashMap<>();
+        for (BatchVariant variant : variants) {
+            File file = variant.getScene();
+            if (scenes.containsKey(file) || errors.containsKey(file)) continue;
+            try {
+                scenes.put(file, Tools.readFile(file));
+            } catch (IOException e) {
+                errors.put(file, e);
+            }
+        }
+
+        List<Callable<Object>> tasks = new ArrayList<>(variants.size());
+        for (BatchVariant variant : variants) {
+            String scene = scenes.get(variant.getScene());
+            IOException error = errors.get(variant.getScene());
+            tasks.add(() -> {
+                BatchResult result = error != null ? new BatchResult(variant, error) : runVariant(variant, scene);
+                synchronized (sink) {
+                    sink.accept(result);
+                }
+                return null;
+            });
+        }
+        for (Future<Object> future : pool.invokeAll(tasks)) {
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Метод, прогоняющий один вариант в потоке вызова
+     * @param variant вариант
+     * @param scene строка-конфигурация сцены
+     * @return Результат прогона, в том числе неудавшегося: исключение прогона не должно теряться в пуле
+     */
+    private static BatchResult runVariant(BatchVariant variant, String scene) {
+        Space space = new Space(variant.getDT(), variant.getG(), (CanvasPanel) null, 1);
+        try {
+            space.load(withMaterial(scene, variant.getMaterial()));
+            long total = 0, min = Long.MAX_VALUE, max = 0;
+            for (long step = 0; step < variant.getSteps(); step++) {
+                long start = System.nanoTime();
+                space.changeTime();
+                long time = System.nanoTime() - start;
+                total += time;
+                min = Math.min(min, time);
+                max = Math.max(max, time);
+            }
+            return new BatchResult(variant, space.save(), space.getSnapshots().read(),
+                    variant.getSteps(), total, variant.getSteps() == 0 ? 0 : min, max);
+        } catch (Exception e) {
+            return new BatchResult(variant, e);
+        } finally {
+            space.shutdown();
+        }
+    }
+
+    /**
+     * @param scene строка-конфигурация сцены
+     * @param material материал, null - материалы не меняются
+     * @return Строка-конфигурация сцены, в которой всем телам задан данный материал
+     */
+    private static String withMaterial(String scene, Material material) {
+        if (material == null) return scene;
+        JSONObject json = new JSONObject(scene);
+        for (String key : new String[]{"polyhedrons", "spheres"}) {
+            JSONArray bodies = json.getJSONArray(key);
+            for (int i = 0; i < bodies.length(); i++)
+                bodies.getJSONObject(i).put("material", material.ordinal());
+        }
+        return json.toString();
+    }
+
+    /**
+     * @return Количество одновременно выполняемых прогонов
+     */
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * Метод, останавливающий потоки пула. Прогоны, начатые до вызова, доводятся до конца
+     */
+    public void shutdown() {
+        pool.shutdown();
+    }
+}
@@ -0,0 +1,121 @@
+package physics;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Вариант прогона сцены в пакетном запуске (см {@link BatchRunner}): файл сцены, временной шаг,
+ * ускорение свободного падения, материал тел и количество шагов
+ */
+public final class BatchVariant {
+
+    private final String name;
+    private final File scene;
+    private final double dt;
+    private final double g;
+    private final Material material;
+    private final long steps;
+
+    /**
+     * Конструктор
+     * @param name имя варианта, по которому его результат отличается от остальных
+     * @param scene файл сцены
+     * @param dt временной шаг
+     * @param g величина ускорения свободного падения
+     * @param material материал всех тел сцены, null - материалы из файла сцены
+     * @param steps количество шагов
+     */
+    public BatchVariant(String name, File scene, double dt, double g, Material material, long steps) {
+        if (dt <= 0)
+            throw new IllegalArgumentException("Time step must be positive");
+        if (steps < 0)
+            throw new IllegalArgumentException("Steps count must not be negative");
+        this.name = name;
+        this.scene = scene;
+        this.dt = dt;
+        this.g = g;
+        this.material = material;
+        this.steps = steps;
+    }
+
+    /**
+     * Конструктор варианта с материалами из файла сцены
+     * @param name имя варианта
+     * @param scene файл сцены
+     * @param dt временной шаг
+     * @param g величина ускорения свободного падения
+     * @param steps количество шагов
+     */
+    public BatchVariant(String name, File scene, double dt, double g, long steps) {
+        this(name, scene, dt, g, null, steps);
+    }
+
+    /**
+     * Метод, составляющий варианты из всех сочетаний параметров
+     * @param scenes файлы сцен
+     * @param dts временные шаги
+     * @param gs величины ускорения свободного падения
+     * @param materials материалы тел (null в массиве - материалы из файла сцены)
+     * @param steps количество шагов каждого варианта
+     * @return Варианты, по одному на каждое сочетание
+     */
+    public static List<BatchVariant> sweep(List<File> scenes, double[] dts, double[] gs, Material[] materials, long steps) {
+        List<BatchVariant> variants = new ArrayList<>(scenes.size() * dts.length * gs.length * materials.length);
+        for (File scene : scenes)
+            for (double dt : dts)
+                for (double g : gs)
+                    for (Material material : materials)
+                        variants.add(new BatchVariant(
+                                scene.getName() + " dt=" + dt + " g=" + g + " material=" + (material == null ? "scene" : material),
+                                scene, dt, g, material, steps));
+        return variants;
+    }
+
+    /**
+     * @return Имя варианта
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return Файл сцены
+     */
+    public File getScene() {
+        return scene;
+    }
+
+    /**
+     * @return Временной шаг
+     */
+    public double getDT() {
+        return dt;
+    }
+
+    /**
+     * @return Величина ускорения свободного падения
+     */
+    public double getG() {
+        return g;
+    }
+
+    /**
+     * @return Материал всех тел сцены, null - материалы из файла сцены
+     */
+    public Material getMaterial() {
+        return material;
+    }
+
+    /**
+     * @return Количество шагов
+     */
+    public long getSteps() {
+        return steps;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -0,0 +1,348 @@
+package physics;
+
+import java.util.Arrays;
+
+/**
+ * Хранилище изменяемого состояния тел пространства в виде структуры массивов. <br>
+ * Положение, скорость, ускорение и угловая скорость хранятся по компонентам в отдельных примитивных массивах,
+ * масса и радиус ограничивающей сферы - в своих; все массивы индексируются номером тела в хранилище.
+ * Сами тела ({@link physical_objects.AbstractBody}) остаются ссылками на свою строку хранилища, поэтому
+ * шаг интегрирования проходит подряд по нескольким массивам, а не по разбросанным по куче объектам и векторам. <br>
+ * Строку меняет только ее тело (под своей блокировкой) или обработчик физики в фазе интегрирования
+ */
+public final class BodyStore {
+
+    private double[] x, y, z;
+    private double[] vx, vy, vz;
+    private double[] ax, ay, az;
+    private double[] wx, wy, wz;
+    private double[] mass;
+    private double[] radius;
+    private int size;
+
+    {
+        allocate(64);
+    }
+
+    /**
+     * Метод, добавляющий тело в хранилище. Скорости и ускорение нового тела нулевые
+     * @param x координата центра масс по Ox
+     * @param y координата центра масс по Oy
+     * @param z координата центра масс по Oz
+     * @param mass масса тела
+     * @return Номер тела в хранилище
+     */
+    public synchronized int add(double x, double y, double z, double mass) {
+        if (size == this.x.length)
+            allocate(size * 2);
+        int id = size++;
+        this.x[id] = x;
+        this.y[id] = y;
+        this.z[id] = z;
+        vx[id] = vy[id] = vz[id] = 0d;
+        ax[id] = ay[id] = az[id] = 0d;
+        wx[id] = wy[id] = wz[id] = 0d;
+        this.mass[id] = mass;
+        radius[id] = 0d;
+        return id;
+    }
+
+    /**
+     * Метод, очищающий хранилище (например, перед загрузкой новой сцены). Номера, выданные ранее, становятся недействительны
+     */
+    public synchronized void clear() {
+        size = 0;
+    }
+
+    /**
+     * @return Количество тел в хранилище
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Шаг интегрирования всех тел хранилища: скорость меняется на ускорение за шаг, затем центр масс сдвигается
+     * с новой скоростью и тем же ускорением. У спящих тел скорость и ускорение нулевые, поэтому они не сдвигаются
+     * @param dt временной шаг
+     */
+    public void integrate(double dt) {
+        final double[] x = this.x, y = this.y, z = this.z;
+        final double[] vx = this.vx, vy = this.vy, vz = this.vz;
+        final double[] ax = this.ax, ay = this.ay, az = this.az;
+        final int size = this.size;
+        for (int i = 0; i < size; i++) {
+            vx[i] = vx[i] + ax[i] * dt;
+            vy[i] = vy[i] + ay[i] * dt;
+            vz[i] = vz[i] + az[i] * dt;
+            x[i] += vx[i] * dt + ax[i] * dt * dt / 2d;
+            y[i] += vy[i] * dt + ay[i] * dt * dt / 2d;
+            z[i] += vz[i] * dt + az[i] * dt * dt / 2d;
+        }
+    }
+
+    /**
+     * Шаг интегрирования одного тела (так же, как в {@link #integrate(double)})
+     * @param id номер тела
+     * @param dt временной шаг
+     */
+    public void integrate(int id, double dt) {
+        vx[id] = vx[id] + ax[id] * dt;
+        vy[id] = vy[id] + ay[id] * dt;
+        vz[id] = vz[id] + az[id] * dt;
+        x[id] += vx[id] * dt + ax[id] * dt * dt / 2d;
+        y[id] += vy[id] * dt + ay[id] * dt * dt / 2d;
+        z[id] += vz[id] * dt + az[id] * dt * dt / 2d;
+    }
+
+    /**
+     * Метод, сдвигающий центр масс тела
+     * @param id номер тела
+     * @param dx сдвиг по Ox
+     * @param dy сдвиг по Oy
+     * @param dz сдвиг по Oz
+     */
+    public void translate(int id, double dx, double dy, double dz) {
+        x[id] += dx;
+        y[id] += dy;
+        z[id] += dz;
+    }
+
+    /**
+     * Метод, задающий скорость тела
+     * @param id номер тела
+     * @param vx компонента по Ox
+     * @param vy компонента по Oy
+     * @param vz компонента по Oz
+     */
+    public void setVelocity(int id, double vx, double vy, double vz) {
+        this.vx[id] = vx;
+        this.vy[id] = vy;
+        this.vz[id] = vz;
+    }
+
+    /**
+     * Метод, добавляющий к скорости тела приращение
+     * @param id номер тела
+     * @param dvx приращение по Ox
+     * @param dvy приращение по Oy
+     * @param dvz приращение по Oz
+     */
+    public void addVelocity(int id, double dvx, double dvy, double dvz) {
+        vx[id] += dvx;
+        vy[id] += dvy;
+        vz[id] += dvz;
+    }
+
+    /**
+     * Метод, задающий ускорение тела
+     * @param id номер тела
+     * @param ax компонента по Ox
+     * @param ay компонента по Oy
+     * @param az компонента по Oz
+     */
+    public void setAcceleration(int id, double ax, double ay, double az) {
+        this.ax[id] = ax;
+        this.ay[id] = ay;
+        this.az[id] = az;
+    }
+
+    /**
+     * Метод, задающий угловую скорость тела
+     * @param id номер тела
+     * @param wx компонента по Ox
+     * @param wy компонента по Oy
+     * @param wz компонента по Oz
+     */
+    public void setAngularVelocity(int id, double wx, double wy, double wz) {
+        this.wx[id] = wx;
+        this.wy[id] = wy;
+        this.wz[id] = wz;
+    }
+
+    /**
+     * Метод, добавляющий к угловой скорости тела приращение
+     * @param id номер тела
+     * @param dwx приращение по Ox
+     * @param dwy приращение по Oy
+     * @param dwz приращение по Oz
+     */
+    public void addAngularVelocity(int id, double dwx, double dwy, double dwz) {
+        wx[id] += dwx;
+        wy[id] += dwy;
+        wz[id] += dwz;
+    }
+
+    /**
+     * Метод, задающий радиус ограничивающей сферы тела (для сферы - ее радиус)
+     * @param id номер тела
+     * @param radius радиус
+     */
+    public void setRadius(int id, double radius) {
+        this.radius[id] = radius;
+    }
+
+    /**
+     * @param id номер тела
+     * @return Координата центра масс по Ox
+     */
+    public double getX(int id) {
+        return x[id];
+    }
+
+    /**
+     * @param id номер тела
+     * @return Координата центра масс по Oy
+     */
+    public double getY(int id) {
+        return y[id];
+    }
+
+    /**
+     * @param id номер тела
+     * @return Координата центра масс по Oz
+     */
+    public double getZ(int id) {
+        return z[id];
+    }
+
+    /**
+     * @param id номер тела
+     * @param dt временной шаг
+     * @return Координата центра масс по Ox через шаг (без учета столкновений)
+     */
+    public double getPredictedX(int id, double dt) {
+        return x[id] + vx[id] * dt + ax[id] * dt * dt / 2d;
+    }
+
+    /**
+     * @param id номер тела
+     * @param dt временной шаг
+     * @return Координата центра масс по Oy через шаг (без учета столкновений)
+     */
+    public double getPredictedY(int id, double dt) {
+        return y[id] + vy[id] * dt + ay[id] * dt * dt / 2d;
+    }
+
+    /**
+     * @param id номер тела
+     * @param dt временной шаг
+     * @return Координата центра масс по Oz через шаг (без учета столкновений)
+     */
+    public double getPredictedZ(int id, double dt) {
+        return z[id] + vz[id] * dt + az[id] * dt * dt / 2d;
+    }
+
+    /**
+     * @param id номер тела
+     * @return Компонента скорости по Ox
+     */
+    public double getVX(int id) {
+        return vx[id];
+    }
+
+    /**
+     * @param id номер тела
+     * @return Компонента скорости по Oy
+     */
+    public double getVY(int id) {
+        return vy[id];
+    }
+
+    /**
+     * @param id номер тела
+     * @return Компонента скорости по Oz
+     */
+    public double getVZ(int id) {
+        return vz[id];
+    }
+
+    /**
+     * @param id номер тела
+     * @return Компонента ускорения по Ox
+     */
+    public double getAX(int id) {
+        return ax[id];
+    }
+
+    /**
+     * @param id номер тела
+     * @return Компонента ускорения по Oy
+     */
+    public double getAY(int id) {
+        return ay[id];
+    }
+
+    /**
+     * @param id номер тела
+     * @return Компонента ускорения по Oz
+     */
+    public double getAZ(int id) {
+        return az[id];
+    }
+
+    /**
+     * @param id номер тела
+     * @return Компонента угловой скорости по Ox
+     */
+    public double getWX(int id) {
+        return wx[id];
+    }
+
+    /**
+     * @param id номер тела
+     * @return Компонента угловой скорости по Oy
+     */
+    public double getWY(int id) {
+        return wy[id];
+    }
+
+    /**
+     * @param id номер тела
+     * @return Компонента угловой скорости по Oz
+     */
+    public double getWZ(int id) {
+        return wz[id];
+    }
+
+    /**
+     * @param id номер тела
+     * @return Масса тела
+     */
+    public double getMass(int id) {
+        return mass[id];
+    }
+
+    /**
+     * @param id номер тела
+     * @return Радиус ограничивающей сферы тела
+     */
+    public double getRadius(int id) {
+        return radius[id];
+    }
+
+    /**
+     * Метод, расширяющий массивы хранилища
+     * @param capacity новая вместимость
+     */
+    private void allocate(int capacity) {
+        x = grow(x, capacity);
+        y = grow(y, capacity);
+        z = grow(z, capacity);
+        vx = grow(vx, capacity);
+        vy = grow(vy, capacity);
+        vz = grow(vz, capacity);
+        ax = grow(ax, capacity);
+        ay = grow(ay, capacity);
+        az = grow(az, capacity);
+        wx = grow(wx, capacity);
+        wy = grow(wy, capacity);
+        wz = grow(wz, capacity);
+        mass = grow(mass, capacity);
+        radius = grow(radius, capacity);
+    }
+
+    private static double[] grow(double[] array, int capacity) {
+        return array == null ? new double[capacity] : Arrays.copyOf(array, capacity);
+    }
+}
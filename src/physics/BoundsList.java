@@ -0,0 +1,152 @@
+package physics;
+
+import geometry.AABB;
+import geometry.objects3D.Point3D;
+
+import java.util.Arrays;
+
+/**
+ * Список ограничивающих коробок объектов широкой фазы. <br>
+ * Коробки хранятся в одном примитивном массиве (по шесть чисел на объект: минимум и максимум по трем осям),
+ * который переиспользуется между шагами. Объекты могут быть помечены неподвижными (например, спящие тела):
+ * пары из двух неподвижных объектов широкая фаза не выдает
+ */
+public final class BoundsList {
+
+    private final static int STRIDE = 6;
+
+    private double[] bounds;
+    private boolean[] statics;
+    private int size;
+
+    {
+        bounds = new double[64 * STRIDE];
+        statics = new boolean[64];
+    }
+
+    /**
+     * Метод, задающий количество объектов. Коробки сохраняются, все объекты помечаются подвижными
+     * @param size количество объектов
+     */
+    public void reset(int size) {
+        if (statics.length < size) {
+            int capacity = Math.max(size, statics.length * 2);
+            bounds = Arrays.copyOf(bounds, capacity * STRIDE);
+            statics = Arrays.copyOf(statics, capacity);
+        }
+        Arrays.fill(statics, 0, size, false);
+        this.size = size;
+    }
+
+    /**
+     * Метод, помечающий объект неподвижным или подвижным
+     * @param i номер объекта
+     * @param isStatic неподвижен ли объект
+     */
+    public void setStatic(int i, boolean isStatic) {
+        statics[i] = isStatic;
+    }
+
+    /**
+     * Метод, задающий коробку объекта
+     * @param i номер объекта
+     * @param min точка с минимальными координатами
+     * @param max точка с максимальными координатами
+     */
+    public void set(int i, Point3D min, Point3D max) {
+        int offset = i * STRIDE;
+        bounds[offset] = min.x;
+        bounds[offset + 1] = min.y;
+        bounds[offset + 2] = min.z;
+        bounds[offset + 3] = max.x;
+        bounds[offset + 4] = max.y;
+        bounds[offset + 5] = max.z;
+    }
+
+    /**
+     * Метод, задающий коробку объекта
+     * @param i номер объекта
+     * @param box коробка
+     */
+    public void set(int i, AABB box) {
+        int offset = i * STRIDE;
+        bounds[offset] = box.getMinX();
+        bounds[offset + 1] = box.getMinY();
+        bounds[offset + 2] = box.getMinZ();
+        bounds[offset + 3] = box.getMaxX();
+        bounds[offset + 4] = box.getMaxY();
+        bounds[offset + 5] = box.getMaxZ();
+    }
+
+    /**
+     * Метод, расширяющий коробку объекта так, чтобы она содержала данную
+     * @param i номер объекта
+     * @param box коробка
+     */
+    public void include(int i, AABB box) {
+        int offset = i * STRIDE;
+        bounds[offset] = Math.min(bounds[offset], box.getMinX());
+        bounds[offset + 1] = Math.min(bounds[offset + 1], box.getMinY());
+        bounds[offset + 2] = Math.min(bounds[offset + 2], box.getMinZ());
+        bounds[offset + 3] = Math.max(bounds[offset + 3], box.getMaxX());
+        bounds[offset + 4] = Math.max(bounds[offset + 4], box.getMaxY());
+        bounds[offset + 5] = Math.max(bounds[offset + 5], box.getMaxZ());
+    }
+
+    /**
+     * @return Количество объектов
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @param i номер объекта
+     * @return Неподвижен ли объект
+     */
+    public boolean isStatic(int i) {
+        return statics[i];
+    }
+
+    /**
+     * @param i номер объекта
+     * @param axis ось (0 - Ox, 1 - Oy, 2 - Oz)
+     * @return Минимальная координата коробки по оси
+     */
+    public double getMin(int i, int axis) {
+        return bounds[i * STRIDE + axis];
+    }
+
+    /**
+     * @param i номер объекта
+     * @param axis ось (0 - Ox, 1 - Oy, 2 - Oz)
+     * @return Максимальная координата коробки по оси
+     */
+    public double getMax(int i, int axis) {
+        return bounds[i * STRIDE + 3 + axis];
+    }
+
+    /**
+     * @param i номер первого объекта
+     * @param j номер второго объекта
+     * @return Пересекаются ли коробки объектов (касание считается пересечением, как в {@link AABB})
+     */
+    public boolean overlaps(int i, int j) {
+        int a = i * STRIDE, b = j * STRIDE;
+        return bounds[a + 3] >= bounds[b] && bounds[a] <= bounds[b + 3]
+                && bounds[a + 4] >= bounds[b + 1] && bounds[a + 1] <= bounds[b + 4]
+                && bounds[a + 5] >= bounds[b + 2] && bounds[a + 2] <= bounds[b + 5];
+    }
+
+    /**
+     * @param i номер объекта
+     * @param box коробка
+     * @return Пересекается ли коробка объекта с данной
+     */
+    public boolean overlaps(int i, AABB box) {
+        int a = i * STRIDE;
+        return bounds[a + 3] >= box.getMinX() && bounds[a] <= box.getMaxX()
+                && bounds[a + 4] >= box.getMinY() && bounds[a + 1] <= box.getMaxY()
+                && bounds[a + 5] >= box.getMinZ() && bounds[a + 2] <= box.getMaxZ();
+    }
+}
@@ -0,0 +1,41 @@
+package physics;
+
+import geometry.AABB;
+
+import java.util.function.IntConsumer;
+
+/**
+ * Широкая фаза: по ограничивающим коробкам объектов находит пары, которые могут пересекаться. <br>
+ * Реализация может хранить состояние между шагами, поэтому номера объектов должны обозначать одни и те же
+ * объекты от шага к шагу, пока не изменится их количество
+ */
+interface Broadphase {
+
+    /**
+     * Получатель пар широкой фазы
+     */
+    interface PairConsumer {
+
+        /**
+         * @param first номер объекта с меньшим номером
+         * @param second номер объекта с большим номером
+         */
+        void accept(int first, int second);
+    }
+
+    /**
+     * Метод, находящий все пары объектов с пересекающимися коробками, кроме пар двух неподвижных объектов.
+     * Каждая пара выдается один раз
+     * @param bounds коробки объектов текущего шага
+     * @param consumer получатель пар
+     */
+    void findPairs(BoundsList bounds, PairConsumer consumer);
+
+    /**
+     * Метод, находящий все объекты, коробки которых пересекаются с данной. Каждый объект выдается один раз
+     * @param bounds коробки объектов последнего шага
+     * @param box коробка запроса
+     * @param consumer получатель номеров объектов
+     */
+    void query(BoundsList bounds, AABB box, IntConsumer consumer);
+}
@@ -0,0 +1,19 @@
+package physics;
+
+/**
+ * Виды широкой фазы, из которых выбирается широкая фаза пространства (см {@link Space#setBroadphase(BroadphaseType)})
+ */
+public enum BroadphaseType {
+    /**
+     * Сортировка и отсечение по трем осям, подходит для большинства сцен
+     */
+    SWEEP_AND_PRUNE,
+    /**
+     * Равномерная сетка с хешированием, подходит для плотных сцен из множества тел похожего размера
+     */
+    SPATIAL_HASH,
+    /**
+     * Динамическое дерево ограничивающих коробок, подходит для сцен из тел сильно разного размера
+     */
+    AABB_TREE
+}
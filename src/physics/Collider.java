@@ -1,5 +1,6 @@
 package physics;
 
+import geometry.intersections.ContactManifold;
 import limiters.Collisional;
 
 
@@ -7,6 +8,6 @@ import limiters.Collisional;
  */
 public interface Collider<FirstThingType extends Collisional, SecondThingType extends Collisional>{
 
-    void collide(FirstThingType firstThing, SecondThingType secondThing);
+    void collide(FirstThingType firstThing, SecondThingType secondThing, ContactManifold manifold, ImpulseBuffer buffer);
 
 }
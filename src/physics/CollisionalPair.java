@@ -1,26 +1,20 @@
 package physics;
 
 import exceptions.ImpossiblePairException;
+import geometry.intersections.ContactManifold;
 import geometry.intersections.IntersectionalPair;
-import geometry.objects.Segment;
-import geometry.objects.Triangle;
 import geometry.objects3D.Line3D;
 import geometry.objects3D.Plane3D;
 import geometry.objects3D.Point3D;
 import geometry.objects3D.Vector3D;
 import limiters.Collisional;
-import physical_objects.GravityPlate;
+import limiters.Intersectional;
+import limiters.ShapeType;
 import physical_objects.PhysicalPolyhedron;
 import physical_objects.PhysicalSphere;
 import physical_objects.Wall;
-import utils.Pair;
 import utils.Tools;
-import utils.TripleMap;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Map;
 
 /**
  * Класс, обрабатывающий коллизию между объектам {@link limiters.Collisional}
@@ -30,7 +24,11 @@ public final class CollisionalPair<FirstThingType extends Collisional, SecondThi
     private final FirstThingType firstThing;
 
     private final SecondThingType secondThing;
-    private final static TripleMap<Class, Class, Collider> methodsMap;
+    private final static Collider<Collisional, Collisional>[][] colliders;
+    /**
+     * Плечо (в долях радиуса ограничивающей сферы), меньше которого удар многогранников считается центральным
+     */
+    private final static double CENTRAL_IMPACT_ARM = 1e-6;
 
 
     /**
@@ -42,45 +40,90 @@ public final class CollisionalPair<FirstThingType extends Collisional, SecondThi
     public CollisionalPair(FirstThingType firstThing, SecondThingType secondThing) throws ImpossiblePairException {
         this.firstThing = firstThing;
         this.secondThing = secondThing;
-        if (firstThing instanceof Wall && secondThing instanceof Wall)
+        if (firstThing.getShapeType() == ShapeType.WALL && secondThing.getShapeType() == ShapeType.WALL)
             throw new ImpossiblePairException("Trying to collide wall with wall");
     }
 
 
-    /*Статический иницализатор, создающий таблицу переходов, содержащую методы для обработки коллизии конкретных пар объектов
+    /*Статический иницализатор, создающий таблицу переходов, содержащую методы для обработки коллизии конкретных пар объектов.
+    Таблица индексируется видами формы объектов (см {@link ShapeType}); методы для пар разных видов принимают объекты
+    в одном порядке, а для обратного порядка записывается обертка, переставляющая объекты
      */
 
     static {
-        methodsMap = new TripleMap<>();
+        colliders = newTable(ShapeType.values().length);
 
-        methodsMap.addFirstKey(PhysicalSphere.class);
-        methodsMap.addFirstKey(PhysicalPolyhedron.class);
-        methodsMap.addFirstKey(Wall.class);
-        methodsMap.addFirstKey(GravityPlate.class);
+        putColliders(ShapeType.SPHERE, ShapeType.SPHERE, CollisionalPair::sphereToSphere);
+        putColliders(ShapeType.SPHERE, ShapeType.WALL, CollisionalPair::sphereToWall);
+        putColliders(ShapeType.SPHERE, ShapeType.POLYHEDRON, CollisionalPair::sphereToPolyhedron);
+
+        putColliders(ShapeType.POLYHEDRON, ShapeType.WALL, CollisionalPair::polyhedronToWall);
+        putColliders(ShapeType.POLYHEDRON, ShapeType.POLYHEDRON, CollisionalPair::polyhedronToPolyhedron);
+    }
 
+    @SuppressWarnings("unchecked")
+    private static Collider<Collisional, Collisional>[][] newTable(int types) {
+        return (Collider<Collisional, Collisional>[][]) new Collider<?, ?>[types][types];
+    }
+
+    /**
+     * Метод, записывающий в таблицу метод обработки коллизии для пары и метод для той же пары в обратном порядке:
+     * объекты и контакты переставляются, а после обработки контакты возвращаются в исходный порядок
+     * @param first вид первого объекта, для которого задан метод
+     * @param second вид второго объекта
+     * @param collider метод обработки коллизии
+     */
+    private static void putColliders(ShapeType first, ShapeType second, Collider<Collisional, Collisional> collider) {
+        colliders[first.ordinal()][second.ordinal()] = collider;
+        if (first == second)
+            return;
+        colliders[second.ordinal()][first.ordinal()] = (thing1, thing2, manifold, buffer) -> {
+            manifold.swap();
+            collider.collide(thing2, thing1, manifold, buffer);
+            manifold.swap();
+        };
+    }
 
-        methodsMap.putByFirstKey(PhysicalSphere.class, PhysicalSphere.class, CollisionalPair::sphereToSphere);
-        methodsMap.putByFirstKey(PhysicalSphere.class, Wall.class, CollisionalPair::sphereToWall);
-        methodsMap.putByFirstKey(PhysicalSphere.class, GravityPlate.class, CollisionalPair::sphereToWall);
-        methodsMap.putByFirstKey(PhysicalSphere.class, PhysicalPolyhedron.class, CollisionalPair::sphereToPolyhedron);
+    /**
+     * Метод, распределяющий все коллизии между двумя объектами типа {@link limiters.Collisional}, вызывает метод непосредественно для определеннтй пары.
+     * Найденные импульсы записываются в буфер и прикладываются к телам при его слиянии
+     * @param manifold контакты пары, найденные узкой фазой (см {@link IntersectionalPair#getContactManifold(ContactManifold)})
+     * @param buffer буфер импульсов текущего потока
+     */
 
-        methodsMap.putByFirstKey(Wall.class, PhysicalSphere.class, CollisionalPair::sphereToWall);
-        methodsMap.putByFirstKey(Wall.class, PhysicalPolyhedron.class, CollisionalPair::polyhedronToWall);
-        methodsMap.putByFirstKey(GravityPlate.class, PhysicalPolyhedron.class, CollisionalPair::polyhedronToWall);
-        methodsMap.putByFirstKey(GravityPlate.class, PhysicalPolyhedron.class, CollisionalPair::polyhedronToWall);
+    public void collide(ContactManifold manifold, ImpulseBuffer buffer) {
+        collide(firstThing, secondThing, manifold, buffer);
+    }
 
-        methodsMap.putByFirstKey(PhysicalPolyhedron.class, Wall.class, CollisionalPair::polyhedronToWall);
-        methodsMap.putByFirstKey(PhysicalPolyhedron.class, GravityPlate.class, CollisionalPair::polyhedronToWall);
-        methodsMap.putByFirstKey(PhysicalPolyhedron.class, PhysicalSphere.class, CollisionalPair::sphereToPolyhedron);
-        methodsMap.putByFirstKey(PhysicalPolyhedron.class, PhysicalPolyhedron.class, CollisionalPair::polyhedronToPolyhedron);
+    /**
+     * Метод, обрабатывающий коллизию пары так же, как {@link #collide(ContactManifold, ImpulseBuffer)}, но без создания
+     * объекта пары: метод берется из таблицы по видам формы объектов
+     * @param firstThing первый объект пары
+     * @param secondThing второй объект пары
+     * @param manifold контакты пары, найденные узкой фазой (см {@link IntersectionalPair#findContacts})
+     * @param buffer буфер импульсов текущего потока
+     */
+    public static void collide(Collisional firstThing, Collisional secondThing, ContactManifold manifold, ImpulseBuffer buffer) {
+        colliders[firstThing.getShapeType().ordinal()][secondThing.getShapeType().ordinal()].collide(firstThing, secondThing, manifold, buffer);
     }
 
     /**
-     * Метод, распределяющий все коллизии между двумя объектами типа {@link limiters.Collisional}, вызывает метод непосредественно для определеннтй пары
+     * Метод, находящий контакты пары, обрабатывающий коллизию и сразу прикладывающий найденные импульсы к телам
      */
 
     public void collide() {
-        methodsMap.getElement(firstThing.getClass(), secondThing.getClass()).collide(firstThing, secondThing);
+        ContactManifold manifold = new ContactManifold();
+        try {
+            new IntersectionalPair<>((Intersectional) firstThing, (Intersectional) secondThing).getContactManifold(manifold);
+        } catch (ImpossiblePairException e) {
+            e.printStackTrace();
+            return;
+        }
+        if (!manifold.isTouching())
+            return;
+        ImpulseBuffer buffer = new ImpulseBuffer();
+        collide(manifold, buffer);
+        buffer.flush();
     }
 
     /**Метод, обрабатывающий коллизию между двумя многогранниками
@@ -88,191 +131,125 @@ public final class CollisionalPair<FirstThingType extends Collisional, SecondThi
      * @param thing2 многогранник 2
      */
 
-    private static void polyhedronToPolyhedron(Collisional thing1, Collisional thing2) {
+    private static void polyhedronToPolyhedron(Collisional thing1, Collisional thing2, ContactManifold manifold, ImpulseBuffer buffer) {
         PhysicalPolyhedron polyhedron1 = (PhysicalPolyhedron) thing1;
         PhysicalPolyhedron polyhedron2 = (PhysicalPolyhedron) thing2;
 
-        Plane3D edgePlane = null;
-        Point3D collisionPoint = null;
-        Map<Plane3D, Point3D> params = new HashMap<>();
-        ArrayList<Boolean> bTFs = new ArrayList<>();
-        boolean bTF = true;
-        boolean vInters = true;
-
-        {
-
-            for (Point3D point : polyhedron1.getPoints(true))
-                for (Triangle triangle : polyhedron2.getTriangles(true))
-                    if (triangle.isIntersectedWithSegment(new Segment(point, polyhedron1.getPositionOfCentre(true)))) {
-//                        collisionPoint = point;
-//                        edgePlane = triangle.getPlane();
-                        params.put(triangle.getPlane(), point);
-                        bTFs.add(true);
-                    }
-
-            for (Point3D point : polyhedron2.getPoints(true))
-                for (Triangle triangle : polyhedron1.getTriangles(true))
-                    if (triangle.isIntersectedWithSegment(new Segment(point, polyhedron2.getPositionOfCentre(true)))) {
-//                        edgePlane = triangle.getPlane();
-//                        collisionPoint = point;
-                        params.put(triangle.getPlane(), point);
-                        bTFs.add(false);
-                    }
-        }
-
-        if (params.size() == 0) {
-            vInters = false;
-            {
-                for (Segment segment : polyhedron1.getSegments(true))
-                    for (Triangle triangle : polyhedron2.getTriangles(true))
-                        if (triangle.isIntersectedWithSegment(segment)) {
-//                            edgePlane = triangle.getPlane();
-//                            collisionPoint = segment.getIntersection(triangle.getPlane()).get();
-                            params.put(triangle.getPlane(), segment.getIntersection(triangle.getPlane()).get());
-                            bTFs.add(true);
-                        }
-
-                for (Segment segment : polyhedron2.getSegments(true))
-                    for (Triangle triangle : polyhedron1.getTriangles(true))
-                        if (triangle.isIntersectedWithSegment(segment)) {
-//                            edgePlane = triangle.getPlane();
-//                            collisionPoint = segment.getIntersection(triangle.getPlane()).get();
-                            params.put(triangle.getPlane(), segment.getIntersection(triangle.getPlane()).get());
-                            bTFs.add(false);
-                        }
-            }
-        }
-
-        int i = 0;
+        if (manifold.getContactsCount() == 0)
+            return;
 
-        for (Map.Entry<Plane3D, Point3D> param : params.entrySet()) {
-            Vector3D axisX = param.getKey().vector.normalize();
-            Point3D collisionPoint1 = null;
-            Point3D collisionPoint2 = null;
+        Vector3D axisX = manifold.getNormal(0);
+        Point3D collisionPoint1 = manifold.getPoint1(0);
+        Point3D collisionPoint2 = manifold.getPoint2(0);
 
-            if (!vInters) {
-                collisionPoint2 = param.getValue();
-                collisionPoint1 = param.getValue();
-            }
-
-            if (bTFs.get(i) && vInters) {
-                collisionPoint1 = param.getValue();
-                collisionPoint2 = param.getKey().getIntersection(new Line3D(polyhedron2.getPositionOfCentre(true), collisionPoint1)).get();
-            } else if(vInters) {
-                collisionPoint2 = param.getValue();
-                collisionPoint1 = param.getKey().getIntersection(new Line3D(polyhedron1.getPositionOfCentre(true), collisionPoint2)).get();
-            }
-
-            Vector3D r1 = new Vector3D(polyhedron1.getPositionOfCentre(true), collisionPoint1);
-            Vector3D r2 = new Vector3D(polyhedron2.getPositionOfCentre(true), collisionPoint2);
-            Vector3D vel1 = polyhedron1.getVelOfPoint(collisionPoint1, true);
-            Vector3D vel2 = polyhedron2.getVelOfPoint(collisionPoint2, true);
-            Vector3D cVel1 = polyhedron1.getV();
-            Vector3D cVel2 = polyhedron2.getV();
+        Vector3D r1 = new Vector3D(polyhedron1.getPositionOfCentre(true), collisionPoint1);
+        Vector3D r2 = new Vector3D(polyhedron2.getPositionOfCentre(true), collisionPoint2);
+        Vector3D vel1 = polyhedron1.getVelOfPoint(collisionPoint1, true);
+        Vector3D vel2 = polyhedron2.getVelOfPoint(collisionPoint2, true);
+        Vector3D cVel1 = polyhedron1.getV();
+        Vector3D cVel2 = polyhedron2.getV();
 
-            Point3D pos1 = polyhedron1.getPositionOfCentre(true);
-            Point3D pos2 = polyhedron2.getPositionOfCentre(true);
+        Point3D pos1 = polyhedron1.getPositionOfCentre(true);
+        Point3D pos2 = polyhedron2.getPositionOfCentre(true);
 
-            Plane3D plane1 = new Plane3D(collisionPoint1, axisX.addToPoint(collisionPoint1), pos1);
-            Plane3D plane2 = new Plane3D(collisionPoint2, axisX.addToPoint(collisionPoint2), pos2);
-
-
-            final double k = Tools.countAverage(polyhedron1.getMaterial().coefOfReduction, polyhedron2.getMaterial().coefOfReduction);
-            final double fr = Tools.countAverage(polyhedron1.getMaterial().coefOfFriction, polyhedron2.getMaterial().coefOfFriction);
-            final double m1 = polyhedron1.getM();
-            final double m2 = polyhedron2.getM();
-            double J1 = polyhedron1.getJ(new Line3D(polyhedron1.getPositionOfCentre(true), plane1.vector), true);
-            double J2 = polyhedron2.getJ(new Line3D(polyhedron2.getPositionOfCentre(true), plane2.vector), true);
-            final double ratio = m1 / m2;
-            double ry1 = r1.subtract(axisX.multiply(axisX.scalarProduct(r1))).getLength();
-            double ry2 = r2.subtract(axisX.multiply(axisX.scalarProduct(r2))).getLength();
+        final double k = Tools.countAverage(polyhedron1.getMaterial().coefOfReduction, polyhedron2.getMaterial().coefOfReduction);
+        final double fr = Tools.countAverage(polyhedron1.getMaterial().coefOfFriction, polyhedron2.getMaterial().coefOfFriction);
+        final double m1 = polyhedron1.getM();
+        final double m2 = polyhedron2.getM();
+        final double ratio = m1 / m2;
+        double ry1 = r1.subtract(axisX.multiply(axisX.scalarProduct(r1))).getLength();
+        double ry2 = r2.subtract(axisX.multiply(axisX.scalarProduct(r2))).getLength();
 
-            double v2x = vel2.scalarProduct(axisX);
-            double v1x = vel1.scalarProduct(axisX);
-            double v1cx = cVel1.scalarProduct(axisX);
-            double v2cx = cVel2.scalarProduct(axisX);
-            double w1x = polyhedron1.getRotationVelOfPoint(collisionPoint1, true).scalarProduct(axisX) / ry1;
-            double w2x = polyhedron2.getRotationVelOfPoint(collisionPoint2, true).scalarProduct(axisX) / ry2;
+        double v2x = vel2.scalarProduct(axisX);
+        double v1x = vel1.scalarProduct(axisX);
 
-            double fw1x = (-k * (v1x - v2x) + v2cx - v1cx + (ratio + 1) * J1 * w1x / (m1 * ry1) + w2x * ry2 + J1 * ry2 * ry2 * w1x / (J2 * ry1)) /
-                    ((ratio + 1) * J1 / (m1 * ry1) + ry1 + J1 * ry2 * ry2 / (J2 * ry1));
+        if (ry1 < CENTRAL_IMPACT_ARM * polyhedron1.getBoundingRadius() || ry2 < CENTRAL_IMPACT_ARM * polyhedron2.getBoundingRadius()) {
+            centralImpact(polyhedron1, polyhedron2, axisX, v1x, v2x, k, buffer);
+            return;
+        }
 
-            double s = J1 * (fw1x - w1x) / ry1;
+        Plane3D plane1 = new Plane3D(collisionPoint1, axisX.addToPoint(collisionPoint1), pos1);
+        Plane3D plane2 = new Plane3D(collisionPoint2, axisX.addToPoint(collisionPoint2), pos2);
+        double J1 = polyhedron1.getJ(new Line3D(pos1, plane1.vector), true);
+        double J2 = polyhedron2.getJ(new Line3D(pos2, plane2.vector), true);
+        double v1cx = cVel1.scalarProduct(axisX);
+        double v2cx = cVel2.scalarProduct(axisX);
+        double w1x = polyhedron1.getRotationVelOfPoint(collisionPoint1, true).scalarProduct(axisX) / ry1;
+        double w2x = polyhedron2.getRotationVelOfPoint(collisionPoint2, true).scalarProduct(axisX) / ry2;
 
-            Vector3D v1 = vel1.subtract(axisX.multiply(axisX.scalarProduct(vel1)));
-            Vector3D v2 = vel2.subtract(axisX.multiply(axisX.scalarProduct(vel2)));
+        double fw1x = (-k * (v1x - v2x) + v2cx - v1cx + (ratio + 1) * J1 * w1x / (m1 * ry1) + w2x * ry2 + J1 * ry2 * ry2 * w1x / (J2 * ry1)) /
+                ((ratio + 1) * J1 / (m1 * ry1) + ry1 + J1 * ry2 * ry2 / (J2 * ry1));
 
-            Vector3D relativeVel1 = v1.subtract(v2);
-            Vector3D relativeVel2 = v2.subtract(v1);
+        double s = J1 * (fw1x - w1x) / ry1;
 
-            Plane3D frictionPlane1 = new Plane3D(pos1, r1.addToPoint(pos1), v1.addToPoint(pos1));
-            Plane3D frictionPlane2 = new Plane3D(pos2, r2.addToPoint(pos2), v2.addToPoint(pos2));
+        Vector3D v1 = vel1.subtract(axisX.multiply(axisX.scalarProduct(vel1)));
+        Vector3D v2 = vel2.subtract(axisX.multiply(axisX.scalarProduct(vel2)));
 
-            J1 = polyhedron1.getJ(new Line3D(pos1, frictionPlane1.vector), true);
-            J2 = polyhedron1.getJ(new Line3D(pos2, frictionPlane2.vector), true);
-            double frictionRad1 = r1.subtract(relativeVel2.normalize().multiply(relativeVel2.normalize().scalarProduct(r1))).getLength();
-            double frictionRad2 = r2.subtract(relativeVel1.normalize().multiply(relativeVel1.normalize().scalarProduct(r2))).getLength();
+        Vector3D relativeVel1 = v1.subtract(v2);
+        Vector3D relativeVel2 = v2.subtract(v1);
 
+        Plane3D frictionPlane1 = new Plane3D(pos1, r1.addToPoint(pos1), v1.addToPoint(pos1));
+        Plane3D frictionPlane2 = new Plane3D(pos2, r2.addToPoint(pos2), v2.addToPoint(pos2));
 
-            Vector3D polyhedron1Friction1 = relativeVel1.multiply(-1d).multiply(s * fr);
-            Vector3D polyhedron1Friction2 = relativeVel1.multiply(-1d / (1d / m1 + 1d / m2 + frictionRad2 * frictionRad2 / J2 + frictionRad1 * frictionRad1 / J1));
+        J1 = polyhedron1.getJ(new Line3D(pos1, frictionPlane1.vector), true);
+        J2 = polyhedron2.getJ(new Line3D(pos2, frictionPlane2.vector), true);
+        double frictionRad1 = r1.subtract(relativeVel2.normalize().multiply(relativeVel2.normalize().scalarProduct(r1))).getLength();
+        double frictionRad2 = r2.subtract(relativeVel1.normalize().multiply(relativeVel1.normalize().scalarProduct(r2))).getLength();
 
-            if (polyhedron1Friction1.getLength() < polyhedron1Friction2.getLength()){
-//                polyhedron1.getImpulses().add(new Pair<>(polyhedron1Friction1, collisionPoint1));
-//                polyhedron2.getImpulses().add(new Pair<>(polyhedron1Friction1.multiply(-1d),collisionPoint2));
-                polyhedron1.applyImpulse(polyhedron1Friction1, collisionPoint1, true);
-                polyhedron2.applyImpulse(polyhedron1Friction1.multiply(-1d),collisionPoint2, true);
-            }
-            else{
-//                polyhedron1.getImpulses().add(new Pair<>(polyhedron1Friction2, collisionPoint1));
-//                polyhedron2.getImpulses().add(new Pair<>(polyhedron1Friction2.multiply(-1d),collisionPoint2));
-                polyhedron1.applyImpulse(polyhedron1Friction2, collisionPoint1, true);
-                polyhedron2.applyImpulse(polyhedron1Friction2.multiply(-1d),collisionPoint2, true);
-            }
 
-//            polyhedron1.getImpulses().add(new Pair<>(axisX.multiply(s), collisionPoint1));
-//            polyhedron2.getImpulses().add(new Pair<>(axisX.multiply(-s), collisionPoint2));
+        Vector3D polyhedron1Friction1 = relativeVel1.multiply(-1d).multiply(s * fr);
+        Vector3D polyhedron1Friction2 = relativeVel1.multiply(-1d / (1d / m1 + 1d / m2 + frictionRad2 * frictionRad2 / J2 + frictionRad1 * frictionRad1 / J1));
 
-            polyhedron1.applyImpulse(axisX.multiply(s), collisionPoint1, true);
-            polyhedron2.applyImpulse(axisX.multiply(-s), collisionPoint2, true);
-
-            i++;
+        if (polyhedron1Friction1.getLength() < polyhedron1Friction2.getLength()){
+            buffer.addImpulse(polyhedron1, polyhedron1Friction1, collisionPoint1);
+            buffer.addImpulse(polyhedron2, polyhedron1Friction1.multiply(-1d), collisionPoint2);
+        }
+        else{
+            buffer.addImpulse(polyhedron1, polyhedron1Friction2, collisionPoint1);
+            buffer.addImpulse(polyhedron2, polyhedron1Friction2.multiply(-1d), collisionPoint2);
         }
 
+        buffer.addImpulse(polyhedron1, axisX.multiply(s), collisionPoint1);
+        buffer.addImpulse(polyhedron2, axisX.multiply(-s), collisionPoint2);
+    }
 
+    /**
+     * Метод, обрабатывающий центральный удар многогранников: точка контакта лежит на нормали, проходящей через
+     * центр масс, поэтому удар не вращает тела, импульс прикладывается к центрам масс и считается как для двух сфер
+     * (см {@link #sphereToSphere})
+     * @param polyhedron1 многогранник 1
+     * @param polyhedron2 многогранник 2
+     * @param axisX нормаль контакта (от первого многогранника ко второму)
+     * @param v1x скорость точки контакта первого многогранника вдоль нормали
+     * @param v2x скорость точки контакта второго многогранника вдоль нормали
+     * @param k коэффициент восстановления
+     * @param buffer буфер импульсов текущего потока
+     */
+    private static void centralImpact(PhysicalPolyhedron polyhedron1, PhysicalPolyhedron polyhedron2, Vector3D axisX,
+                                      double v1x, double v2x, double k, ImpulseBuffer buffer) {
+        final double m1 = polyhedron1.getM();
+        final double m2 = polyhedron2.getM();
+        final double s = (1d + k) * m1 * m2 / (m1 + m2) * (v2x - v1x);
+        buffer.addImpulse(polyhedron1, axisX.multiply(s), polyhedron1.getPositionOfCentre(true));
+        buffer.addImpulse(polyhedron2, axisX.multiply(-s), polyhedron2.getPositionOfCentre(true));
     }
 
     /**Метод, обрабатывающий коллизию между сферой и многогранником.
-     * @param thing1 сфера или многогранник
-     * @param thing2 многогранник или сфера
+     * @param thing1 сфера
+     * @param thing2 многогранник
      */
 
-    private static void sphereToPolyhedron(Collisional thing1, Collisional thing2) {
-        PhysicalPolyhedron polyhedron;
-        PhysicalSphere sphere;
+    private static void sphereToPolyhedron(Collisional thing1, Collisional thing2, ContactManifold manifold, ImpulseBuffer buffer) {
+        PhysicalSphere sphere = (PhysicalSphere) thing1;
+        PhysicalPolyhedron polyhedron = (PhysicalPolyhedron) thing2;
 
-        if (thing1 instanceof PhysicalPolyhedron) {
-            polyhedron = (PhysicalPolyhedron) thing1;
-            sphere = (PhysicalSphere) thing2;
-        } else {
-            sphere = (PhysicalSphere) thing1;
-            polyhedron = (PhysicalPolyhedron) thing2;
-        }
+        final double share = 1d / Math.max(1, manifold.getContactsCount());
 
-//        Plane3D edgePlane = null;
-        HashSet<Plane3D> planes = new HashSet<>();
-
-        try {
-            for (Triangle triangle : polyhedron.getTriangles(true))
-                if (new IntersectionalPair<>(sphere, triangle).areIntersected()) {
-//                    edgePlane = triangle.getPlane();
-                    planes.add(triangle.getPlane());
-                }
-        } catch (Exception ignored) {
-        }
-
-        for (Plane3D edgePlane : planes){
-            Vector3D axisX = edgePlane.vector.normalize();
+        for (int i = 0; i < manifold.getContactsCount(); i++) {
+            Vector3D axisX = manifold.getNormal(i);
+            Point3D collisionPoint1 = manifold.getPoint1(i);
+            Point3D collisionPoint2 = manifold.getPoint2(i);
+            Plane3D edgePlane = new Plane3D(axisX, collisionPoint2);
 
             Plane3D collisionPlane = new Plane3D(sphere.getPositionOfCentre(true),
                     polyhedron.getPositionOfCentre(true),
@@ -286,13 +263,6 @@ public final class CollisionalPair<FirstThingType extends Collisional, SecondThi
             final double J1 = sphere.getJ();
             double J2 = polyhedron.getJ(new Line3D(polyhedron.getPositionOfCentre(true), collisionPlane.vector), true);
 
-            Line3D collisionLine = new Line3D(sphere.getPositionOfCentre(true), axisX);
-            Point3D collisionPoint2 = collisionLine.getIntersection(edgePlane).get();
-            Point3D collisionPoint1 = new Vector3D(sphere.getPositionOfCentre(true), collisionPoint2)
-                    .normalize()
-                    .multiply(sphere.getR())
-                    .addToPoint(sphere.getPositionOfCentre(true));
-
             Vector3D pRadV = new Vector3D(polyhedron.getPositionOfCentre(true), collisionPoint2);
 
             double ry = pRadV.subtract(axisX.multiply(axisX.scalarProduct(pRadV))).getLength();
@@ -316,19 +286,19 @@ public final class CollisionalPair<FirstThingType extends Collisional, SecondThi
             Vector3D polyhedronFriction2 = relativeVel2.multiply(-1d / (1d / m1 + 1d / m2 + r2 * r2 / J2 + sphere.getR() * sphere.getR() / J1));
 
             if (polyhedronFriction1.getLength() < polyhedronFriction2.getLength()) {
-                polyhedron.applyImpulse(polyhedronFriction1, collisionPoint2, true);
-                sphere.applyFriction(collisionPoint1, polyhedronFriction1.multiply(-1d));
+                buffer.addImpulse(polyhedron, polyhedronFriction1.multiply(share), collisionPoint2);
+                buffer.addFriction(sphere, collisionPoint1, polyhedronFriction1.multiply(-1d).multiply(share));
             } else {
-                polyhedron.applyImpulse(polyhedronFriction2, collisionPoint2, true);
-                sphere.applyFriction(collisionPoint1, polyhedronFriction2.multiply(-1d));
+                buffer.addImpulse(polyhedron, polyhedronFriction2.multiply(share), collisionPoint2);
+                buffer.addFriction(sphere, collisionPoint1, polyhedronFriction2.multiply(-1d).multiply(share));
             }
 
 
             Vector3D sphereImpulse = axisX.multiply(s);
 
 
-            sphere.applyStrikeImpulse(sphereImpulse);
-            polyhedron.applyImpulse(sphereImpulse.multiply(-1d), collisionPoint2, true);
+            buffer.addStrike(sphere, sphereImpulse.multiply(share));
+            buffer.addImpulse(polyhedron, sphereImpulse.multiply(-1d).multiply(share), collisionPoint2);
 
 
         }
@@ -337,41 +307,25 @@ public final class CollisionalPair<FirstThingType extends Collisional, SecondThi
     }
 
     /**Метод, обрабатывающий коллизию между многогранником и стеной
-     * @param thing1 многогранник или стена
-     * @param thing2 стена или многогранник
+     * @param thing1 многогранник
+     * @param thing2 стена
      */
 
-    private static void polyhedronToWall(Collisional thing1, Collisional thing2) {
-        PhysicalPolyhedron polyhedron;
-        Wall wall;
-
-        if (thing1 instanceof PhysicalPolyhedron) {
-            polyhedron = (PhysicalPolyhedron) thing1;
-            wall = (Wall) thing2;
-        } else {
-            wall = (Wall) thing1;
-            polyhedron = (PhysicalPolyhedron) thing2;
-        }
+    private static void polyhedronToWall(Collisional thing1, Collisional thing2, ContactManifold manifold, ImpulseBuffer buffer) {
+        PhysicalPolyhedron polyhedron = (PhysicalPolyhedron) thing1;
+        Wall wall = (Wall) thing2;
 
         final double k = Tools.countAverage(polyhedron.getMaterial().coefOfReduction, wall.getMaterial().coefOfReduction);
         final double fr = Tools.countAverage(polyhedron.getMaterial().coefOfFriction, wall.getMaterial().coefOfFriction);
         final double m = polyhedron.getM();
 
-        ArrayList<Point3D> collisionPoints = new ArrayList<>();
-
+        final double share = 1d / Math.max(1, manifold.getContactsCount());
 
-        for (Point3D point : polyhedron.getPoints(true)) {
-            for (Triangle triangle : wall.getTriangles())
-                if (triangle.isIntersectedWithSegment(new Segment(point, polyhedron.getPositionOfCentre(true)))) {
-                    collisionPoints.add(point);
-                    break;
-                }
-        }
-
-        for (Point3D collisionPoint : collisionPoints) {
+        for (int i = 0; i < manifold.getContactsCount(); i++) {
+            Point3D collisionPoint = manifold.getPoint1(i);
             Vector3D vel = polyhedron.getVelOfPoint(collisionPoint, true);
 
-            Vector3D axisY = wall.getPlane().vector.normalize();
+            Vector3D axisY = manifold.getNormal(i);
 
 
 
@@ -413,12 +367,12 @@ public final class CollisionalPair<FirstThingType extends Collisional, SecondThi
             Vector3D friction2 = vel1.multiply(-1d * (1d / (1d / m + r1 * r1 / J1)));
 
             if (friction1.getLength() > friction2.getLength())
-                polyhedron.applyImpulse(friction2, collisionPoint, true);
+                buffer.addImpulse(polyhedron, friction2.multiply(share), collisionPoint);
             else
-                polyhedron.applyImpulse(friction1, collisionPoint, true);
+                buffer.addImpulse(polyhedron, friction1.multiply(share), collisionPoint);
 
 
-            polyhedron.applyImpulse(axisY.multiply(s), collisionPoint, true);
+            buffer.addImpulse(polyhedron, axisY.multiply(s).multiply(share), collisionPoint);
         }
 
     }
@@ -429,15 +383,15 @@ public final class CollisionalPair<FirstThingType extends Collisional, SecondThi
      * @param thing2 сфера 2
      */
 
-    private static void sphereToSphere(Collisional thing1, Collisional thing2) {
+    private static void sphereToSphere(Collisional thing1, Collisional thing2, ContactManifold manifold, ImpulseBuffer buffer) {
         PhysicalSphere sphere1 = (PhysicalSphere) thing1;
         PhysicalSphere sphere2 = (PhysicalSphere) thing2;
 
+        if (manifold.getContactsCount() == 0)
+            return;
+
         final Point3D firstSpherePos = sphere1.getPositionOfCentre(true);
-        final Point3D secondSpherePos = sphere2.getPositionOfCentre(true);
-        final Vector3D axisX = new Vector3D(firstSpherePos.x - secondSpherePos.x,
-                firstSpherePos.y - secondSpherePos.y, firstSpherePos.z - secondSpherePos.z);
-        final double axisXLen = axisX.getLength();
+        final Vector3D axisX = manifold.getNormal(0).multiply(-1d);
 
         final double m1 = sphere1.getM();
         final double m2 = sphere2.getM();
@@ -445,19 +399,16 @@ public final class CollisionalPair<FirstThingType extends Collisional, SecondThi
         final double k = Tools.countAverage(sphere1.getMaterial().coefOfReduction, sphere2.getMaterial().coefOfReduction);
         final double fr = Tools.countAverage(sphere1.getMaterial().coefOfFriction, sphere2.getMaterial().coefOfFriction);
 
-        final double r1 = sphere1.getR();
-        final double r2 = sphere2.getR();
-
-        final double v1x = (sphere1.getV().scalarProduct(axisX) / axisXLen);
-        final double v2x = (sphere2.getV().scalarProduct(axisX) / axisXLen);
+        final double v1x = sphere1.getV().scalarProduct(axisX);
+        final double v2x = sphere2.getV().scalarProduct(axisX);
         final double u1x = ((ratio - k) * v1x + (k + 1) * v2x) / (ratio + 1);
         final double u2x = ((ratio * (k + 1)) * v1x + (1 - k * ratio) * v2x) / (ratio + 1);
         final double s = (m1 * m2) / (m1 + m2) * (1f + k) * Math.abs(v1x - v2x);
 
         final Plane3D frictionPlane = new Plane3D(axisX, firstSpherePos);
 
-        final Point3D collisionPoint1 = axisX.multiply(-r1 / axisXLen).addToPoint(sphere1.getPositionOfCentre(true));
-        final Point3D collisionPoint2 = axisX.multiply(r2 / axisXLen).addToPoint(sphere2.getPositionOfCentre(true));
+        final Point3D collisionPoint1 = manifold.getPoint1(0);
+        final Point3D collisionPoint2 = manifold.getPoint2(0);
 
         final Vector3D vel1 = Tools.calcProjectionOfVectorOnPlane(sphere1.getVelOfPoint(collisionPoint1, true), frictionPlane);
         final Vector3D vel2 = Tools.calcProjectionOfVectorOnPlane(sphere2.getVelOfPoint(collisionPoint2, true), frictionPlane);
@@ -469,53 +420,46 @@ public final class CollisionalPair<FirstThingType extends Collisional, SecondThi
         Vector3D firstSphereFriction2 = relativeVel2.multiply(m1 * m2 / (3.5 * (m1 + m2)));
 
         if (firstSphereFriction1.getLength() < firstSphereFriction2.getLength()) {
-            sphere1.getFrictionImpulses().add(new Pair<>(firstSphereFriction1, collisionPoint1));
-            sphere2.getFrictionImpulses().add(new Pair<>(firstSphereFriction1.multiply(-1), collisionPoint2));
+            buffer.addFriction(sphere1, collisionPoint1, firstSphereFriction1);
+            buffer.addFriction(sphere2, collisionPoint2, firstSphereFriction1.multiply(-1));
         } else {
-            sphere1.getFrictionImpulses().add(new Pair<>(firstSphereFriction2, collisionPoint1));
-            sphere2.getFrictionImpulses().add(new Pair<>(firstSphereFriction2.multiply(-1), collisionPoint2));
+            buffer.addFriction(sphere1, collisionPoint1, firstSphereFriction2);
+            buffer.addFriction(sphere2, collisionPoint2, firstSphereFriction2.multiply(-1));
         }
 
 
-        sphere1.getImpulses().add(axisX.multiply(m1 * (u1x - v1x) / axisXLen));
-        sphere2.getImpulses().add(axisX.multiply(m2 * (u2x - v2x) / axisXLen));
+        buffer.addStrike(sphere1, axisX.multiply(m1 * (u1x - v1x)));
+        buffer.addStrike(sphere2, axisX.multiply(m2 * (u2x - v2x)));
     }
 
     /**Метод, обрабатывающий коллизию между сферой и стеной
-     * @param thing1 сфера или стена
-     * @param thing2 стена или сфера
+     * @param thing1 сфера
+     * @param thing2 стена
      */
 
-    private static void sphereToWall(Collisional thing1, Collisional thing2) {
-        PhysicalSphere sphere;
-        Wall wall;
+    private static void sphereToWall(Collisional thing1, Collisional thing2, ContactManifold manifold, ImpulseBuffer buffer) {
+        PhysicalSphere sphere = (PhysicalSphere) thing1;
+        Wall wall = (Wall) thing2;
 
-        if (thing1 instanceof PhysicalSphere) {
-            sphere = (PhysicalSphere) thing1;
-            wall = (Wall) thing2;
-        } else {
-            wall = (Wall) thing1;
-            sphere = (PhysicalSphere) thing2;
-        }
+        if (manifold.getContactsCount() == 0)
+            return;
 
         final double k = Tools.countAverage(sphere.getMaterial().coefOfReduction, wall.getMaterial().coefOfReduction);
         final double fr = Tools.countAverage(sphere.getMaterial().coefOfFriction, wall.getMaterial().coefOfFriction);
         final double m = sphere.getM();
 
-        Vector3D axisY = wall.getPlane().vector;
+        Vector3D axisY = manifold.getNormal(0);
 
         if (sphere.getV().scalarProduct(axisY) > 0)
             axisY = axisY.multiply(-1);
 
-        final double axisYLen = axisY.getLength();
-
-        final Point3D collisionPoint = axisY.multiply(-sphere.getR() / axisYLen).addToPoint(sphere.getPositionOfCentre(true));
+        final Point3D collisionPoint = manifold.getPoint1(0);
 
-        final double vy = Math.abs(sphere.getV().scalarProduct(axisY) / axisY.getLength());
+        final double vy = Math.abs(sphere.getV().scalarProduct(axisY));
         final double s = (1f + k) * sphere.getM() * vy;
 
 
-        Vector3D v = Tools.calcProjectionOfVectorOnPlane(sphere.getV(), wall.getPlane());
+        Vector3D v = Tools.calcProjectionOfVectorOnPlane(sphere.getV(), new Plane3D(axisY, collisionPoint));
         Vector3D angularVel = sphere.getRotationVelOfPoint(collisionPoint, true);
 
         final Vector3D velOfCollisionPoint = v.add(angularVel);
@@ -525,13 +469,13 @@ public final class CollisionalPair<FirstThingType extends Collisional, SecondThi
         Vector3D frictionImpulse2 = velOfCollisionPoint.multiply(-m / 3.5d);
 
         if (frictionImpulse1.getLength() < frictionImpulse2.getLength()) {
-            sphere.applyFriction(collisionPoint, frictionImpulse1);
+            buffer.addFriction(sphere, collisionPoint, frictionImpulse1);
         } else {
-            sphere.applyFriction(collisionPoint, frictionImpulse2);
+            buffer.addFriction(sphere, collisionPoint, frictionImpulse2);
         }
 
 
-        sphere.applyStrikeImpulse(axisY.multiply(s / axisYLen));
+        buffer.addStrike(sphere, axisY.multiply(s));
 
 
     }
@@ -0,0 +1,152 @@
+package physics;
+
+import geometry.objects3D.Point3D;
+import geometry.objects3D.Vector3D;
+import physical_objects.AbstractBody;
+import physical_objects.PhysicalPolyhedron;
+import physical_objects.PhysicalSphere;
+
+import java.util.Arrays;
+
+/**
+ * Буфер импульсов и смещений, найденных узкой фазой. <br>
+ * Каждый поток пишет только в собственный буфер, поэтому запись не требует синхронизации.
+ * Данные хранятся в примитивных массивах, которые только дополняются и переиспользуются между шагами.
+ * После узкой фазы все буферы сливаются в тела методом {@link #flush()} в одном потоке
+ */
+public final class ImpulseBuffer {
+
+    private final static byte STRIKE = 0;
+    private final static byte FRICTION = 1;
+    private final static byte IMPULSE = 2;
+    private final static byte SHIFT = 3;
+    private final static int STRIDE = 6;
+
+    private AbstractBody[] bodies;
+    private byte[] kinds;
+    private double[] data;
+    private int size;
+
+    {
+        bodies = new AbstractBody[32];
+        kinds = new byte[32];
+        data = new double[32 * STRIDE];
+    }
+
+    /**
+     * Метод, добавляющий ударный импульс сферы
+     * @param sphere сфера
+     * @param impulse импульс
+     */
+    public void addStrike(PhysicalSphere sphere, Vector3D impulse) {
+        int offset = append(sphere, STRIKE);
+        data[offset] = impulse.x;
+        data[offset + 1] = impulse.y;
+        data[offset + 2] = impulse.z;
+    }
+
+    /**
+     * Метод, добавляющий импульс силы трения сферы
+     * @param sphere сфера
+     * @param applicationPoint точка приложения
+     * @param impulse импульс
+     */
+    public void addFriction(PhysicalSphere sphere, Point3D applicationPoint, Vector3D impulse) {
+        int offset = append(sphere, FRICTION);
+        data[offset] = impulse.x;
+        data[offset + 1] = impulse.y;
+        data[offset + 2] = impulse.z;
+        data[offset + 3] = applicationPoint.x;
+        data[offset + 4] = applicationPoint.y;
+        data[offset + 5] = applicationPoint.z;
+    }
+
+    /**
+     * Метод, добавляющий импульс многогранника (относительно будущего положения)
+     * @param polyhedron многогранник
+     * @param impulse импульс
+     * @param applicationPoint точка приложения
+     */
+    public void addImpulse(PhysicalPolyhedron polyhedron, Vector3D impulse, Point3D applicationPoint) {
+        int offset = append(polyhedron, IMPULSE);
+        data[offset] = impulse.x;
+        data[offset + 1] = impulse.y;
+        data[offset + 2] = impulse.z;
+        data[offset + 3] = applicationPoint.x;
+        data[offset + 4] = applicationPoint.y;
+        data[offset + 5] = applicationPoint.z;
+    }
+
+    /**
+     * Метод, добавляющий смещение тела (выталкивание из другого объекта)
+     * @param body сфера или многогранник
+     * @param movement вектор смещения, null - смещения нет
+     */
+    public void addShift(AbstractBody body, Vector3D movement) {
+        if (movement == null) return;
+        int offset = append(body, SHIFT);
+        data[offset] = movement.x;
+        data[offset + 1] = movement.y;
+        data[offset + 2] = movement.z;
+    }
+
+    /**
+     * Метод, прикладывающий к телам все накопленные импульсы и смещения в порядке их добавления и очищающий буфер
+     */
+    public void flush() {
+        for (int i = 0; i < size; i++) {
+            AbstractBody body = bodies[i];
+            int offset = i * STRIDE;
+            Vector3D vector = new Vector3D(data[offset], data[offset + 1], data[offset + 2]);
+            switch (kinds[i]) {
+                case STRIKE:
+                    ((PhysicalSphere) body).applyStrikeImpulse(vector);
+                    break;
+                case FRICTION:
+                    ((PhysicalSphere) body).applyFriction(point(offset), vector);
+                    break;
+                case IMPULSE:
+                    ((PhysicalPolyhedron) body).applyImpulse(vector, point(offset), true);
+                    break;
+                case SHIFT:
+                    body.move(vector);
+                    break;
+            }
+            bodies[i] = null;
+        }
+        size = 0;
+    }
+
+    /**
+     * @return Количество записей в буфере
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @param offset смещение записи в массиве данных
+     * @return Точка приложения, хранящаяся в записи
+     */
+    private Point3D point(int offset) {
+        return new Point3D(data[offset + 3], data[offset + 4], data[offset + 5]);
+    }
+
+    /**
+     * Метод, резервирующий место под новую запись
+     * @param body тело записи
+     * @param kind вид записи
+     * @return Смещение записи в массиве данных
+     */
+    private int append(AbstractBody body, byte kind) {
+        if (size == bodies.length) {
+            int capacity = size * 2;
+            bodies = Arrays.copyOf(bodies, capacity);
+            kinds = Arrays.copyOf(kinds, capacity);
+            data = Arrays.copyOf(data, capacity * STRIDE);
+        }
+        bodies[size] = body;
+        kinds[size] = kind;
+        return STRIDE * size++;
+    }
+}
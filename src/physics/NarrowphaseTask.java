@@ -0,0 +1,70 @@
+package physics;
+
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntConsumer;
+
+/**
+ * Задача узкой фазы, обрабатывающая отрезок списка пар. <br>
+ * Отрезок делится на две части равной стоимости (а не равного количества пар), пока его стоимость
+ * больше порога, поэтому дорогие пары многогранников и дешевые пары сфер распределяются между потоками равномерно
+ */
+final class NarrowphaseTask extends RecursiveAction {
+
+    private final static long serialVersionUID = 1L;
+    private final PairList pairs;
+    private final IntConsumer handler;
+    private final int from;
+    private final int to;
+    private final long threshold;
+
+    /**
+     * Конструктор
+     * @param pairs список пар
+     * @param handler обработчик пары по ее номеру
+     * @param from номер первой пары отрезка
+     * @param to номер пары, следующей за последней парой отрезка
+     * @param threshold стоимость, ниже которой отрезок не делится
+     */
+    NarrowphaseTask(PairList pairs, IntConsumer handler, int from, int to, long threshold) {
+        this.pairs = pairs;
+        this.handler = handler;
+        this.from = from;
+        this.to = to;
+        this.threshold = threshold;
+    }
+
+    @Override
+    protected void compute() {
+        long cost = pairs.getCostBefore(to) - pairs.getCostBefore(from);
+        if (to - from < 2 || cost <= threshold) {
+            for (int i = from; i < to; i++) {
+                try {
+                    handler.accept(i);
+                } catch (RuntimeException e) {
+                    e.printStackTrace();
+                }
+            }
+            return;
+        }
+        int middle = split(pairs.getCostBefore(from) + cost / 2);
+        invokeAll(new NarrowphaseTask(pairs, handler, from, middle, threshold),
+                new NarrowphaseTask(pairs, handler, middle, to, threshold));
+    }
+
+    /**
+     * @param cost стоимость
+     * @return Номер пары, на которой накопленная стоимость достигает данной (строго внутри отрезка)
+     */
+    private int split(long cost) {
+        int low = from + 1;
+        int high = to - 1;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (pairs.getCostBefore(middle) < cost)
+                low = middle + 1;
+            else
+                high = middle;
+        }
+        return low;
+    }
+}
@@ -0,0 +1,125 @@
+package physics;
+
+import java.util.Arrays;
+
+/**
+ * Список пар-кандидатов узкой фазы. <br>
+ * Пары хранятся номерами объектов в примитивных массивах, которые переиспользуются между шагами.
+ * Для каждой пары хранится накопленная стоимость ее проверки, по которой работа делится между потоками
+ */
+public final class PairList {
+
+    private int[] first;
+    private int[] second;
+    private PairType[] types;
+    private long[] costs;
+    private int size;
+
+    {
+        first = new int[64];
+        second = new int[64];
+        types = new PairType[64];
+        costs = new long[65];
+    }
+
+    /**
+     * Метод, добавляющий пару в список
+     * @param type тип пары
+     * @param firstIndex номер первого объекта
+     * @param secondIndex номер второго объекта
+     * @param cost стоимость проверки пары
+     */
+    public void add(PairType type, int firstIndex, int secondIndex, long cost) {
+        if (size == first.length) grow();
+        first[size] = firstIndex;
+        second[size] = secondIndex;
+        types[size] = type;
+        costs[size + 1] = costs[size] + Math.max(1, cost);
+        size++;
+    }
+
+    /**
+     * Метод, очищающий список
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * @return Количество пар
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @param i номер пары
+     * @return Номер первого объекта пары
+     */
+    public int getFirst(int i) {
+        return first[i];
+    }
+
+    /**
+     * @param i номер пары
+     * @return Номер второго объекта пары
+     */
+    public int getSecond(int i) {
+        return second[i];
+    }
+
+    /**
+     * @param i номер пары
+     * @return Тип пары
+     */
+    public PairType getType(int i) {
+        return types[i];
+    }
+
+    /**
+     * @param i номер пары
+     * @return Суммарная стоимость пар с номерами меньше данного
+     */
+    public long getCostBefore(int i) {
+        return costs[i];
+    }
+
+    /**
+     * Метод, оставляющий в списке только отмеченные пары (в прежнем порядке, со своими стоимостями)
+     * @param keep отметки пар, которые нужно оставить
+     */
+    public void retain(boolean[] keep) {
+        int kept = 0;
+        long before = 0;
+        for (int i = 0; i < size; i++) {
+            long cost = costs[i + 1] - before;
+            before = costs[i + 1];
+            if (!keep[i]) continue;
+            first[kept] = first[i];
+            second[kept] = second[i];
+            types[kept] = types[i];
+            costs[kept + 1] = costs[kept] + cost;
+            kept++;
+        }
+        Arrays.fill(types, kept, size, null);
+        size = kept;
+    }
+
+    /**
+     * @return Суммарная стоимость всех пар
+     */
+    public long getTotalCost() {
+        return costs[size];
+    }
+
+    /**
+     * Метод, увеличивающий вместимость массивов вдвое
+     */
+    private void grow() {
+        int capacity = first.length * 2;
+        first = Arrays.copyOf(first, capacity);
+        second = Arrays.copyOf(second, capacity);
+        types = Arrays.copyOf(types, capacity);
+        costs = Arrays.copyOf(costs, capacity + 1);
+    }
+}
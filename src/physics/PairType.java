@@ -0,0 +1,12 @@
+package physics;
+
+/**
+ * Типы пар объектов, обрабатываемых в узкой фазе (см {@link PhysicsHandler})
+ */
+public enum PairType {
+    SPHERE_SPHERE,
+    SPHERE_WALL,
+    POLYHEDRON_POLYHEDRON,
+    POLYHEDRON_WALL,
+    POLYHEDRON_SPHERE
+}
@@ -1,18 +1,21 @@
 package physics;
 
 
-import exceptions.ImpossiblePairException;
+import geometry.AABB;
+import geometry.intersections.ContactManifold;
 import geometry.intersections.IntersectionalPair;
 import geometry.objects.Triangle;
-import geometry.intersections.PolyhedronToPlaneIntersection;
-import geometry.intersections.SphereToPlaneIntersection;
-import geometry.intersections.SpheresIntersection;
+import geometry.objects3D.Vector3D;
+import limiters.Collisional;
+import limiters.Intersectional;
+import physical_objects.AbstractBody;
 import physical_objects.PhysicalPolyhedron;
 import physical_objects.PhysicalSphere;
 import physical_objects.Wall;
 
 import java.util.ArrayList;
 import java.util.ConcurrentModificationException;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
  * Обработчик физики
@@ -22,164 +25,607 @@ public class PhysicsHandler {
     private final ArrayList<PhysicalSphere> spheres;
     private final ArrayList<Wall> walls;
     private final ArrayList<PhysicalPolyhedron> polyhedrons;
+    private final BodyStore bodyStore;
     private final int depth;
+    private final StepExecutor executor;
+    private final PairList pairs;
+    private final BoundsList bounds;
+    private final SphereBatch sphereBatch;
+    private boolean sphereBatchEnabled;
+    private boolean[] keptPairs;
+    private Broadphase broadphase;
+    private BroadphaseType broadphaseType;
+    private final StaticBvh wallTree;
+    private int[] wallStamps;
+    private int stamp;
+    private final ArrayList<ImpulseBuffer> buffers;
+    private final ThreadLocal<ImpulseBuffer> threadBuffer;
+    private final ThreadLocal<ContactManifold> threadManifold;
+    private final double dt;
+    private boolean sleepingEnabled;
+    private AbstractBody[] proxyBodies;
+    private boolean[] touching;
+    private int[] islandParent;
+    private int[] islandRest;
+    private long[] islandIds;
+    private long islandCounter;
+    private int[] wakeStamps;
+    private long[] wakeIslands;
+    private boolean islandsWoken;
+    private final static long SPHERE_TEST_COST = 1;
+    /**
+     * Примерное количество проходов по вершинам пары многогранников при проверке GJK, EPA и выталкивании
+     */
+    private final static long GJK_ITERATIONS_COST = 48;
+    /**
+     * Скорость, ниже которой тело считается покоящимся
+     */
+    private final static double SLEEP_LINEAR_SPEED = 2d;
+    /**
+     * Угловая скорость, ниже которой тело считается покоящимся
+     */
+    private final static double SLEEP_ANGULAR_SPEED = 0.05d;
+    /**
+     * Время в секундах, которое остров должен провести в покое, чтобы уснуть
+     */
+    private final static double TIME_TO_SLEEP = 0.5d;
+    private final static long MIN_TASK_COST = 64;
+    private final static int TASKS_PER_THREAD = 8;
+
+    {
+        pairs = new PairList();
+        bounds = new BoundsList();
+        sphereBatch = new SphereBatch();
+        sphereBatchEnabled = true;
+        keptPairs = new boolean[0];
+        wallTree = new StaticBvh();
+        wallStamps = new int[0];
+        sleepingEnabled = true;
+        proxyBodies = new AbstractBody[0];
+        touching = new boolean[0];
+        islandParent = new int[0];
+        islandRest = new int[0];
+        islandIds = new long[0];
+        wakeStamps = new int[0];
+        wakeIslands = new long[0];
+        setBroadphase(BroadphaseType.AABB_TREE);
+        buffers = new ArrayList<>();
+        threadBuffer = ThreadLocal.withInitial(() -> {
+            ImpulseBuffer buffer = new ImpulseBuffer();
+            synchronized (buffers) {
+                buffers.add(buffer);
+            }
+            return buffer;
+        });
+        threadManifold = ThreadLocal.withInitial(ContactManifold::new);
+    }
 
     /**
      * Конструктор по пространству, физику в котором надо рассчитать и глубине просчета
      * @param space пространство
      * @param depth глубина просчета
+     * @param parallelism количество потоков, обрабатывающих физику
      */
-    PhysicsHandler(Space space, int depth) {
+    PhysicsHandler(Space space, int depth, int parallelism) {
         spheres = space.getSpheres();
         walls = space.getWalls();
         polyhedrons = space.getPolyhedrons();
+        bodyStore = space.getBodyStore();
         this.depth = depth;
+        dt = space.getDT();
+        executor = new StepExecutor(parallelism);
+    }
+
+    /**
+     * Метод, заменяющий широкую фазу
+     * @param type вид широкой фазы
+     */
+    void setBroadphase(BroadphaseType type) {
+        switch (type) {
+            case SWEEP_AND_PRUNE:
+                broadphase = new SweepAndPrune();
+                break;
+            case SPATIAL_HASH:
+                broadphase = new SpatialHashGrid();
+                break;
+            case AABB_TREE:
+                broadphase = new AabbTree();
+                break;
+        }
+        broadphaseType = type;
+    }
+
+    /**
+     * @return Вид широкой фазы
+     */
+    BroadphaseType getBroadphaseType() {
+        return broadphaseType;
+    }
+
+    /**
+     * @param box коробка
+     * @return Тела и стены, ограничивающие коробки которых на последнем шаге пересекались с данной
+     */
+    ArrayList<Collisional> query(AABB box) {
+        ArrayList<Collisional> result = new ArrayList<>();
+        final int spheresCount = spheres.size();
+        final int bodiesCount = spheresCount + polyhedrons.size();
+        if (bounds.size() != bodiesCount || wallTree.getWallsCount() != walls.size())
+            return result;
+        broadphase.query(bounds, box, proxy -> {
+            if (proxy < spheresCount)
+                result.add(spheres.get(proxy));
+            else
+                result.add(polyhedrons.get(proxy - spheresCount));
+        });
+        final int queryStamp = ++stamp;
+        wallTree.query(box, triangle -> {
+            int wall = wallTree.getWall(triangle);
+            if (wallStamps[wall] == queryStamp) return;
+            wallStamps[wall] = queryStamp;
+            result.add(walls.get(wall));
+        });
+        return result;
+    }
+
+    /**
+     * Метод, включающий или выключающий усыпление покоящихся островов тел. При выключении все тела просыпаются
+     * @param enabled включено ли усыпление
+     */
+    void setSleepingEnabled(boolean enabled) {
+        sleepingEnabled = enabled;
+        if (!enabled) {
+            for (PhysicalSphere sphere : spheres) sphere.wakeUp();
+            for (PhysicalPolyhedron polyhedron : polyhedrons) polyhedron.wakeUp();
+        }
+    }
+
+    /**
+     * @return Включено ли усыпление покоящихся островов тел
+     */
+    boolean isSleepingEnabled() {
+        return sleepingEnabled;
+    }
+
+    /**
+     * Метод, включающий или выключающий пакетную проверку пар со сферами перед узкой фазой
+     * @param enabled включена ли пакетная проверка
+     */
+    void setSphereBatchEnabled(boolean enabled) {
+        sphereBatchEnabled = enabled;
+    }
+
+    /**
+     * @return Включена ли пакетная проверка пар со сферами
+     */
+    boolean isSphereBatchEnabled() {
+        return sphereBatchEnabled;
+    }
+
+    /**
+     * Метод, заново строящий иерархию коробок треугольников стен. Вызывается при изменении набора стен
+     */
+    void rebuildWalls() {
+        wallTree.build(walls);
+        wallStamps = new int[walls.size()];
     }
 
     /**
      * Метод, обрабатывающий всю физику <b>depth</b> раз
-     * @throws InterruptedException исключение в случае прерывания потока
      */
-    public void update() throws InterruptedException {
+    public void update() {
         for (int i = 0; i< depth; i++)
             handlePhysics();
     }
 
     /**
-     * Метод, обрабатывающий физику
-     * @throws InterruptedException исключение в случае прерывания потока
+     * Метод, обрабатывающий физику. <br>
+     * Пары-кандидаты находит широкая фаза по ограничивающим коробкам объектов. <br>
+     * Шаг разбит на две фазы, разделенные барьером исполнителя: сначала узкая фаза обрабатывает все пары-кандидаты
+     * задачами, взвешенными по стоимости проверки пары, затем обновляются все тела: линейное движение
+     * интегрируется одним проходом по массивам хранилища тел, остальное (поворот, ускорение) - параллельно по телам. <br>
+     * Узкая фаза не изменяет тела: импульсы и смещения пишутся в буфер потока и сливаются в тела
+     * одним проходом между фазами, поэтому блокировки тел не нужны. <br>
+     * Спящие тела не обновляются, а пары из двух спящих тел и пары спящих тел со стенами не проверяются
      * @throws ConcurrentModificationException исключение в случае изменения коллекции при ее итерации
      */
-    private void handlePhysics() throws InterruptedException, ConcurrentModificationException {
-        Thread sphereThread = new Thread(() -> {
-            for (int i = 0; i < spheres.size() - 1; i++) {
-                for (int j = i + 1; j < spheres.size(); j++) {
-                    synchronized (spheres.get(i)) {
-                        synchronized (spheres.get(j)) {
-                            try {
-                                if (new IntersectionalPair<>(spheres.get(i), spheres.get(j)).areIntersected()) {
-                                    new CollisionalPair<>(spheres.get(i), spheres.get(j)).collide();
-                                }
-                                SpheresIntersection spherePair = new IntersectionalPair<>(spheres.get(i), spheres.get(j)).getSpheresIntersection();
-                                if (spherePair.areIntersected) {
-                                    spheres.get(i).pullFromSphere(spherePair);
-                                }
-                            } catch (ImpossiblePairException e) {
-                                e.printStackTrace();
-                            }
-
-                        }
-                    }
-                }
-            }
-            spheres.forEach(sphere -> {
-                for (Wall wall : walls) {
-                    try {
-                        for (Triangle triangle : wall.getTriangles()) {
-                            if (new IntersectionalPair<>(sphere, triangle).areIntersected()) {
-                                new CollisionalPair<>(sphere, wall).collide();
-                            }
-                            SphereToPlaneIntersection pair = new IntersectionalPair<>(sphere, triangle).getSphereToPlaneIntersection();
-                            if (pair.areIntersected)
-                                sphere.pullFromPlane(pair);
-                        }
-                    } catch (ImpossiblePairException e) {
-                        e.printStackTrace();
-                    }
-                }
+    private void handlePhysics() throws ConcurrentModificationException {
+        collectPairs();
+        if (sphereBatchEnabled)
+            filterSpherePairs();
+
+        if (touching.length < pairs.size())
+            touching = new boolean[Math.max(pairs.size(), touching.length * 2)];
+        long threshold = Math.max(MIN_TASK_COST, pairs.getTotalCost() / (executor.getParallelism() * TASKS_PER_THREAD));
+        executor.invoke(new NarrowphaseTask(pairs, this::handlePair, 0, pairs.size(), threshold));
+        flushBuffers();
+
+        final int spheresCount = spheres.size();
+        final int bodiesCount = spheresCount + polyhedrons.size();
+        if (sleepingEnabled)
+            executor.runPhase(bodiesCount, index -> {
+                AbstractBody body = body(index, spheresCount);
+                if (!body.isSleeping())
+                    body.countRest(SLEEP_LINEAR_SPEED, SLEEP_ANGULAR_SPEED);
             });
+        bodyStore.integrate(dt);
+        executor.runPhase(bodiesCount, index -> {
+            AbstractBody body = body(index, spheresCount);
+            if (!body.isSleeping())
+                body.finishUpdate();
         });
 
-        Thread polyhedronThread = new Thread(() -> {
-
-            for (int i = 0; i < polyhedrons.size() - 1; i++) {
-                for (int j = i + 1; j < polyhedrons.size(); j++) {
-                    synchronized (polyhedrons.get(i)) {
-                        synchronized (polyhedrons.get(j)) {
-                            try {
-                                try {
-                                    if (new IntersectionalPair<>(polyhedrons.get(i), polyhedrons.get(j)).areIntersected())
-                                        new CollisionalPair<>(polyhedrons.get(i), polyhedrons.get(j)).collide();
-                                }
-                                catch (Exception ignored){}
-                                for (Triangle triangle : polyhedrons.get(i).getTriangles(false)){
-                                    PolyhedronToPlaneIntersection pair = new IntersectionalPair<>(polyhedrons.get(j), triangle).getPolyhedronToPlaneIntersection();
-                                    if (pair.areIntersected)
-                                        polyhedrons.get(j).pullFromPlane(pair);
-                                }
-                                for (Triangle triangle : polyhedrons.get(j).getTriangles(false)){
-                                    PolyhedronToPlaneIntersection pair = new IntersectionalPair<>(polyhedrons.get(i), triangle).getPolyhedronToPlaneIntersection();
-                                    if (pair.areIntersected)
-                                        polyhedrons.get(i).pullFromPlane(pair);
-                                }
-
-                            } catch (ImpossiblePairException e) {
-                                e.printStackTrace();
-                            }
-
-                        }
-                    }
-                }
+        if (sleepingEnabled)
+            updateIslands();
+    }
+
+    /**
+     * Метод, разбивающий бодрствующие тела на острова по касаниям, найденным узкой фазой (стены острова не связывают),
+     * и усыпляющий острова, все тела которых достаточно долго почти покоятся
+     */
+    private void updateIslands() {
+        final int spheresCount = spheres.size();
+        final int bodiesCount = spheresCount + polyhedrons.size();
+        if (islandParent.length < bodiesCount) {
+            islandParent = new int[bodiesCount];
+            islandRest = new int[bodiesCount];
+            islandIds = new long[bodiesCount];
+        }
+        for (int i = 0; i < bodiesCount; i++) {
+            islandParent[i] = i;
+            islandRest[i] = Integer.MAX_VALUE;
+            islandIds[i] = 0;
+        }
+
+        for (int k = 0; k < pairs.size(); k++) {
+            if (!touching[k]) continue;
+            int first = pairs.getFirst(k), second = pairs.getSecond(k);
+            switch (pairs.getType(k)) {
+                case SPHERE_SPHERE:
+                    union(first, second);
+                    break;
+                case POLYHEDRON_POLYHEDRON:
+                    union(spheresCount + first, spheresCount + second);
+                    break;
+                case POLYHEDRON_SPHERE:
+                    union(spheresCount + first, second);
+                    break;
+                default:
+                    break;
             }
+        }
 
+        for (int i = 0; i < bodiesCount; i++) {
+            AbstractBody body = body(i, spheresCount);
+            if (body.isSleeping()) continue;
+            int root = find(i);
+            islandRest[root] = Math.min(islandRest[root], body.getRestSteps());
+        }
 
-            polyhedrons.forEach(polyhedron -> {
-            for (Wall wall : walls) {
-                try {
-                    for (Triangle triangle : wall.getTriangles()) {
-                        if (new IntersectionalPair<>(polyhedron, triangle).areIntersected()) {
-                            new CollisionalPair<>(polyhedron, wall).collide();
-                        }
-                        PolyhedronToPlaneIntersection pair = new IntersectionalPair<>(polyhedron, triangle).getPolyhedronToPlaneIntersection();
-                        if (pair.areIntersected)
-                            polyhedron.pullFromPlane(pair);
-                    }
-                }
-                catch (Exception ignored){}
+        int stepsToSleep = (int) Math.ceil(TIME_TO_SLEEP / dt);
+        for (int i = 0; i < bodiesCount; i++) {
+            AbstractBody body = body(i, spheresCount);
+            if (body.isSleeping()) continue;
+            int root = find(i);
+            if (islandRest[root] < stepsToSleep) continue;
+            if (islandIds[root] == 0)
+                islandIds[root] = ++islandCounter;
+            body.sleep(islandIds[root], body(root, spheresCount).getId());
+        }
+    }
+
+    /**
+     * @return Корень острова тела (с сокращением путей)
+     */
+    private int find(int i) {
+        while (islandParent[i] != i) {
+            islandParent[i] = islandParent[islandParent[i]];
+            i = islandParent[i];
+        }
+        return i;
+    }
+
+    /**
+     * Метод, объединяющий острова двух тел
+     */
+    private void union(int i, int j) {
+        int rootI = find(i), rootJ = find(j);
+        if (rootI != rootJ) islandParent[rootI] = rootJ;
+    }
+
+    /**
+     * @param index номер тела (сначала сферы, затем многогранники)
+     * @param spheresCount количество сфер
+     * @return Тело
+     */
+    private AbstractBody body(int index, int spheresCount) {
+        return index < spheresCount ? spheres.get(index) : polyhedrons.get(index - spheresCount);
+    }
+
+    /**
+     * Метод, сливающий буферы всех потоков в тела
+     */
+    private void flushBuffers() {
+        synchronized (buffers) {
+            for (ImpulseBuffer buffer : buffers)
+                buffer.flush();
+        }
+    }
+
+    /**
+     * Метод, составляющий список пар-кандидатов текущего шага вместе со стоимостью их проверки. <br>
+     * Объекты широкой фазы нумеруются подряд: сначала сферы, затем многогранники.
+     * Коробка тела охватывает и текущее, и будущее его положение, так как узкая фаза проверяет оба. <br>
+     * Стены в широкую фазу не входят: пары тел со стенами находятся запросом коробки тела к иерархии треугольников стен. <br>
+     * Спящие тела помечаются неподвижными, их коробки не пересчитываются. Если бодрствующее тело задевает спящее,
+     * остров спящего тела просыпается и пары ищутся заново. Задетые острова отмечаются в массиве по номеру
+     * одного из их тел в хранилище (см {@link AbstractBody#getIslandRoot()}); если два острова попали в одну ячейку,
+     * второй будет задет и разбужен на следующем проходе
+     */
+    private void collectPairs() {
+        if (wallTree.getWallsCount() != walls.size())
+            rebuildWalls();
+        final int spheresCount = spheres.size();
+        final int bodiesCount = spheresCount + polyhedrons.size();
+        bounds.reset(bodiesCount);
+        if (proxyBodies.length != bodiesCount)
+            proxyBodies = new AbstractBody[bodiesCount];
+
+        for (int i = 0; i < bodiesCount; i++) {
+            AbstractBody body = body(i, spheresCount);
+            if (body.isSleeping() && proxyBodies[i] == body) {
+                bounds.setStatic(i, true);
+                continue;
             }
-            for (PhysicalSphere sphere : spheres) {
-                try {
-                        if (new IntersectionalPair<>(polyhedron, sphere).areIntersected()) {
-                            new CollisionalPair<>(polyhedron, sphere).collide();
-                        }
-                    for(Triangle triangle : polyhedron.getTriangles(false)) {
-                        SphereToPlaneIntersection pair = new IntersectionalPair<>(sphere, triangle).getSphereToPlaneIntersection();
-                        if (pair.areIntersected) {
-//                            sphere.pullFromPlane(pair);
-                        }
+            proxyBodies[i] = body;
+            body.updateBounds();
+            bounds.set(i, body.getSweptAABB());
+            bounds.setStatic(i, body.isSleeping());
+        }
+
+        if (wakeStamps.length < bodyStore.size()) {
+            wakeStamps = new int[bodyStore.size()];
+            wakeIslands = new long[bodyStore.size()];
+        }
+        do {
+            pairs.clear();
+            islandsWoken = false;
+            final int wakeStamp = ++stamp;
+            broadphase.findPairs(bounds, (first, second) -> {
+                if (bounds.isStatic(first) || bounds.isStatic(second)) {
+                    AbstractBody sleeping = body(bounds.isStatic(first) ? first : second, spheresCount);
+                    wakeStamps[sleeping.getIslandRoot()] = wakeStamp;
+                    wakeIslands[sleeping.getIslandRoot()] = sleeping.getIsland();
+                    islandsWoken = true;
+                } else {
+                    addPair(first, second, spheresCount);
+                }
+            });
+            if (islandsWoken)
+                for (int i = 0; i < bodiesCount; i++) {
+                    AbstractBody body = body(i, spheresCount);
+                    int root = body.getIslandRoot();
+                    if (body.isSleeping() && wakeStamps[root] == wakeStamp && wakeIslands[root] == body.getIsland()) {
+                        body.wakeUp();
+                        body.updateBounds();
+                        bounds.set(i, body.getSweptAABB());
+                        bounds.setStatic(i, false);
                     }
-                } catch (ImpossiblePairException e) {
-                    e.printStackTrace();
                 }
+        } while (islandsWoken);
+
+        for (int i = 0; i < bodiesCount; i++) {
+            if (bounds.isStatic(i)) continue;
+            final int body = i;
+            final int queryStamp = ++stamp;
+            wallTree.query(bounds, body, triangle -> {
+                int wall = wallTree.getWall(triangle);
+                if (wallStamps[wall] == queryStamp) return;
+                wallStamps[wall] = queryStamp;
+                addWallPair(body, wall, spheresCount);
+            });
+        }
+    }
+
+    /**
+     * Метод, убирающий из списка пары сфер и пары сфер со стенами, которые заведомо не касаются (см {@link SphereBatch}).
+     * Центры и радиусы собираются из хранилища тел в массивы пакета, пакет проверяется одним проходом,
+     * и узкая фаза получает только найденные им пары и пары остальных видов. Пары с непрерывно проверяемыми
+     * сферами остаются всегда
+     */
+    private void filterSpherePairs() {
+        final int pairsCount = pairs.size();
+        if (keptPairs.length < pairsCount)
+            keptPairs = new boolean[Math.max(pairsCount, keptPairs.length * 2)];
+        sphereBatch.clear();
+        for (int k = 0; k < pairsCount; k++) {
+            keptPairs[k] = false;
+            switch (pairs.getType(k)) {
+                case SPHERE_SPHERE: {
+                    PhysicalSphere sphere1 = spheres.get(pairs.getFirst(k));
+                    PhysicalSphere sphere2 = spheres.get(pairs.getSecond(k));
+                    if (sphere1.isContinuous() || sphere2.isContinuous())
+                        keptPairs[k] = true;
+                    else
+                        sphereBatch.addSpheres(k, bodyStore, sphere1.getId(), sphere2.getId(), dt);
+                    break;
+                }
+                case SPHERE_WALL: {
+                    PhysicalSphere sphere = spheres.get(pairs.getFirst(k));
+                    if (sphere.isContinuous())
+                        keptPairs[k] = true;
+                    else
+                        for (Triangle triangle : walls.get(pairs.getSecond(k)).getTriangles())
+                            sphereBatch.addWallTriangle(k, bodyStore, sphere.getId(), dt, triangle);
+                    break;
+                }
+                default:
+                    keptPairs[k] = true;
             }
-        });});
+        }
+        final int hitsCount = sphereBatch.findHits();
+        for (int i = 0; i < hitsCount; i++)
+            keptPairs[sphereBatch.getHit(i)] = true;
+        pairs.retain(keptPairs);
+    }
 
-        sphereThread.start();
-        polyhedronThread.start();
-        sphereThread.join();
-        polyhedronThread.join();
+    /**
+     * Метод, добавляющий в список пару тел, найденную широкой фазой
+     * @param first меньший номер тела
+     * @param second больший номер тела
+     * @param spheresCount количество сфер
+     */
+    private void addPair(int first, int second, int spheresCount) {
+        if (first < spheresCount) {
+            if (second < spheresCount)
+                pairs.add(PairType.SPHERE_SPHERE, first, second, SPHERE_TEST_COST);
+            else
+                pairs.add(PairType.POLYHEDRON_SPHERE, second - spheresCount, first,
+                        SPHERE_TEST_COST * polyhedrons.get(second - spheresCount).getTrianglesCount());
+        } else {
+            pairs.add(PairType.POLYHEDRON_POLYHEDRON, first - spheresCount, second - spheresCount,
+                    polyhedronsCost(polyhedrons.get(first - spheresCount), polyhedrons.get(second - spheresCount)));
+        }
+    }
 
-//        System.out.println("Физика: " + ((System.nanoTime() - time1) / 1000000.0));
+    /**
+     * Метод, добавляющий в список пару тела и стены, найденную иерархией стен
+     * @param body номер тела
+     * @param wall номер стены
+     * @param spheresCount количество сфер
+     */
+    private void addWallPair(int body, int wall, int spheresCount) {
+        int trianglesCount = walls.get(wall).getTriangles().size();
+        if (body < spheresCount) {
+            pairs.add(PairType.SPHERE_WALL, body, wall, 2L * SPHERE_TEST_COST * trianglesCount);
+        } else {
+            PhysicalPolyhedron polyhedron = polyhedrons.get(body - spheresCount);
+            pairs.add(PairType.POLYHEDRON_WALL, body - spheresCount, wall,
+                    (long) trianglesCount * (polyhedron.getMesh().getEdgesCount() + polyhedron.getPointsCount()));
+        }
+    }
 
-        sphereThread = new Thread(() -> {
-            synchronized (spheres) {
-                spheres.forEach(PhysicalSphere::update);
-            }
-        });
+    /**
+     * @param polyhedron1 многогранник 1
+     * @param polyhedron2 многогранник 2
+     * @return Стоимость проверки пары многогранников: каждая итерация GJK и EPA проходит по вершинам обоих
+     */
+    private static long polyhedronsCost(PhysicalPolyhedron polyhedron1, PhysicalPolyhedron polyhedron2) {
+        return GJK_ITERATIONS_COST * (polyhedron1.getPointsCount() + polyhedron2.getPointsCount());
+    }
 
-        polyhedronThread = new Thread(() -> {
-            synchronized (polyhedrons) {
-                polyhedrons.forEach(PhysicalPolyhedron::update);
-            }
-        });
+    /**
+     * Метод, обрабатывающий пару-кандидата
+     * @param index номер пары в списке
+     */
+    private void handlePair(int index) {
+        int i = pairs.getFirst(index);
+        int j = pairs.getSecond(index);
+        touching[index] = false;
+        switch (pairs.getType(index)) {
+            case SPHERE_SPHERE:
+                touching[index] = sphereToSphere(spheres.get(i), spheres.get(j));
+                break;
+            case SPHERE_WALL:
+                sphereToWall(spheres.get(i), walls.get(j));
+                break;
+            case POLYHEDRON_POLYHEDRON:
+                touching[index] = polyhedronToPolyhedron(polyhedrons.get(i), polyhedrons.get(j));
+                break;
+            case POLYHEDRON_WALL:
+                polyhedronToWall(polyhedrons.get(i), walls.get(j));
+                break;
+            case POLYHEDRON_SPHERE:
+                touching[index] = polyhedronToSphere(polyhedrons.get(i), spheres.get(j));
+                break;
+        }
+    }
 
-        sphereThread.start();
-        polyhedronThread.start();
-        polyhedronThread.join();
-        sphereThread.join();
+    /**
+     * Метод, находящий контакты пары за один проход узкой фазы и, если тела касаются в будущем положении,
+     * записывающий импульсы коллизии в буфер текущего потока
+     * @param first первое тело пары
+     * @param second второе тело пары
+     * @return Контакты пары (общий для потока объект, действительный до обработки следующей пары)
+     */
+    private <FirstThingType extends Collisional & Intersectional, SecondThingType extends Collisional & Intersectional>
+    ContactManifold collide(FirstThingType first, SecondThingType second) {
+        ContactManifold manifold = IntersectionalPair.findContacts(first, second, threadManifold.get());
+        if (manifold.isTouching())
+            CollisionalPair.collide(first, second, manifold, threadBuffer.get());
+        return manifold;
+    }
 
+    /**
+     * Метод, обрабатывающий пару сфер. Из другой сферы выталкивается одна случайно выбранная сфера пары
+     * @param sphere1 сфера с меньшим номером
+     * @param sphere2 сфера с большим номером
+     * @return Касаются ли сферы
+     */
+    private boolean sphereToSphere(PhysicalSphere sphere1, PhysicalSphere sphere2) {
+        ContactManifold manifold = collide(sphere1, sphere2);
+        if (manifold.isPenetrating() && manifold.getDepth() != 0) {
+            Vector3D pull = manifold.getPenetrationNormal().multiply(manifold.getDepth());
+            if (ThreadLocalRandom.current().nextBoolean())
+                threadBuffer.get().addShift(sphere1, pull.multiply(-1d));
+            else
+                threadBuffer.get().addShift(sphere2, pull);
+        }
+        return manifold.isTouching() || manifold.isPenetrating();
     }
 
+    /**
+     * Метод, обрабатывающий пару сферы и стены
+     * @param sphere сфера
+     * @param wall стена
+     */
+    private void sphereToWall(PhysicalSphere sphere, Wall wall) {
+        ContactManifold manifold = collide(sphere, wall);
+        if (manifold.isPenetrating() && manifold.getDepth() != 0)
+            threadBuffer.get().addShift(sphere, manifold.getPenetrationNormal().multiply(-manifold.getDepth()));
+    }
 
-}
+    /**
+     * Метод, обрабатывающий пару многогранников
+     * @param polyhedron1 многогранник с меньшим номером
+     * @param polyhedron2 многогранник с большим номером
+     * @return Касаются ли многогранники
+     */
+    private boolean polyhedronToPolyhedron(PhysicalPolyhedron polyhedron1, PhysicalPolyhedron polyhedron2) {
+        ContactManifold manifold = collide(polyhedron1, polyhedron2);
+        if (manifold.isPenetrating()) {
+            Vector3D pull = manifold.getPenetrationNormal().multiply(manifold.getDepth() / 2d);
+            threadBuffer.get().addShift(polyhedron1, pull.multiply(-1d));
+            threadBuffer.get().addShift(polyhedron2, pull);
+        }
+        return manifold.isTouching() || manifold.isPenetrating();
+    }
+
+    /**
+     * Метод, обрабатывающий пару многогранника и стены
+     * @param polyhedron многогранник
+     * @param wall стена
+     */
+    private void polyhedronToWall(PhysicalPolyhedron polyhedron, Wall wall) {
+        ContactManifold manifold = collide(polyhedron, wall);
+        if (manifold.isPenetrating() && manifold.getDepth() != 0)
+            threadBuffer.get().addShift(polyhedron, manifold.getPenetrationNormal().multiply(-manifold.getDepth()));
+    }
 
+    /**
+     * Метод, обрабатывающий пару многогранника и сферы
+     * @param polyhedron многогранник
+     * @param sphere сфера
+     * @return Касаются ли многогранник и сфера
+     */
+    private boolean polyhedronToSphere(PhysicalPolyhedron polyhedron, PhysicalSphere sphere) {
+        return collide(polyhedron, sphere).isTouching();
+    }
+
+    /**
+     * Метод, останавливающий рабочие потоки обработчика
+     */
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,50 @@
+package physics;
+
+import physical_objects.AbstractBody;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Тройной буфер снимков состояния. <br>
+ * Писатель (поток физики) заполняет свой снимок и обменивает его на промежуточный, читатель (поток отрисовки)
+ * забирает промежуточный, если он свежее его собственного. Обмен - одна атомарная операция, поэтому ни писатель,
+ * ни читатель не ждут друг друга, а читатель всегда видит целый снимок. Читатель должен быть один
+ */
+public final class SnapshotBuffer {
+
+    private final static int FRESH = 4;
+    private final static int INDEX = 3;
+
+    private final StateSnapshot[] snapshots;
+    private final AtomicInteger middle;
+    private int back;
+    private int front;
+
+    {
+        snapshots = new StateSnapshot[]{new StateSnapshot(), new StateSnapshot(), new StateSnapshot()};
+        middle = new AtomicInteger(1);
+        back = 0;
+        front = 2;
+    }
+
+    /**
+     * Метод, публикующий новый снимок (вызывается писателем)
+     * @param spheres сферы
+     * @param polyhedrons многогранники
+     * @param step номер шага
+     */
+    void publish(List<? extends AbstractBody> spheres, List<? extends AbstractBody> polyhedrons, long step) {
+        snapshots[back].fill(spheres, polyhedrons, step);
+        back = middle.getAndSet(back | FRESH) & INDEX;
+    }
+
+    /**
+     * @return Последний опубликованный снимок (вызывается читателем). Снимок остается неизменным до следующего вызова
+     */
+    public StateSnapshot read() {
+        if ((middle.get() & FRESH) != 0)
+            front = middle.getAndSet(front) & INDEX;
+        return snapshots[front];
+    }
+}
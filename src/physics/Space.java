@@ -1,12 +1,14 @@
 package physics;
 
 import exceptions.ImpossibleObjectException;
+import geometry.AABB;
 import geometry.PhysicalPolyhedronBuilder;
 import geometry.objects.Shape;
 import geometry.objects.Triangle;
 import geometry.objects3D.Point3D;
 import geometry.objects3D.Vector3D;
 import graph.CanvasPanel;
+import limiters.Collisional;
 import org.json.JSONArray;
 import org.json.JSONObject;
 import physical_objects.*;
@@ -16,7 +18,6 @@ import java.awt.*;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.HashSet;
 import java.util.Set;
 
@@ -33,13 +34,17 @@ public class Space{
     private final double G;
     private final CanvasPanel canvas;
     private final PhysicsHandler physicsHandler;
+    private final SnapshotBuffer snapshots;
+    private final BodyStore bodyStore;
+    private long step;
 
     {
+        snapshots = new SnapshotBuffer();
+        bodyStore = new BodyStore();
         polyhedrons = new ArrayList<>();
         spheres = new ArrayList<>();
         walls = new ArrayList<>();
         gravityPlates = new ArrayList<>();
-        physicsHandler = new PhysicsHandler(this, 1);
     }
 
     /**
@@ -47,11 +52,22 @@ public class Space{
      * @param dt временной шаг
      * @param g величина ускорения свободного падения
      * @param canvas канвас, на котором отрисовывается пространство
+     * @param f файл сцены
      */
     public Space(double dt, double g, CanvasPanel canvas, File f) {
-        DT = dt;
-        G = g;
-        this.canvas = canvas;
+        this(dt, g, canvas, f, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Конструктор
+     * @param dt временной шаг
+     * @param g величина ускорения свободного падения
+     * @param canvas канвас, на котором отрисовывается пространство, null - пространство без отрисовки
+     * @param f файл сцены
+     * @param parallelism количество потоков, обрабатывающих физику
+     */
+    public Space(double dt, double g, CanvasPanel canvas, File f, int parallelism) {
+        this(dt, g, canvas, parallelism);
         try {
             load(Tools.readFile(f));
         } catch (ImpossibleObjectException | IOException e) {
@@ -77,6 +93,50 @@ public class Space{
 //        }
     }
 
+    /**
+     * Конструктор пространства без сцены
+     * @param dt временной шаг
+     * @param g величина ускорения свободного падения
+     * @param canvas канвас, на котором отрисовывается пространство, null - пространство без отрисовки
+     * @param parallelism количество потоков, обрабатывающих физику
+     */
+    public Space(double dt, double g, CanvasPanel canvas, int parallelism) {
+        DT = dt;
+        G = g;
+        this.canvas = canvas;
+        physicsHandler = new PhysicsHandler(this, 1, parallelism);
+    }
+
+    /**
+     * Конструктор пространства без отрисовки (графические интерпретации тел не создаются и не обновляются)
+     * @param dt временной шаг
+     * @param g величина ускорения свободного падения
+     * @param f файл сцены
+     * @param parallelism количество потоков, обрабатывающих физику
+     */
+    public Space(double dt, double g, File f, int parallelism) {
+        this(dt, g, null, f, parallelism);
+    }
+
+    /**
+     * Конструктор пространства без отрисовки, использующий все доступные ядра
+     * @param dt временной шаг
+     * @param g величина ускорения свободного падения
+     * @param f файл сцены
+     */
+    public Space(double dt, double g, File f) {
+        this(dt, g, null, f, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Конструктор пустого пространства без отрисовки, тела добавляются методами add*
+     * @param dt временной шаг
+     * @param g величина ускорения свободного падения
+     */
+    public Space(double dt, double g) {
+        this(dt, g, (CanvasPanel) null, Runtime.getRuntime().availableProcessors());
+    }
+
     /**
      * @return строка-конфигурация сцены
      */
@@ -198,6 +258,7 @@ public class Space{
         spheres.clear();
         walls.clear();
         gravityPlates.clear();
+        bodyStore.clear();
         JSONObject jsonObject = new JSONObject(string);
         JSONArray polyhedrons = jsonObject.getJSONArray("polyhedrons");
         for(int i = 0; i < polyhedrons.length(); i++){
@@ -287,36 +348,84 @@ public class Space{
 
             gravityPlates.add(new GravityPlate(this,A,B,C,D,g,material));
         }
+
+        physicsHandler.rebuildWalls();
     }
 
     /**
-     * Сделать шаг во времени
+     * Сделать шаг во времени. <br>
+     * Шаг выполняется сразу, без ожидания: темп шагов задает {@link StepScheduler}
      */
     public synchronized void changeTime() {
-
-        long time1 = System.nanoTime();
-
         try {
             physicsHandler.update();
         } catch (Exception ignored) {
         }
+        snapshots.publish(spheres, polyhedrons, ++step);
+    }
+
+    /**
+     * Метод, выбирающий широкую фазу пространства (по умолчанию {@link BroadphaseType#AABB_TREE})
+     * @param type вид широкой фазы
+     */
+    public synchronized void setBroadphase(BroadphaseType type) {
+        physicsHandler.setBroadphase(type);
+    }
 
-        double cTime = ((System.nanoTime() - time1) / 1000000.0);
-        double sleepTime = 0;
+    /**
+     * @return Вид широкой фазы пространства
+     */
+    public BroadphaseType getBroadphase() {
+        return physicsHandler.getBroadphaseType();
+    }
 
-        if (DT * 1000.0 - cTime > 0) {
-            sleepTime = DT * 1000.0f - cTime;
-        }
+    /**
+     * Метод, включающий или выключающий усыпление покоящихся тел (по умолчанию включено). <br>
+     * Остров касающихся друг друга тел, которые достаточно долго почти покоятся, засыпает: его тела не обновляются
+     * и не проверяются на столкновения, пока их не заденет бодрствующее тело или к ним не приложат импульс
+     * @param enabled включено ли усыпление
+     */
+    public synchronized void setSleepingEnabled(boolean enabled) {
+        physicsHandler.setSleepingEnabled(enabled);
+    }
 
+    /**
+     * @return Включено ли усыпление покоящихся тел
+     */
+    public boolean isSleepingEnabled() {
+        return physicsHandler.isSleepingEnabled();
+    }
 
-        try {
-            Thread.sleep(Tools.transformDouble(sleepTime));
-        } catch (InterruptedException e) {
-            e.printStackTrace();
-        }
+    /**
+     * Метод, включающий или выключающий пакетную проверку пар со сферами (по умолчанию включена). <br>
+     * Пары сфер и пары сфер со стенами, найденные широкой фазой, сначала проверяются все вместе по массивам
+     * центров и радиусов, и в узкую фазу попадают только те, что могут касаться. Результат шага от этого не меняется
+     * @param enabled включена ли пакетная проверка
+     */
+    public synchronized void setSphereBatchEnabled(boolean enabled) {
+        physicsHandler.setSphereBatchEnabled(enabled);
+    }
 
+    /**
+     * @return Включена ли пакетная проверка пар со сферами
+     */
+    public boolean isSphereBatchEnabled() {
+        return physicsHandler.isSphereBatchEnabled();
+    }
 
-        Collections.shuffle(spheres);
+    /**
+     * @param box коробка
+     * @return Тела и стены, ограничивающие коробки которых на последнем шаге пересекались с данной
+     */
+    public synchronized ArrayList<Collisional> query(AABB box) {
+        return physicsHandler.query(box);
+    }
+
+    /**
+     * Метод, останавливающий потоки, обрабатывающие физику пространства
+     */
+    public void shutdown() {
+        physicsHandler.shutdown();
     }
 
     /**
@@ -365,6 +474,14 @@ public class Space{
         GravityPlate plate = new GravityPlate(this, a, b, c, d, g, material);
         gravityPlates.add(plate);
         walls.add(plate);
+        physicsHandler.rebuildWalls();
+    }
+
+    /**
+     * @return Буфер снимков состояния тел, публикуемых после каждого шага
+     */
+    public SnapshotBuffer getSnapshots() {
+        return snapshots;
     }
 
     /**
@@ -374,17 +491,32 @@ public class Space{
         return DT;
     }
 
+    /**
+     * @return Величина однородного ускорения свободного падения
+     */
+    public double getG() {
+        return G;
+    }
+
     /**
      * @param body тело, для которого нужно найти ускорение свободного падения
-     * @return Вектор ускорения свободного падения, действует на данное тело в пространстве
+     * @return Вектор ускорения свободного падения, действует на данное тело в пространстве:
+     * однородное ускорение величины G вдоль -Oz и притяжение гравитационных пластин
      */
     public Vector3D getG(AbstractBody body) {
-        Vector3D g = new Vector3D(0, 0, 0);
+        Vector3D g = new Vector3D(0, 0, -G);
         for (GravityPlate plate : gravityPlates)
             g = g.add(plate.getG(body.getPositionOfCentre(false)));
         return g;
     }
 
+    /**
+     * @return Хранилище состояния тел пространства
+     */
+    public BodyStore getBodyStore() {
+        return bodyStore;
+    }
+
     /**
      * @return Сферы в пространстве
      */
@@ -407,9 +539,16 @@ public class Space{
     }
 
     /**
-     * @return Канвас, на котором отрисовывается пространство
+     * @return Канвас, на котором отрисовывается пространство, null - если пространство не отрисовывается
      */
     public CanvasPanel getCanvas() {
         return canvas;
     }
+
+    /**
+     * @return Работает ли пространство без отрисовки
+     */
+    public boolean isHeadless() {
+        return canvas == null;
+    }
 }
@@ -0,0 +1,273 @@
+package physics;
+
+import geometry.AABB;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Широкая фаза "равномерная сетка с хешированием" для сцен из множества тел похожего размера. <br>
+ * Пространство делится на кубические ячейки, каждый объект заносится во все ячейки, которые задевает его коробка,
+ * и проверяется только с объектами тех же ячеек. Ячейки хранятся в хеш-таблице с открытой адресацией по ключу
+ * {@code long} из координат ячейки, объекты ячейки - в односвязном списке на примитивных массивах, поэтому
+ * заполнение сетки не упаковывает чисел и не создает объектов. <br>
+ * Размер ячейки выбирается по распределению размеров объектов (см {@link #CELL_PERCENTILE}).
+ * Объекты, задевающие слишком много ячеек (например, большие стены), в сетку не заносятся и проверяются со всеми
+ */
+final class SpatialHashGrid implements Broadphase {
+
+    /**
+     * Доля объектов, размер которых не превосходит размера ячейки
+     */
+    private final static double CELL_PERCENTILE = 0.9;
+    private final static int MAX_CELLS_PER_AXIS = 4;
+    private final static int RESIZE_PERIOD = 128;
+    private final static int BITS = 21;
+    private final static long MASK = (1L << BITS) - 1;
+    private final static long OFFSET = 1L << (BITS - 1);
+    private final static long EMPTY = Long.MIN_VALUE;
+
+    private double cellSize;
+    private int sizedFor;
+    private int stepsSinceResize;
+
+    private long[] keys;
+    private int[] heads;
+    private int mask;
+
+    private int[] next;
+    private int[] entryProxy;
+    private int entries;
+
+    private int[] large;
+    private int largeCount;
+    private int[] largeRank;
+
+    {
+        keys = new long[0];
+        heads = new int[0];
+        next = new int[64];
+        entryProxy = new int[64];
+        large = new int[16];
+        largeRank = new int[0];
+        sizedFor = -1;
+    }
+
+    @Override
+    public void findPairs(BoundsList bounds, PairConsumer consumer) {
+        if (bounds.size() != sizedFor || ++stepsSinceResize >= RESIZE_PERIOD)
+            chooseCellSize(bounds);
+        fill(bounds);
+        pairsInCells(bounds, consumer);
+        pairsWithLarge(bounds, consumer);
+    }
+
+    /**
+     * Запрос просматривает ячейки, которые задевает коробка запроса, и объекты вне сетки.
+     * Объект, найденный в нескольких ячейках, выдается только в ячейке, содержащей минимальный угол пересечения
+     */
+    @Override
+    public void query(BoundsList bounds, AABB box, IntConsumer consumer) {
+        long x0 = cell(box.getMinX()), x1 = cell(box.getMaxX());
+        long y0 = cell(box.getMinY()), y1 = cell(box.getMaxY());
+        long z0 = cell(box.getMinZ()), z1 = cell(box.getMaxZ());
+        if (bounds.size() != sizedFor || keys.length == 0
+                || (x1 - x0 + 1) * (y1 - y0 + 1) * (z1 - z0 + 1) > bounds.size()) {
+            for (int i = 0; i < bounds.size(); i++)
+                if (bounds.overlaps(i, box)) consumer.accept(i);
+            return;
+        }
+        for (long x = x0; x <= x1; x++)
+            for (long y = y0; y <= y1; y++)
+                for (long z = z0; z <= z1; z++) {
+                    long key = key(x, y, z);
+                    int slot = slot(key);
+                    if (keys[slot] == EMPTY) continue;
+                    for (int a = heads[slot]; a != -1; a = next[a]) {
+                        int proxy = entryProxy[a];
+                        if (!bounds.overlaps(proxy, box)) continue;
+                        if (key(cell(Math.max(bounds.getMin(proxy, 0), box.getMinX())),
+                                cell(Math.max(bounds.getMin(proxy, 1), box.getMinY())),
+                                cell(Math.max(bounds.getMin(proxy, 2), box.getMinZ()))) == key)
+                            consumer.accept(proxy);
+                    }
+                }
+        for (int k = 0; k < largeCount; k++)
+            if (bounds.overlaps(large[k], box)) consumer.accept(large[k]);
+    }
+
+    /**
+     * Метод, выбирающий размер ячейки: он равен размеру коробки, больше которого лишь малая доля объектов
+     * @param bounds коробки объектов
+     */
+    private void chooseCellSize(BoundsList bounds) {
+        sizedFor = bounds.size();
+        stepsSinceResize = 0;
+        int n = bounds.size();
+        if (n == 0) {
+            cellSize = 1d;
+            return;
+        }
+        double[] sizes = new double[n];
+        for (int i = 0; i < n; i++)
+            sizes[i] = Math.max(bounds.getMax(i, 0) - bounds.getMin(i, 0),
+                    Math.max(bounds.getMax(i, 1) - bounds.getMin(i, 1), bounds.getMax(i, 2) - bounds.getMin(i, 2)));
+        Arrays.sort(sizes);
+        cellSize = Math.max(sizes[Math.min(n - 1, (int) (n * CELL_PERCENTILE))], 1e-9);
+    }
+
+    /**
+     * Метод, заносящий объекты в ячейки
+     * @param bounds коробки объектов
+     */
+    private void fill(BoundsList bounds) {
+        prepareTable(bounds.size() * 8);
+        entries = 0;
+        for (int k = 0; k < largeCount; k++)
+            if (large[k] < largeRank.length) largeRank[large[k]] = 0;
+        if (largeRank.length < bounds.size())
+            largeRank = new int[bounds.size()];
+        largeCount = 0;
+        for (int i = 0; i < bounds.size(); i++) {
+            long x0 = cell(bounds.getMin(i, 0)), x1 = cell(bounds.getMax(i, 0));
+            long y0 = cell(bounds.getMin(i, 1)), y1 = cell(bounds.getMax(i, 1));
+            long z0 = cell(bounds.getMin(i, 2)), z1 = cell(bounds.getMax(i, 2));
+            if (x1 - x0 >= MAX_CELLS_PER_AXIS || y1 - y0 >= MAX_CELLS_PER_AXIS || z1 - z0 >= MAX_CELLS_PER_AXIS) {
+                if (largeCount == large.length) large = Arrays.copyOf(large, largeCount * 2);
+                large[largeCount++] = i;
+                largeRank[i] = largeCount;
+                continue;
+            }
+            for (long x = x0; x <= x1; x++)
+                for (long y = y0; y <= y1; y++)
+                    for (long z = z0; z <= z1; z++)
+                        insert(key(x, y, z), i);
+        }
+    }
+
+    /**
+     * Метод, выдающий пары объектов, попавших в одну ячейку. Пара, общая для нескольких ячеек, выдается только
+     * в ячейке, содержащей минимальный угол пересечения коробок
+     * @param bounds коробки объектов
+     * @param consumer получатель пар
+     */
+    private void pairsInCells(BoundsList bounds, PairConsumer consumer) {
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (keys[slot] == EMPTY) continue;
+            long key = keys[slot];
+            for (int a = heads[slot]; a != -1; a = next[a]) {
+                int first = entryProxy[a];
+                boolean firstStatic = bounds.isStatic(first);
+                for (int b = next[a]; b != -1; b = next[b]) {
+                    int second = entryProxy[b];
+                    if (firstStatic && bounds.isStatic(second)) continue;
+                    if (!bounds.overlaps(first, second)) continue;
+                    if (key(cell(Math.max(bounds.getMin(first, 0), bounds.getMin(second, 0))),
+                            cell(Math.max(bounds.getMin(first, 1), bounds.getMin(second, 1))),
+                            cell(Math.max(bounds.getMin(first, 2), bounds.getMin(second, 2)))) != key)
+                        continue;
+                    consumer.accept(Math.min(first, second), Math.max(first, second));
+                }
+            }
+        }
+    }
+
+    /**
+     * Метод, выдающий пары с объектами, не занесенными в сетку из-за размера
+     * @param bounds коробки объектов
+     * @param consumer получатель пар
+     */
+    private void pairsWithLarge(BoundsList bounds, PairConsumer consumer) {
+        for (int k = 0; k < largeCount; k++) {
+            int first = large[k];
+            boolean firstStatic = bounds.isStatic(first);
+            for (int second = 0; second < bounds.size(); second++) {
+                if (second == first || (firstStatic && bounds.isStatic(second))) continue;
+                if (largeRank[second] != 0 && largeRank[second] <= k) continue;
+                if (bounds.overlaps(first, second))
+                    consumer.accept(Math.min(first, second), Math.max(first, second));
+            }
+        }
+    }
+
+    /**
+     * @param coordinate координата
+     * @return Номер ячейки по оси
+     */
+    private long cell(double coordinate) {
+        return (long) Math.floor(coordinate / cellSize);
+    }
+
+    /**
+     * @return Ключ ячейки по ее номерам
+     */
+    private static long key(long x, long y, long z) {
+        return ((x + OFFSET) & MASK) << (BITS * 2) | ((y + OFFSET) & MASK) << BITS | ((z + OFFSET) & MASK);
+    }
+
+    /**
+     * Метод, очищающий хеш-таблицу и при необходимости увеличивающий ее
+     * @param expected ожидаемое количество ячеек
+     */
+    private void prepareTable(int expected) {
+        int capacity = Integer.highestOneBit(Math.max(16, expected * 2 - 1)) << 1;
+        if (keys.length < capacity) {
+            keys = new long[capacity];
+            heads = new int[capacity];
+            mask = capacity - 1;
+        }
+        Arrays.fill(keys, EMPTY);
+    }
+
+    /**
+     * Метод, добавляющий объект в ячейку
+     * @param key ключ ячейки
+     * @param proxy номер объекта
+     */
+    private void insert(long key, int proxy) {
+        if (entries == next.length) {
+            next = Arrays.copyOf(next, entries * 2);
+            entryProxy = Arrays.copyOf(entryProxy, entries * 2);
+        }
+        if (entries * 2 >= keys.length)
+            rehash();
+        int slot = slot(key);
+        if (keys[slot] == EMPTY) {
+            keys[slot] = key;
+            heads[slot] = -1;
+        }
+        entryProxy[entries] = proxy;
+        next[entries] = heads[slot];
+        heads[slot] = entries++;
+    }
+
+    /**
+     * @param key ключ ячейки
+     * @return Место ячейки в хеш-таблице (занятое ей или свободное)
+     */
+    private int slot(long key) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        int slot = (int) (hash ^ (hash >>> 32)) & mask;
+        while (keys[slot] != EMPTY && keys[slot] != key)
+            slot = (slot + 1) & mask;
+        return slot;
+    }
+
+    /**
+     * Метод, увеличивающий хеш-таблицу вдвое с сохранением ячеек
+     */
+    private void rehash() {
+        long[] oldKeys = keys;
+        int[] oldHeads = heads;
+        keys = new long[oldKeys.length * 2];
+        heads = new int[oldKeys.length * 2];
+        mask = keys.length - 1;
+        Arrays.fill(keys, EMPTY);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] == EMPTY) continue;
+            int slot = slot(oldKeys[i]);
+            keys[slot] = oldKeys[i];
+            heads[slot] = oldHeads[i];
+        }
+    }
+}
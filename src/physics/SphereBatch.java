@@ -0,0 +1,204 @@
+package physics;
+
+import geometry.objects.Triangle;
+
+import java.util.Arrays;
+
+/**
+ * Пакетная проверка пар со сферами перед узкой фазой. <br>
+ * Центры сфер (текущие и будущие), радиусы и плоскости треугольников стен собираются в примитивные массивы,
+ * после чего один цикл без ветвлений и вызовов считает для всех строк сразу, могут ли объекты касаться.
+ * Такой цикл JIT может развернуть в векторные инструкции; отдельный проход затем собирает номера пар, которые
+ * нужно проверить полностью, в плотный список. <br>
+ * Проверка консервативна: пара отбрасывается, только если узкая фаза заведомо не нашла бы в ней ни контакта
+ * в будущем положении, ни проникновения в текущем. <br>
+ * Пакет только отбрасывает пары: результаты его вычислений узкой фазе не передаются, и оставшиеся пары
+ * проверяются полностью (расстояние между сферами считается еще раз). Выигрыш дает то, что пары, которые
+ * заведомо не касаются, не доходят до полной проверки (см {@link SphereBatchBenchmark})
+ */
+public final class SphereBatch {
+
+    /**
+     * Относительный запас, с которым расстояние до плоскости треугольника сравнивается с радиусом: расстояние
+     * до треугольника не меньше расстояния до его плоскости, но считается другими действиями
+     */
+    private final static double PLANE_MARGIN = 1e-9;
+
+    private int[] spherePairs;
+    private double[] px1, py1, pz1, px2, py2, pz2;
+    private double[] cx1, cy1, cz1, cx2, cy2, cz2;
+    private double[] reach;
+    private boolean[] sphereNear;
+    private int spheresSize;
+
+    private int[] wallPairs;
+    private double[] wpx, wpy, wpz, wcx, wcy, wcz;
+    private double[] radius;
+    private double[] nx, ny, nz, offset;
+    private boolean[] wallNear;
+    private int wallsSize;
+
+    private int[] hits;
+    private int hitsSize;
+
+    {
+        allocateSpheres(64);
+        allocateWalls(64);
+        hits = new int[64];
+    }
+
+    /**
+     * Метод, очищающий пакет перед новым шагом
+     */
+    public void clear() {
+        spheresSize = 0;
+        wallsSize = 0;
+        hitsSize = 0;
+    }
+
+    /**
+     * Метод, добавляющий пару сфер
+     * @param pair номер пары в списке пар
+     * @param store хранилище тел
+     * @param id1 номер первой сферы в хранилище
+     * @param id2 номер второй сферы в хранилище
+     * @param dt временной шаг
+     */
+    public void addSpheres(int pair, BodyStore store, int id1, int id2, double dt) {
+        if (spheresSize == spherePairs.length)
+            allocateSpheres(spheresSize * 2);
+        int i = spheresSize++;
+        spherePairs[i] = pair;
+        px1[i] = store.getPredictedX(id1, dt);
+        py1[i] = store.getPredictedY(id1, dt);
+        pz1[i] = store.getPredictedZ(id1, dt);
+        cx1[i] = store.getX(id1);
+        cy1[i] = store.getY(id1);
+        cz1[i] = store.getZ(id1);
+        px2[i] = store.getPredictedX(id2, dt);
+        py2[i] = store.getPredictedY(id2, dt);
+        pz2[i] = store.getPredictedZ(id2, dt);
+        cx2[i] = store.getX(id2);
+        cy2[i] = store.getY(id2);
+        cz2[i] = store.getZ(id2);
+        reach[i] = store.getRadius(id1) + store.getRadius(id2);
+    }
+
+    /**
+     * Метод, добавляющий строку пары сферы и стены: сферу и один треугольник стены (у стены их несколько)
+     * @param pair номер пары в списке пар
+     * @param store хранилище тел
+     * @param id номер сферы в хранилище
+     * @param dt временной шаг
+     * @param triangle треугольник стены
+     */
+    public void addWallTriangle(int pair, BodyStore store, int id, double dt, Triangle triangle) {
+        if (wallsSize == wallPairs.length)
+            allocateWalls(wallsSize * 2);
+        int i = wallsSize++;
+        wallPairs[i] = pair;
+        wpx[i] = store.getPredictedX(id, dt);
+        wpy[i] = store.getPredictedY(id, dt);
+        wpz[i] = store.getPredictedZ(id, dt);
+        wcx[i] = store.getX(id);
+        wcy[i] = store.getY(id);
+        wcz[i] = store.getZ(id);
+        radius[i] = store.getRadius(id);
+        nx[i] = triangle.getNormalX();
+        ny[i] = triangle.getNormalY();
+        nz[i] = triangle.getNormalZ();
+        offset[i] = triangle.getOffset();
+    }
+
+    /**
+     * Метод, проверяющий все строки пакета и собирающий номера пар, которые нужно проверить полностью. <br>
+     * Пара сфер попадает в список, если сферы касаются в будущем положении или пересекаются в текущем
+     * (так же, как в {@link geometry.intersections.IntersectionalPair#getContactManifold}). Пара сферы и стены -
+     * если хотя бы в одном положении сфера ближе радиуса к плоскости хотя бы одного треугольника стены
+     * (пара может повториться в списке)
+     * @return Количество пар в списке
+     */
+    public int findHits() {
+        final int spheresSize = this.spheresSize;
+        final double[] px1 = this.px1, py1 = this.py1, pz1 = this.pz1, px2 = this.px2, py2 = this.py2, pz2 = this.pz2;
+        final double[] cx1 = this.cx1, cy1 = this.cy1, cz1 = this.cz1, cx2 = this.cx2, cy2 = this.cy2, cz2 = this.cz2;
+        final double[] reach = this.reach;
+        final boolean[] sphereNear = this.sphereNear;
+        for (int i = 0; i < spheresSize; i++) {
+            double dx = px2[i] - px1[i], dy = py2[i] - py1[i], dz = pz2[i] - pz1[i];
+            double ex = cx2[i] - cx1[i], ey = cy2[i] - cy1[i], ez = cz2[i] - cz1[i];
+            sphereNear[i] = Math.sqrt(dx * dx + dy * dy + dz * dz) <= reach[i]
+                    | Math.sqrt(ex * ex + ey * ey + ez * ez) < reach[i];
+        }
+
+        final int wallsSize = this.wallsSize;
+        final double[] wpx = this.wpx, wpy = this.wpy, wpz = this.wpz, wcx = this.wcx, wcy = this.wcy, wcz = this.wcz;
+        final double[] radius = this.radius, nx = this.nx, ny = this.ny, nz = this.nz, offset = this.offset;
+        final boolean[] wallNear = this.wallNear;
+        for (int i = 0; i < wallsSize; i++) {
+            double limit = radius[i] * (1d + PLANE_MARGIN);
+            double predicted = Math.abs(nx[i] * wpx[i] + ny[i] * wpy[i] + nz[i] * wpz[i] - offset[i]);
+            double current = Math.abs(nx[i] * wcx[i] + ny[i] * wcy[i] + nz[i] * wcz[i] - offset[i]);
+            wallNear[i] = predicted <= limit | current <= limit;
+        }
+
+        hitsSize = 0;
+        for (int i = 0; i < spheresSize; i++)
+            if (sphereNear[i]) addHit(spherePairs[i]);
+        for (int i = 0; i < wallsSize; i++)
+            if (wallNear[i]) addHit(wallPairs[i]);
+        return hitsSize;
+    }
+
+    /**
+     * @param i номер в списке найденных пар
+     * @return Номер пары в списке пар
+     */
+    public int getHit(int i) {
+        return hits[i];
+    }
+
+    private void addHit(int pair) {
+        if (hitsSize == hits.length)
+            hits = Arrays.copyOf(hits, hitsSize * 2);
+        hits[hitsSize++] = pair;
+    }
+
+    private void allocateSpheres(int capacity) {
+        spherePairs = spherePairs == null ? new int[capacity] : Arrays.copyOf(spherePairs, capacity);
+        px1 = grow(px1, capacity);
+        py1 = grow(py1, capacity);
+        pz1 = grow(pz1, capacity);
+        px2 = grow(px2, capacity);
+        py2 = grow(py2, capacity);
+        pz2 = grow(pz2, capacity);
+        cx1 = grow(cx1, capacity);
+        cy1 = grow(cy1, capacity);
+        cz1 = grow(cz1, capacity);
+        cx2 = grow(cx2, capacity);
+        cy2 = grow(cy2, capacity);
+        cz2 = grow(cz2, capacity);
+        reach = grow(reach, capacity);
+        sphereNear = new boolean[capacity];
+    }
+
+    private void allocateWalls(int capacity) {
+        wallPairs = wallPairs == null ? new int[capacity] : Arrays.copyOf(wallPairs, capacity);
+        wpx = grow(wpx, capacity);
+        wpy = grow(wpy, capacity);
+        wpz = grow(wpz, capacity);
+        wcx = grow(wcx, capacity);
+        wcy = grow(wcy, capacity);
+        wcz = grow(wcz, capacity);
+        radius = grow(radius, capacity);
+        nx = grow(nx, capacity);
+        ny = grow(ny, capacity);
+        nz = grow(nz, capacity);
+        offset = grow(offset, capacity);
+        wallNear = new boolean[capacity];
+    }
+
+    private static double[] grow(double[] array, int capacity) {
+        return array == null ? new double[capacity] : Arrays.copyOf(array, capacity);
+    }
+}
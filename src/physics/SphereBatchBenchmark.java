@@ -0,0 +1,115 @@
+package physics;
+
+import exceptions.ImpossibleObjectException;
+import geometry.objects3D.Point3D;
+import geometry.objects3D.Vector3D;
+import graph.CanvasPanel;
+import physical_objects.PhysicalSphere;
+import physical_objects.Wall;
+
+import java.util.Random;
+
+/**
+ * Замер пакетной проверки пар сфер (см {@link SphereBatch}) против проверки каждой пары узкой фазой. <br>
+ * Без отрисовки строится закрытый стенами куб со сферами, летящими в случайных направлениях без гравитации;
+ * одна и та же сцена прогоняется поочередно с пакетом и без него (см {@link Space#setSphereBatchEnabled(boolean)}).
+ * Для каждого прогона печатается среднее время шага после прогрева и контрольная сумма положений сфер:
+ * пакет только отбрасывает пары, поэтому суммы обоих режимов должны совпадать. <br>
+ * Аргументы: количество сфер (2000), количество шагов (600), из них шагов прогрева (200),
+ * количество потоков физики (1), количество пар прогонов (3)
+ */
+public final class SphereBatchBenchmark {
+
+    private final static double DT = 0.005d;
+    private final static double HALF_SIZE = 1500d;
+    private final static double RADIUS = 12d;
+    private final static double SPEED = 100d;
+    private final static long SEED = 5;
+
+    private SphereBatchBenchmark() {
+    }
+
+    /**
+     * Метод, поочередно прогоняющий сцену без пакета и с пакетом
+     * @param args аргументы (см описание класса)
+     * @throws ImpossibleObjectException исключение в случае ошибки создания сферы
+     */
+    public static void main(String[] args) throws ImpossibleObjectException {
+        int spheres = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        int steps = args.length > 1 ? Integer.parseInt(args[1]) : 600;
+        int warmup = args.length > 2 ? Integer.parseInt(args[2]) : 200;
+        int parallelism = args.length > 3 ? Integer.parseInt(args[3]) : 1;
+        int rounds = args.length > 4 ? Integer.parseInt(args[4]) : 3;
+
+        for (int round = 0; round < rounds; round++)
+            for (boolean batch : new boolean[]{false, true})
+                run(spheres, steps, warmup, parallelism, batch);
+    }
+
+    /**
+     * Метод, прогоняющий сцену и печатающий результат
+     * @param spheres количество сфер
+     * @param steps количество шагов
+     * @param warmup количество первых шагов, не входящих в замер
+     * @param parallelism количество потоков физики
+     * @param batch включена ли пакетная проверка
+     * @throws ImpossibleObjectException исключение в случае ошибки создания сферы
+     */
+    private static void run(int spheres, int steps, int warmup, int parallelism, boolean batch) throws ImpossibleObjectException {
+        Space space = createScene(spheres, parallelism);
+        space.setSleepingEnabled(false);
+        space.setSphereBatchEnabled(batch);
+        long total = 0;
+        try {
+            for (int step = 0; step < steps; step++) {
+                long start = System.nanoTime();
+                space.changeTime();
+                if (step >= warmup)
+                    total += System.nanoTime() - start;
+            }
+        } finally {
+            space.shutdown();
+        }
+
+        double checksum = 0;
+        for (PhysicalSphere sphere : space.getSpheres()) {
+            Point3D centre = sphere.getPositionOfCentre(false);
+            checksum += centre.x * 1.1d + centre.y * 1.3d + centre.z * 1.7d;
+        }
+        System.out.printf("batch=%s spheres=%d %.3f ms/step checksum=%.6f%n",
+                batch, spheres, total / 1e6d / Math.max(1, steps - warmup), checksum);
+    }
+
+    /**
+     * @param spheres количество сфер
+     * @param parallelism количество потоков физики
+     * @return Пространство без отрисовки: куб из шести стен и сферы в узлах решетки со случайными скоростями
+     * @throws ImpossibleObjectException исключение в случае ошибки создания сферы
+     */
+    private static Space createScene(int spheres, int parallelism) throws ImpossibleObjectException {
+        Space space = new Space(DT, 0d, (CanvasPanel) null, parallelism);
+        double l = HALF_SIZE;
+        addWall(space, new Point3D(-l, -l, -l), new Point3D(l, -l, -l), new Point3D(l, l, -l), new Point3D(-l, l, -l));
+        addWall(space, new Point3D(-l, -l, l), new Point3D(l, -l, l), new Point3D(l, l, l), new Point3D(-l, l, l));
+        addWall(space, new Point3D(-l, -l, -l), new Point3D(-l, l, -l), new Point3D(-l, l, l), new Point3D(-l, -l, l));
+        addWall(space, new Point3D(l, -l, -l), new Point3D(l, l, -l), new Point3D(l, l, l), new Point3D(l, -l, l));
+        addWall(space, new Point3D(-l, -l, -l), new Point3D(l, -l, -l), new Point3D(l, -l, l), new Point3D(-l, -l, l));
+        addWall(space, new Point3D(-l, l, -l), new Point3D(l, l, -l), new Point3D(l, l, l), new Point3D(-l, l, l));
+
+        Random random = new Random(SEED);
+        int side = (int) Math.ceil(Math.cbrt(spheres));
+        double cell = (2 * l - 200d) / side;
+        for (int i = 0; i < spheres; i++) {
+            double x = (i % side) * cell - l + 100d;
+            double y = (i / side % side) * cell - l + 100d;
+            double z = (i / side / side) * cell - l + 100d;
+            Vector3D v = new Vector3D(random.nextGaussian() * SPEED, random.nextGaussian() * SPEED, random.nextGaussian() * SPEED);
+            space.addSphere(v, new Vector3D(0, 0, 0), x, y, z, RADIUS, Material.STEEL);
+        }
+        return space;
+    }
+
+    private static void addWall(Space space, Point3D a, Point3D b, Point3D c, Point3D d) {
+        space.getWalls().add(new Wall(space, a, b, c, d, Material.STONE));
+    }
+}
@@ -0,0 +1,105 @@
+package physics;
+
+import geometry.Quaternion;
+import geometry.objects3D.Point3D;
+import physical_objects.AbstractBody;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Снимок состояния тел пространства после шага: положения центров масс и ориентации. <br>
+ * Снимок заполняется только до публикации (см {@link SnapshotBuffer}), после нее он для читателя неизменяем
+ */
+public final class StateSnapshot {
+
+    private AbstractBody[] bodies;
+    private double[] positions;
+    private double[] orientations;
+    private int size;
+    private long step;
+
+    {
+        bodies = new AbstractBody[0];
+        positions = new double[0];
+        orientations = new double[0];
+    }
+
+    /**
+     * Метод, заполняющий снимок по телам
+     * @param spheres сферы
+     * @param polyhedrons многогранники
+     * @param step номер шага
+     */
+    void fill(List<? extends AbstractBody> spheres, List<? extends AbstractBody> polyhedrons, long step) {
+        int size = spheres.size() + polyhedrons.size();
+        if (bodies.length < size) {
+            bodies = new AbstractBody[size];
+            positions = new double[size * 3];
+            orientations = new double[size * 4];
+        } else if (this.size > size) {
+            Arrays.fill(bodies, size, this.size, null);
+        }
+        this.size = size;
+        this.step = step;
+        int i = 0;
+        for (AbstractBody body : spheres) put(i++, body);
+        for (AbstractBody body : polyhedrons) put(i++, body);
+    }
+
+    /**
+     * Метод, записывающий состояние тела
+     * @param i номер тела в снимке
+     * @param body тело
+     */
+    private void put(int i, AbstractBody body) {
+        bodies[i] = body;
+        Point3D position = body.getPositionOfCentre(false);
+        positions[i * 3] = position.x;
+        positions[i * 3 + 1] = position.y;
+        positions[i * 3 + 2] = position.z;
+        Quaternion orientation = body.getOrientation();
+        orientations[i * 4] = orientation.w;
+        orientations[i * 4 + 1] = orientation.x;
+        orientations[i * 4 + 2] = orientation.y;
+        orientations[i * 4 + 3] = orientation.z;
+    }
+
+    /**
+     * @return Количество тел в снимке
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return Номер шага, после которого сделан снимок
+     */
+    public long getStep() {
+        return step;
+    }
+
+    /**
+     * @param i номер тела в снимке
+     * @return Тело
+     */
+    public AbstractBody getBody(int i) {
+        return bodies[i];
+    }
+
+    /**
+     * @param i номер тела в снимке
+     * @return Положение центра масс тела
+     */
+    public Point3D getPosition(int i) {
+        return new Point3D(positions[i * 3], positions[i * 3 + 1], positions[i * 3 + 2]);
+    }
+
+    /**
+     * @param i номер тела в снимке
+     * @return Ориентация тела
+     */
+    public Quaternion getOrientation(int i) {
+        return new Quaternion(orientations[i * 4], orientations[i * 4 + 1], orientations[i * 4 + 2], orientations[i * 4 + 3]);
+    }
+}
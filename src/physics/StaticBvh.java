@@ -0,0 +1,237 @@
+package physics;
+
+import geometry.AABB;
+import geometry.objects.Triangle;
+import physical_objects.Wall;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntConsumer;
+
+/**
+ * Статическая иерархия ограничивающих коробок над треугольниками стен. <br>
+ * Стены не двигаются, поэтому иерархия строится один раз (при загрузке сцены или изменении набора стен)
+ * делением треугольников пополам по самой длинной оси их центров, а запрос коробки тела обходит только
+ * пересекающиеся с ней узлы, то есть стоит O(log W) вместо проверки всех треугольников всех стен. <br>
+ * Узлы лежат в массивах в порядке обхода в глубину: левый ребенок узла идет сразу за ним
+ */
+final class StaticBvh {
+
+    private final static int STRIDE = 6;
+    private final static int LEAF_SIZE = 4;
+
+    private double[] boxes;
+    private int[] rightOrFirst;
+    private int[] counts;
+    private int nodeCount;
+
+    private Triangle[] triangles;
+    private int[] wallOf;
+    private double[] triangleBoxes;
+    private int[] order;
+    private int wallsCount;
+    private int[] stack;
+
+    {
+        boxes = new double[0];
+        rightOrFirst = new int[0];
+        counts = new int[0];
+        triangles = new Triangle[0];
+        wallOf = new int[0];
+        triangleBoxes = new double[0];
+        order = new int[0];
+        stack = new int[64];
+    }
+
+    /**
+     * Метод, строящий иерархию по стенам
+     * @param walls стены
+     */
+    void build(List<Wall> walls) {
+        int size = 0;
+        for (Wall wall : walls)
+            size += wall.getTriangles().size();
+        triangles = new Triangle[size];
+        wallOf = new int[size];
+        triangleBoxes = new double[size * STRIDE];
+        order = new int[size];
+        int t = 0;
+        for (int i = 0; i < walls.size(); i++) {
+            for (Triangle triangle : walls.get(i).getTriangles()) {
+                triangles[t] = triangle;
+                wallOf[t] = i;
+                AABB box = triangle.getAABB();
+                int offset = t * STRIDE;
+                triangleBoxes[offset] = box.getMinX();
+                triangleBoxes[offset + 1] = box.getMinY();
+                triangleBoxes[offset + 2] = box.getMinZ();
+                triangleBoxes[offset + 3] = box.getMaxX();
+                triangleBoxes[offset + 4] = box.getMaxY();
+                triangleBoxes[offset + 5] = box.getMaxZ();
+                order[t] = t;
+                t++;
+            }
+        }
+        wallsCount = walls.size();
+
+        int capacity = Math.max(1, 2 * size);
+        boxes = new double[capacity * STRIDE];
+        rightOrFirst = new int[capacity];
+        counts = new int[capacity];
+        nodeCount = 0;
+        if (size > 0)
+            buildNode(0, size);
+    }
+
+    /**
+     * Метод, строящий узел над отрезком треугольников
+     * @param from первый треугольник отрезка (в порядке {@link #order})
+     * @param to треугольник, следующий за последним
+     * @return Номер узла
+     */
+    private int buildNode(int from, int to) {
+        int node = nodeCount++;
+        int offset = node * STRIDE;
+        double[] centreMin = {Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY};
+        double[] centreMax = {Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY};
+        for (int axis = 0; axis < 3; axis++) {
+            boxes[offset + axis] = Double.POSITIVE_INFINITY;
+            boxes[offset + 3 + axis] = Double.NEGATIVE_INFINITY;
+        }
+        for (int i = from; i < to; i++) {
+            int triangleOffset = order[i] * STRIDE;
+            for (int axis = 0; axis < 3; axis++) {
+                double min = triangleBoxes[triangleOffset + axis], max = triangleBoxes[triangleOffset + 3 + axis];
+                boxes[offset + axis] = Math.min(boxes[offset + axis], min);
+                boxes[offset + 3 + axis] = Math.max(boxes[offset + 3 + axis], max);
+                centreMin[axis] = Math.min(centreMin[axis], min + max);
+                centreMax[axis] = Math.max(centreMax[axis], min + max);
+            }
+        }
+
+        if (to - from <= LEAF_SIZE) {
+            rightOrFirst[node] = from;
+            counts[node] = to - from;
+            return node;
+        }
+
+        int axis = 0;
+        for (int i = 1; i < 3; i++)
+            if (centreMax[i] - centreMin[i] > centreMax[axis] - centreMin[axis]) axis = i;
+        int middle = (from + to) >>> 1;
+        select(from, to - 1, middle, axis);
+
+        counts[node] = 0;
+        buildNode(from, middle);
+        rightOrFirst[node] = buildNode(middle, to);
+        return node;
+    }
+
+    /**
+     * Метод, переставляющий треугольники отрезка так, что на месте k стоит треугольник, который стоял бы там
+     * после сортировки по центру вдоль оси, левее - не большие, правее - не меньшие (быстрый выбор)
+     */
+    private void select(int from, int to, int k, int axis) {
+        while (from < to) {
+            double pivot = centre(order[(from + to) >>> 1], axis);
+            int i = from, j = to;
+            while (i <= j) {
+                while (centre(order[i], axis) < pivot) i++;
+                while (centre(order[j], axis) > pivot) j--;
+                if (i <= j) {
+                    int swap = order[i];
+                    order[i++] = order[j];
+                    order[j--] = swap;
+                }
+            }
+            if (k <= j) to = j;
+            else if (k >= i) from = i;
+            else return;
+        }
+    }
+
+    /**
+     * @return Удвоенная координата центра коробки треугольника по оси
+     */
+    private double centre(int triangle, int axis) {
+        return triangleBoxes[triangle * STRIDE + axis] + triangleBoxes[triangle * STRIDE + 3 + axis];
+    }
+
+    /**
+     * @return Количество стен, по которым построена иерархия
+     */
+    int getWallsCount() {
+        return wallsCount;
+    }
+
+    /**
+     * @param triangle номер треугольника
+     * @return Номер стены, которой принадлежит треугольник
+     */
+    int getWall(int triangle) {
+        return wallOf[triangle];
+    }
+
+    /**
+     * @param triangle номер треугольника
+     * @return Треугольник
+     */
+    Triangle getTriangle(int triangle) {
+        return triangles[triangle];
+    }
+
+    /**
+     * Метод, находящий треугольники, коробки которых пересекаются с коробкой объекта
+     * @param bounds коробки объектов
+     * @param i номер объекта
+     * @param consumer получатель номеров треугольников
+     */
+    void query(BoundsList bounds, int i, IntConsumer consumer) {
+        query(bounds.getMin(i, 0), bounds.getMin(i, 1), bounds.getMin(i, 2),
+                bounds.getMax(i, 0), bounds.getMax(i, 1), bounds.getMax(i, 2), consumer);
+    }
+
+    /**
+     * Метод, находящий треугольники, коробки которых пересекаются с данной
+     * @param box коробка
+     * @param consumer получатель номеров треугольников
+     */
+    void query(AABB box, IntConsumer consumer) {
+        query(box.getMinX(), box.getMinY(), box.getMinZ(), box.getMaxX(), box.getMaxY(), box.getMaxZ(), consumer);
+    }
+
+    /**
+     * Метод, находящий треугольники, коробки которых пересекаются с данной
+     * @param consumer получатель номеров треугольников
+     */
+    private void query(double minX, double minY, double minZ, double maxX, double maxY, double maxZ, IntConsumer consumer) {
+        if (nodeCount == 0) return;
+        int[] stack = this.stack;
+        int top = 0;
+        stack[top++] = 0;
+        while (top > 0) {
+            int node = stack[--top];
+            if (!overlaps(boxes, node, minX, minY, minZ, maxX, maxY, maxZ)) continue;
+            if (counts[node] > 0) {
+                for (int k = rightOrFirst[node]; k < rightOrFirst[node] + counts[node]; k++)
+                    if (overlaps(triangleBoxes, order[k], minX, minY, minZ, maxX, maxY, maxZ))
+                        consumer.accept(order[k]);
+                continue;
+            }
+            if (top + 2 > stack.length) stack = this.stack = Arrays.copyOf(stack, stack.length * 2);
+            stack[top++] = rightOrFirst[node];
+            stack[top++] = node + 1;
+        }
+    }
+
+    /**
+     * @return Пересекается ли коробка из массива с данной
+     */
+    private static boolean overlaps(double[] array, int index, double minX, double minY, double minZ,
+                                    double maxX, double maxY, double maxZ) {
+        int offset = index * STRIDE;
+        return array[offset + 3] >= minX && array[offset] <= maxX
+                && array[offset + 4] >= minY && array[offset + 1] <= maxY
+                && array[offset + 5] >= minZ && array[offset + 2] <= maxZ;
+    }
+}
@@ -0,0 +1,103 @@
+package physics;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntConsumer;
+
+/**
+ * Исполнитель шагов симуляции. <br>
+ * Владеет постоянным {@link ForkJoinPool}, потоки которого создаются один раз и переиспользуются
+ * во всех фазах всех шагов. Фазы разделены барьером: {@link #runPhase(int, IntConsumer)} и {@link #invoke(ForkJoinTask)}
+ * возвращают управление только после того, как вся работа фазы выполнена
+ */
+public final class StepExecutor {
+
+    private final ForkJoinPool pool;
+
+    /**
+     * Конструктор по количеству потоков
+     * @param parallelism количество потоков, обрабатывающих фазу
+     */
+    public StepExecutor(int parallelism) {
+        if (parallelism < 1)
+            throw new IllegalArgumentException("Parallelism must be positive");
+        pool = new ForkJoinPool(parallelism);
+    }
+
+    /**
+     * Конструктор, использующий все доступные ядра
+     */
+    public StepExecutor() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Метод, выполняющий одну фазу шага: обрабатывает элементы с номерами от 0 до <b>size</b> - 1
+     * всеми потоками и дожидается окончания их обработки
+     * @param size количество элементов фазы
+     * @param task обработчик элемента по его номеру
+     */
+    public void runPhase(int size, IntConsumer task) {
+        if (size == 0) return;
+        int grain = Math.max(1, size / (pool.getParallelism() * 4));
+        pool.invoke(new RangeTask(task, 0, size, grain));
+    }
+
+    /**
+     * Метод, выполняющий задачу фазы в пуле исполнителя и дожидающийся ее окончания
+     * @param task задача
+     */
+    public void invoke(ForkJoinTask<?> task) {
+        pool.invoke(task);
+    }
+
+    /**
+     * @return Количество потоков, обрабатывающих фазу
+     */
+    public int getParallelism() {
+        return pool.getParallelism();
+    }
+
+    /**
+     * Метод, останавливающий рабочие потоки. После него исполнитель использовать нельзя
+     */
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    /**
+     * Задача, обрабатывающая отрезок элементов фазы, делящаяся пополам до размера <b>grain</b>
+     */
+    private static final class RangeTask extends RecursiveAction {
+
+        private final static long serialVersionUID = 1L;
+        private final IntConsumer task;
+        private final int from;
+        private final int to;
+        private final int grain;
+
+        RangeTask(IntConsumer task, int from, int to, int grain) {
+            this.task = task;
+            this.from = from;
+            this.to = to;
+            this.grain = grain;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= grain) {
+                for (int i = from; i < to; i++) {
+                    try {
+                        task.accept(i);
+                    } catch (RuntimeException e) {
+                        e.printStackTrace();
+                    }
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new RangeTask(task, from, middle, grain), new RangeTask(task, middle, to, grain));
+        }
+    }
+}
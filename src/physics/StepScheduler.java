@@ -0,0 +1,236 @@
+package physics;
+
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.DoubleConsumer;
+
+/**
+ * Планировщик шагов пространства. <br>
+ * Определяет, в каком темпе вызывается {@link Space#changeTime()}, и считает достигнутое количество шагов в секунду
+ */
+public final class StepScheduler {
+
+    /**
+     * Режим планировщика
+     */
+    public enum Mode {
+        /**
+         * Шаги идут в темпе реального времени: один шаг на каждые DT секунд
+         */
+        REAL_TIME,
+        /**
+         * Шаги идут без пауз, пока планировщик не остановлен
+         */
+        AS_FAST_AS_POSSIBLE,
+        /**
+         * Без пауз выполняется заданное количество шагов
+         */
+        FIXED_STEPS
+    }
+
+    private final static long NANOS_PER_SECOND = 1_000_000_000L;
+
+    private final Space space;
+    private final Mode mode;
+    private final int maxSubsteps;
+    private final long stepsLimit;
+    private DoubleConsumer reporter;
+    private volatile boolean running;
+    private volatile boolean stopped;
+    private volatile long steps;
+    private volatile long droppedSteps;
+    private volatile long elapsedNanos;
+    private volatile double stepsPerSecond;
+
+    /**
+     * Конструктор
+     * @param space пространство
+     * @param mode режим
+     * @param maxSubsteps наибольшее количество шагов, которыми в режиме реального времени догоняется отставание
+     * @param stepsLimit количество шагов в режиме фиксированного количества шагов
+     */
+    private StepScheduler(Space space, Mode mode, int maxSubsteps, long stepsLimit) {
+        this.space = space;
+        this.mode = mode;
+        this.maxSubsteps = Math.max(1, maxSubsteps);
+        this.stepsLimit = stepsLimit;
+    }
+
+    /**
+     * @param space пространство
+     * @param maxSubsteps наибольшее количество шагов подряд, которыми догоняется отставание от реального времени;
+     *                    отставание сверх этого отбрасывается
+     * @return Планировщик, выполняющий шаги в темпе реального времени
+     */
+    public static StepScheduler realTime(Space space, int maxSubsteps) {
+        return new StepScheduler(space, Mode.REAL_TIME, maxSubsteps, Long.MAX_VALUE);
+    }
+
+    /**
+     * @param space пространство
+     * @return Планировщик, выполняющий шаги без пауз до остановки
+     */
+    public static StepScheduler asFastAsPossible(Space space) {
+        return new StepScheduler(space, Mode.AS_FAST_AS_POSSIBLE, 1, Long.MAX_VALUE);
+    }
+
+    /**
+     * @param space пространство
+     * @param steps количество шагов
+     * @return Планировщик, выполняющий без пауз заданное количество шагов
+     */
+    public static StepScheduler fixedSteps(Space space, long steps) {
+        return new StepScheduler(space, Mode.FIXED_STEPS, 1, steps);
+    }
+
+    /**
+     * Метод, задающий получателя отчетов: раз в секунду ему передается количество шагов в секунду за эту секунду
+     * @param reporter получатель отчетов, null - отчеты не передаются
+     * @return Этот планировщик
+     */
+    public StepScheduler setReporter(DoubleConsumer reporter) {
+        this.reporter = reporter;
+        return this;
+    }
+
+    /**
+     * Метод, выполняющий шаги в потоке вызова. <br>
+     * Возвращает управление после {@link #stop()}, а в режиме {@link Mode#FIXED_STEPS} - также после
+     * выполнения всех шагов. Если планировщик уже остановлен, шаги не выполняются
+     */
+    public void run() {
+        running = true;
+        steps = 0;
+        droppedSteps = 0;
+        long start = System.nanoTime();
+        if (mode == Mode.REAL_TIME)
+            runRealTime(start);
+        else
+            runUnpaced(start);
+        elapsedNanos = System.nanoTime() - start;
+        running = false;
+    }
+
+    /**
+     * Метод, останавливающий выполнение шагов после текущего шага. Остановка окончательная: она действует,
+     * даже если пришла раньше, чем поток планировщика дошел до {@link #run()}
+     */
+    public void stop() {
+        stopped = true;
+    }
+
+    /**
+     * Цикл реального времени. <br>
+     * Прошедшее время копится в аккумуляторе, каждый шаг вычитает из него DT. Если шаги не успевают за
+     * временем, за один проход выполняется не более maxSubsteps шагов, а остаток отставания отбрасывается,
+     * чтобы догоняющие шаги не копились бесконечно. Между проходами поток паркуется до момента следующего шага
+     * @param start время запуска в наносекундах
+     */
+    private void runRealTime(long start) {
+        long dt = Math.max(1L, Math.round(space.getDT() * NANOS_PER_SECOND));
+        long previous = start;
+        long accumulator = dt;
+        long reportStart = start;
+        long reportSteps = 0;
+        while (!stopped) {
+            int substeps = 0;
+            while (accumulator >= dt && substeps < maxSubsteps && !stopped) {
+                space.changeTime();
+                accumulator -= dt;
+                substeps++;
+            }
+            steps += substeps;
+            if (accumulator >= dt) {
+                droppedSteps += accumulator / dt;
+                accumulator %= dt;
+            }
+
+            long now = System.nanoTime();
+            if (now - reportStart >= NANOS_PER_SECOND) {
+                report(steps - reportSteps, now - reportStart);
+                reportStart = now;
+                reportSteps = steps;
+            }
+
+            accumulator += now - previous;
+            previous = now;
+            while (accumulator < dt && !stopped) {
+                LockSupport.parkNanos(dt - accumulator);
+                now = System.nanoTime();
+                accumulator += now - previous;
+                previous = now;
+            }
+        }
+    }
+
+    /**
+     * Цикл без пауз
+     * @param start время запуска в наносекундах
+     */
+    private void runUnpaced(long start) {
+        long reportStart = start;
+        long reportSteps = 0;
+        while (!stopped && steps < stepsLimit) {
+            space.changeTime();
+            steps++;
+            long now = System.nanoTime();
+            if (now - reportStart >= NANOS_PER_SECOND) {
+                report(steps - reportSteps, now - reportStart);
+                reportStart = now;
+                reportSteps = steps;
+            }
+        }
+    }
+
+    /**
+     * Метод, обновляющий текущую скорость и передающий отчет
+     * @param steps количество шагов за период
+     * @param nanos длительность периода в наносекундах
+     */
+    private void report(long steps, long nanos) {
+        stepsPerSecond = steps * (double) NANOS_PER_SECOND / nanos;
+        if (reporter != null)
+            reporter.accept(stepsPerSecond);
+    }
+
+    /**
+     * @return Режим планировщика
+     */
+    public Mode getMode() {
+        return mode;
+    }
+
+    /**
+     * @return Работает ли планировщик
+     */
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * @return Количество шагов, выполненных с последнего запуска
+     */
+    public long getSteps() {
+        return steps;
+    }
+
+    /**
+     * @return Количество шагов, отброшенных в режиме реального времени из-за отставания
+     */
+    public long getDroppedSteps() {
+        return droppedSteps;
+    }
+
+    /**
+     * @return Количество шагов в секунду за последнюю полную секунду работы
+     */
+    public double getStepsPerSecond() {
+        return stepsPerSecond;
+    }
+
+    /**
+     * @return Среднее количество шагов в секунду за весь последний завершенный запуск
+     */
+    public double getAverageStepsPerSecond() {
+        return elapsedNanos == 0 ? 0d : steps * (double) NANOS_PER_SECOND / elapsedNanos;
+    }
+}
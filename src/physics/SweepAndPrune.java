@@ -0,0 +1,214 @@
+package physics;
+
+import geometry.AABB;
+
+import java.util.function.IntConsumer;
+
+/**
+ * Широкая фаза "сортировка и отсечение" (sweep and prune). <br>
+ * Для каждой из трех осей хранится список концов коробок, отсортированный по координате. Между шагами
+ * объекты сдвигаются мало, поэтому списки досортировываются сортировкой вставками почти за линейное время.
+ * Пары ищутся проходом по оси, вдоль которой объекты разбросаны сильнее всего: коробка проверяется только с теми,
+ * чей отрезок на этой оси открыт в момент ее начала
+ */
+final class SweepAndPrune implements Broadphase {
+
+    private final static int AXES = 3;
+    private final static int INSERTION_SORT_LIMIT = 16;
+
+    private final int[][] endpoints;
+    private final double[][] values;
+    private int count;
+    private int[] active;
+    private int[] activePosition;
+
+    {
+        endpoints = new int[AXES][0];
+        values = new double[AXES][0];
+        active = new int[0];
+        activePosition = new int[0];
+    }
+
+    @Override
+    public void findPairs(BoundsList bounds, PairConsumer consumer) {
+        if (bounds.size() != count)
+            rebuild(bounds);
+        else
+            for (int axis = 0; axis < AXES; axis++)
+                refresh(bounds, axis);
+        sweep(bounds, chooseAxis(bounds), consumer);
+    }
+
+    /**
+     * Запрос проходит по отсортированному списку оси Ox до конца коробки запроса
+     */
+    @Override
+    public void query(BoundsList bounds, AABB box, IntConsumer consumer) {
+        if (bounds.size() != count) {
+            for (int i = 0; i < bounds.size(); i++)
+                if (bounds.overlaps(i, box)) consumer.accept(i);
+            return;
+        }
+        int[] ends = endpoints[0];
+        double[] vals = values[0];
+        for (int i = 0; i < ends.length && vals[i] <= box.getMaxX(); i++)
+            if ((ends[i] & 1) == 0 && bounds.overlaps(ends[i] >> 1, box))
+                consumer.accept(ends[i] >> 1);
+    }
+
+    /**
+     * Метод, заново строящий списки концов при изменении количества объектов
+     * @param bounds коробки объектов
+     */
+    private void rebuild(BoundsList bounds) {
+        count = bounds.size();
+        active = new int[count];
+        activePosition = new int[count];
+        for (int axis = 0; axis < AXES; axis++) {
+            endpoints[axis] = new int[count * 2];
+            values[axis] = new double[count * 2];
+            for (int i = 0; i < count; i++) {
+                endpoints[axis][i * 2] = i << 1;
+                endpoints[axis][i * 2 + 1] = i << 1 | 1;
+            }
+            refresh(bounds, axis);
+            quickSort(endpoints[axis], values[axis], 0, count * 2 - 1);
+        }
+    }
+
+    /**
+     * Метод, обновляющий координаты концов и досортировывающий список оси вставками
+     * @param bounds коробки объектов
+     * @param axis ось
+     */
+    private void refresh(BoundsList bounds, int axis) {
+        int[] ends = endpoints[axis];
+        double[] vals = values[axis];
+        for (int i = 0; i < ends.length; i++) {
+            int proxy = ends[i] >> 1;
+            vals[i] = (ends[i] & 1) == 0 ? bounds.getMin(proxy, axis) : bounds.getMax(proxy, axis);
+        }
+        insertionSort(ends, vals, 0, ends.length - 1);
+    }
+
+    /**
+     * @param bounds коробки объектов
+     * @return Ось, вдоль которой центры коробок подвижных объектов разбросаны сильнее всего
+     */
+    private static int chooseAxis(BoundsList bounds) {
+        int best = 0;
+        double bestVariance = -1;
+        for (int axis = 0; axis < AXES; axis++) {
+            double sum = 0, squares = 0;
+            int n = 0;
+            for (int i = 0; i < bounds.size(); i++) {
+                if (bounds.isStatic(i)) continue;
+                n++;
+                double centre = bounds.getMin(i, axis) + bounds.getMax(i, axis);
+                sum += centre;
+                squares += centre * centre;
+            }
+            double variance = squares - sum * sum / Math.max(1, n);
+            if (variance > bestVariance) {
+                bestVariance = variance;
+                best = axis;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Метод, проходящий по оси и выдающий пары с пересекающимися коробками
+     * @param bounds коробки объектов
+     * @param axis ось прохода
+     * @param consumer получатель пар
+     */
+    private void sweep(BoundsList bounds, int axis, PairConsumer consumer) {
+        int[] ends = endpoints[axis];
+        int activeCount = 0;
+        for (int end : ends) {
+            int proxy = end >> 1;
+            if ((end & 1) == 0) {
+                boolean proxyStatic = bounds.isStatic(proxy);
+                for (int k = 0; k < activeCount; k++) {
+                    int other = active[k];
+                    if (proxyStatic && bounds.isStatic(other)) continue;
+                    if (bounds.overlaps(proxy, other))
+                        consumer.accept(Math.min(proxy, other), Math.max(proxy, other));
+                }
+                active[activeCount] = proxy;
+                activePosition[proxy] = activeCount++;
+            } else {
+                int position = activePosition[proxy];
+                int last = active[--activeCount];
+                active[position] = last;
+                activePosition[last] = position;
+            }
+        }
+    }
+
+    /**
+     * @return Должен ли конец a стоять раньше конца b (при равных координатах начала идут раньше концов,
+     * чтобы касающиеся коробки считались пересекающимися)
+     */
+    private static boolean less(double valueA, int endA, double valueB, int endB) {
+        return valueA < valueB || (valueA == valueB && (endA & 1) < (endB & 1));
+    }
+
+    /**
+     * Сортировка вставками отрезка списка концов
+     */
+    private static void insertionSort(int[] ends, double[] vals, int from, int to) {
+        for (int i = from + 1; i <= to; i++) {
+            int end = ends[i];
+            double value = vals[i];
+            int j = i - 1;
+            while (j >= from && less(value, end, vals[j], ends[j])) {
+                ends[j + 1] = ends[j];
+                vals[j + 1] = vals[j];
+                j--;
+            }
+            ends[j + 1] = end;
+            vals[j + 1] = value;
+        }
+    }
+
+    /**
+     * Быстрая сортировка отрезка списка концов (используется при перестроении списков)
+     */
+    private static void quickSort(int[] ends, double[] vals, int from, int to) {
+        while (to - from > INSERTION_SORT_LIMIT) {
+            int middle = (from + to) >>> 1;
+            double pivotValue = vals[middle];
+            int pivotEnd = ends[middle];
+            int i = from, j = to;
+            while (i <= j) {
+                while (less(vals[i], ends[i], pivotValue, pivotEnd)) i++;
+                while (less(pivotValue, pivotEnd, vals[j], ends[j])) j--;
+                if (i <= j) {
+                    swap(ends, vals, i++, j--);
+                }
+            }
+            if (j - from < to - i) {
+                quickSort(ends, vals, from, j);
+                from = i;
+            } else {
+                quickSort(ends, vals, i, to);
+                to = j;
+            }
+        }
+        insertionSort(ends, vals, from, to);
+    }
+
+    /**
+     * Метод, меняющий местами два конца
+     */
+    private static void swap(int[] ends, double[] vals, int i, int j) {
+        int end = ends[i];
+        ends[i] = ends[j];
+        ends[j] = end;
+        double value = vals[i];
+        vals[i] = vals[j];
+        vals[j] = value;
+    }
+}